@@ -33,6 +33,16 @@ import java.util.UUID;
 import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.korean.CatalogPrimaryKeyFinder;
+import org.geotools.data.korean.DeferredIndexBuilder;
+import org.geotools.data.korean.ExtentCache;
+import org.geotools.data.korean.FeatureCache;
+import org.geotools.data.korean.GeometryColumnsCache;
+import org.geotools.data.korean.QueryMetrics;
+import org.geotools.data.korean.SequenceAllocator;
+import org.geotools.data.korean.WKBAttributeIO;
+import org.geotools.data.korean.WKBEncoder;
+import org.geotools.data.korean.WKBQuirks;
 import org.geotools.factory.Hints;
 import org.geotools.filter.IsLessThenOrEqualToImpl;
 import org.geotools.filter.LiteralExpressionImpl;
@@ -40,6 +50,7 @@ import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKeyFinder;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -60,17 +71,34 @@ import com.vividsolutions.jts.geom.MultiPoint;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
-import com.vividsolutions.jts.io.ParseException;
-import com.vividsolutions.jts.io.WKTReader;
 
 public class AltibaseDialect extends BasicSQLDialect {
 
+    /** GEOMETRY_COLUMNS holds the internal SRID, the EPSG code is in SPATIAL_REF_SYS */
+    static final String GEOMETRY_COLUMNS = "SELECT G.F_TABLE_SCHEMA, G.F_TABLE_NAME, "
+            + "G.F_GEOMETRY_COLUMN, R.AUTH_SRID, G.COORD_DIMENSION FROM GEOMETRY_COLUMNS G "
+            + "LEFT OUTER JOIN SPATIAL_REF_SYS R ON G.SRID = R.SRID";
+
     boolean looseBBOXEnabled = false;
 
     boolean estimatedExtentsEnabled = false;
 
     Version version;
 
+    final GeometryColumnsCache geometryColumns;
+
+    final ExtentCache extents = new ExtentCache();
+
+    final SequenceAllocator sequences;
+
+    final DeferredIndexBuilder deferredIndexes = new DeferredIndexBuilder();
+
+    boolean bulkLoadEnabled = false;
+
+    FeatureCache featureCache;
+
+    QueryMetrics queryMetrics;
+
     @SuppressWarnings({ "rawtypes", "serial" })
     final static Map<String, Class> TYPE_TO_CLASS_MAP = new HashMap<String, Class>() {
         {
@@ -110,6 +138,9 @@ public class AltibaseDialect extends BasicSQLDialect {
 
     public AltibaseDialect(JDBCDataStore dataStore) {
         super(dataStore);
+        this.geometryColumns = new GeometryColumnsCache(dataStore, GEOMETRY_COLUMNS);
+        this.sequences = new SequenceAllocator(dataStore);
+        dataStore.getConnectionLifecycleListeners().add(extents);
     }
 
     public boolean isLooseBBOXEnabled() {
@@ -128,6 +159,79 @@ public class AltibaseDialect extends BasicSQLDialect {
         this.estimatedExtentsEnabled = estimatedExtentsEnabled;
     }
 
+    /**
+     * Sets how long, in milliseconds, the optimized bounds of a table are cached. Zero or less
+     * disables the cache.
+     */
+    public void setExtentsTimeToLive(long timeToLive) {
+        extents.setTimeToLive(timeToLive);
+    }
+
+    /**
+     * Sets how long, in milliseconds, the geometry metadata of the tables is cached. Zero or less
+     * reads it again on every lookup.
+     */
+    public void setGeometryColumnsTimeToLive(long timeToLive) {
+        geometryColumns.setTimeToLive(timeToLive);
+    }
+
+    /**
+     * Sets the number of sequence values reserved per query, 1 or less reads one value per insert
+     */
+    public void setSequenceBlockSize(int blockSize) {
+        sequences.setBlockSize(blockSize);
+    }
+
+    public boolean isBulkLoadEnabled() {
+        return bulkLoadEnabled;
+    }
+
+    /**
+     * In bulk load mode the spatial index of a new table is built once its first load commits,
+     * instead of being maintained row by row during the load
+     */
+    public void setBulkLoadEnabled(boolean bulkLoadEnabled) {
+        this.bulkLoadEnabled = bulkLoadEnabled;
+        dataStore.getConnectionLifecycleListeners().remove(deferredIndexes);
+        if (bulkLoadEnabled) {
+            dataStore.getConnectionLifecycleListeners().add(deferredIndexes);
+        }
+    }
+
+    public DeferredIndexBuilder getDeferredIndexes() {
+        return deferredIndexes;
+    }
+
+    public FeatureCache getFeatureCache() {
+        return featureCache;
+    }
+
+    /**
+     * Sets the estimated size, in bytes, of the query results kept for
+     * {@link org.geotools.data.korean.TileCachedFeatureSource}. Zero or less disables the cache.
+     */
+    public void setFeatureCacheSize(long maxBytes) {
+        if (featureCache != null) {
+            dataStore.getConnectionLifecycleListeners().remove(featureCache);
+            featureCache = null;
+        }
+        if (maxBytes > 0) {
+            featureCache = new FeatureCache(maxBytes);
+            dataStore.getConnectionLifecycleListeners().add(featureCache);
+        }
+    }
+
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Records the size and decode time of the geometries read, null disables the recording
+     */
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return "distinct".equalsIgnoreCase(function);
@@ -173,11 +277,12 @@ public class AltibaseDialect extends BasicSQLDialect {
     WKBAttributeIO getWKBReader(GeometryFactory factory) {
         WKBAttributeIO reader = wkbReader.get();
         if (reader == null) {
-            reader = new WKBAttributeIO(factory);
+            reader = new WKBAttributeIO(factory, WKBQuirks.ALTIBASE);
             wkbReader.set(reader);
         } else {
             reader.setGeometryFactory(factory);
         }
+        reader.setMetrics(queryMetrics);
         return reader;
     }
 
@@ -191,7 +296,7 @@ public class AltibaseDialect extends BasicSQLDialect {
 
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
-        sql.append(" ASTEXT(ENVELOPE(");
+        sql.append(" ASBINARY(ENVELOPE(");
         encodeColumnName(null, geometryColumn, sql);
         sql.append("))");
     }
@@ -213,6 +318,12 @@ public class AltibaseDialect extends BasicSQLDialect {
 
         String tableName = featureType.getTypeName();
 
+        List<ReferencedEnvelope> cached = extents.get(schema, tableName);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = extents.getGeneration(schema, tableName);
+
         Statement st = null;
         ResultSet rs = null;
 
@@ -266,22 +377,46 @@ public class AltibaseDialect extends BasicSQLDialect {
             dataStore.closeSafe(rs);
             dataStore.closeSafe(st);
         }
+        extents.put(schema, tableName, generation, result);
         return result;
     }
 
     @Override
     public Envelope decodeGeometryEnvelope(ResultSet rs, int column, Connection cx)
             throws SQLException, IOException {
-        try {
-            String envelope = rs.getString(column);
-            if (envelope != null) {
-                return new WKTReader().read(envelope).getEnvelopeInternal();
-            } else {
-                return new Envelope();
-            }
-        } catch (ParseException e) {
-            throw (IOException) new IOException("Error occurred parsing the bounds WKT")
-                    .initCause(e);
+        // the envelope is read straight from the WKB, without building the polygon
+        WKBAttributeIO reader = wkbReader.get();
+        if (reader == null) {
+            reader = getWKBReader(new GeometryFactory());
+        }
+        return reader.readEnvelope(rs, column);
+    }
+
+    @Override
+    public void onInsert(Statement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+        deferredIndexes.inserted(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+    }
+
+    @Override
+    public void onUpdate(Statement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+    }
+
+    @Override
+    public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+    }
+
+    void invalidateFeatures(Connection cx, SimpleFeatureType featureType) {
+        if (featureCache != null) {
+            featureCache.written(cx, featureType.getTypeName());
         }
     }
 
@@ -376,82 +511,35 @@ public class AltibaseDialect extends BasicSQLDialect {
     @Override
     public Integer getGeometrySRID(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-        Integer srid = null;
         try {
-            // try geometry_columns
-            try {
-                String sridSQL = "SELECT SRID FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                String sqlStatement = "SELECT AUTH_SRID FROM SPATIAL_REF_SYS WHERE SRID = ("
-                        + sridSQL + ")";
-
-                LOGGER.log(Level.FINE, "Geometry srid check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    srid = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            GeometryColumnsCache.GeometryColumn column = geometryColumns.get(schemaName,
+                    tableName, columnName, cx);
+            if (column != null) {
+                return column.getSrid();
             }
-
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         }
-
-        return srid;
+        return null;
     }
 
     @Override
     public int getGeometryDimension(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-        int dimension = 2; // default
         try {
-            // try geometry_columns
-            try {
-                String sqlStatement = "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                LOGGER.log(Level.FINE, "Geometry dimension check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    dimension = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            GeometryColumnsCache.GeometryColumn column = geometryColumns.get(schemaName,
+                    tableName, columnName, cx);
+            if (column != null) {
+                return column.getDimension();
             }
-
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         }
-
-        return dimension;
+        return 2; // default
     }
 
     @Override
@@ -463,27 +551,13 @@ public class AltibaseDialect extends BasicSQLDialect {
     @Override
     public Object getNextSequenceValue(String schemaName, String sequenceName, Connection cx)
             throws SQLException {
-        Statement st = cx.createStatement();
-        try {
-            // SELECT seq_building_fid.NEXTVAL FROM DUAL;
-            String sql = "SELECT \"" + sequenceName + "\".NEXTVAL FROM DUAL";
-
-            dataStore.getLogger().fine(sql);
-            ResultSet rs = st.executeQuery(sql);
-            try {
-                if (rs.next()) {
-                    return rs.getLong(1);
-                } else {
-                    LOGGER.log(Level.WARNING, "Failed to retrieve sequence from " + sequenceName);
-                }
-            } finally {
-                dataStore.closeSafe(rs);
-            }
-        } finally {
-            dataStore.closeSafe(st);
+        // values are reserved in blocks, one query serves many inserts
+        Long value = sequences.next(schemaName, sequenceName, cx);
+        if (value == null) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve sequence from " + sequenceName);
+            return 0;
         }
-
-        return 0;
+        return value;
     }
 
     @Override
@@ -565,6 +639,7 @@ public class AltibaseDialect extends BasicSQLDialect {
     public void postCreateTable(String schemaName, SimpleFeatureType featureType, Connection cx)
             throws SQLException {
         String tableName = featureType.getName().getLocalPart();
+        invalidatePrimaryKey(schemaName, tableName);
 
         Statement st = null;
         try {
@@ -616,6 +691,8 @@ public class AltibaseDialect extends BasicSQLDialect {
                             + srid + ")";
                     LOGGER.fine(sql);
                     st.execute(sql);
+                    // the srid is resolved through SPATIAL_REF_SYS, read it again on next access
+                    geometryColumns.invalidate();
 
                     // add the spatial index
                     // Altibase: CREATE INDEX index_name ON table_name ( column_name ) [INDEXTYPE IS
@@ -627,8 +704,12 @@ public class AltibaseDialect extends BasicSQLDialect {
                             + " (" //
                             + "\"" + gd.getLocalName() + "\"" //
                             + ") INDEXTYPE IS RTREE";
-                    LOGGER.fine(sql);
-                    st.execute(sql);
+                    if (bulkLoadEnabled) {
+                        deferredIndexes.defer(schemaName, tableName, sql);
+                    } else {
+                        LOGGER.fine(sql);
+                        st.execute(sql);
+                    }
 
                     // create sequence
                     String sequenceName = getSequenceForColumn(schemaName, tableName, "fid", cx);
@@ -664,11 +745,25 @@ public class AltibaseDialect extends BasicSQLDialect {
                     + "'" + " AND F_TABLE_NAME = '" + tableName + "'";
             LOGGER.fine(sql);
             st.execute(sql);
+            geometryColumns.removeTable(schemaName, tableName);
+            extents.invalidate(schemaName, tableName);
+            deferredIndexes.remove(schemaName, tableName);
+            if (featureCache != null) {
+                featureCache.invalidate(tableName);
+            }
+            invalidatePrimaryKey(schemaName, tableName);
         } finally {
             dataStore.closeSafe(st);
         }
     }
 
+    void invalidatePrimaryKey(String schemaName, String tableName) {
+        PrimaryKeyFinder finder = dataStore.getPrimaryKeyFinder();
+        if (finder instanceof CatalogPrimaryKeyFinder) {
+            ((CatalogPrimaryKeyFinder) finder).invalidate(schemaName, tableName);
+        }
+    }
+
     @Override
     public void encodeGeometryValue(Geometry value, int dimension, int srid, StringBuffer sql)
             throws IOException {
@@ -681,8 +776,10 @@ public class AltibaseDialect extends BasicSQLDialect {
                         ((LinearRing) value).getCoordinateSequence());
             }
 
-            // Altibase WKT string is too long. Max length is 32KB
-            sql.append(" GEOMFROMTEXT('" + value.toText() + "')");
+            // WKT is limited to 32KB, hex WKB is not
+            sql.append(" GEOMFROMWKB(");
+            new WKBEncoder(dimension, WKBQuirks.ALTIBASE).encodeHex(value, sql);
+            sql.append(")");
         }
     }
 
@@ -34,6 +34,7 @@ public class AltibaseNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
 
         parameters.put(AltibaseNGDataStoreFactory.LOOSEBBOX.key, AltibaseNGDataStoreFactory.LOOSEBBOX);
         parameters.put(AltibaseNGDataStoreFactory.PREPARED_STATEMENTS.key, AltibaseNGDataStoreFactory.PREPARED_STATEMENTS);
+        parameters.put(AltibaseNGDataStoreFactory.BATCH_INSERT_SIZE.key, AltibaseNGDataStoreFactory.BATCH_INSERT_SIZE);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
     }
 }
@@ -26,6 +26,8 @@ import java.sql.Types;
 import java.util.List;
 import java.util.Map;
 
+import org.geotools.data.korean.WKBEncoder;
+import org.geotools.data.korean.WKBQuirks;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.ColumnMetadata;
@@ -40,8 +42,6 @@ import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.io.ByteOrderValues;
-import com.vividsolutions.jts.io.WKBWriter;
 
 public class AltibasePSDialect extends PreparedStatementSQLDialect {
 
@@ -73,11 +73,6 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
         return delegate.isAggregatedSortSupported(function);
     }
 
-    @Override
-    public void initializeConnection(Connection cx) throws SQLException {
-        super.initializeConnection(cx);
-    }
-
     @Override
     public boolean includeTable(String schemaName, String tableName, Connection cx)
             throws SQLException {
@@ -124,6 +119,24 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
         return delegate.decodeGeometryEnvelope(rs, column, cx);
     }
 
+    @Override
+    public void onInsert(PreparedStatement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onInsert(insert, cx, featureType);
+    }
+
+    @Override
+    public void onUpdate(PreparedStatement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onUpdate(update, cx, featureType);
+    }
+
+    @Override
+    public void onDelete(PreparedStatement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onDelete(delete, cx, featureType);
+    }
+
     @Override
     public Class<?> getMapping(ResultSet columnMetaData, Connection cx) throws SQLException {
         return delegate.getMapping(columnMetaData, cx);
@@ -271,7 +284,7 @@ public class AltibasePSDialect extends PreparedStatementSQLDialect {
                 g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
             }
 
-            byte[] bytes = new WKBWriter(dimension, ByteOrderValues.LITTLE_ENDIAN).write(g);
+            byte[] bytes = new WKBEncoder(dimension, WKBQuirks.ALTIBASE).encode(g);
             ps.setBytes(column, bytes);
         } else {
             ps.setNull(column, Types.OTHER, "Geometry");
@@ -20,8 +20,10 @@ import java.io.IOException;
 import java.io.Writer;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.factory.CommonFactoryFinder;
 import org.geotools.filter.FilterCapabilities;
 import org.geotools.jdbc.SQLDialect;
+import org.opengis.filter.FilterFactory;
 import org.opengis.filter.expression.Literal;
 import org.opengis.filter.expression.PropertyName;
 import org.opengis.filter.spatial.BBOX;
@@ -38,11 +40,16 @@ import org.opengis.filter.spatial.Overlaps;
 import org.opengis.filter.spatial.Touches;
 import org.opengis.filter.spatial.Within;
 
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
 @SuppressWarnings("deprecation")
 class FilterToSqlHelper {
 
     protected static final String IO_ERROR = "io problem writing filter";
 
+    static final FilterFactory ff = CommonFactoryFinder.getFilterFactory(null);
+
     FilterToSQL delegate;
 
     Writer out;
@@ -93,28 +100,77 @@ class FilterToSqlHelper {
     void visitDistanceSpatialOperator(DistanceBufferOperator filter, PropertyName property,
             Literal geometry, boolean swapped, Object extraData) throws IOException {
         // NOTE: Altibase does not support DWithin, Beyond
+        // the distance test is guarded by an envelope test on the query geometry expanded by
+        // the distance, which is answered by the spatial index
+        Literal envelope = expandEnvelope(geometry, filter.getDistance());
 
         if ((filter instanceof DWithin && !swapped) || (filter instanceof Beyond && swapped)) {
+            out.write("(");
+            if (envelope != null) {
+                visitMBRIntersects(property, envelope, extraData);
+                out.write(" AND ");
+            }
             out.write("ST_Distance(");
             property.accept(delegate, extraData);
             out.write(",");
             geometry.accept(delegate, extraData);
             out.write(") <= ");
             out.write(Double.toString(filter.getDistance()));
+            out.write(")");
         }
 
         if ((filter instanceof DWithin && swapped) || (filter instanceof Beyond && !swapped)) {
+            // features outside the expanded envelope are beyond the distance
+            out.write("(");
+            if (envelope != null) {
+                out.write("NOT ");
+                visitMBRIntersects(property, envelope, extraData);
+                out.write(" OR ");
+            }
             out.write("ST_Distance(");
             property.accept(delegate, extraData);
             out.write(",");
             geometry.accept(delegate, extraData);
             out.write(") > ");
             out.write(Double.toString(filter.getDistance()));
+            out.write(")");
+        }
+    }
+
+    /**
+     * Returns the envelope of the geometry expanded by the distance as a polygon literal, or
+     * null if the geometry is empty
+     */
+    Literal expandEnvelope(Literal geometry, double distance) {
+        Geometry geom = geometry.evaluate(null, Geometry.class);
+        if (geom == null || geom.isEmpty()) {
+            return null;
         }
+
+        Envelope envelope = new Envelope(geom.getEnvelopeInternal());
+        envelope.expandBy(distance);
+        return ff.literal(geom.getFactory().toGeometry(envelope));
+    }
+
+    /**
+     * Writes the envelope only intersection test, answered by the spatial index without the exact
+     * geometry test
+     */
+    void visitMBRIntersects(PropertyName property, Literal geometry, Object extraData)
+            throws IOException {
+        out.write("ISMBRINTERSECTS(");
+        property.accept(delegate, extraData);
+        out.write(", ");
+        geometry.accept(delegate, extraData);
+        out.write(")");
     }
 
     void visitComparisonSpatialOperator(BinarySpatialOperator filter, PropertyName property,
             Literal geometry, boolean swapped, Object extraData) throws IOException {
+        if (looseBBOXEnabled && filter instanceof BBOX) {
+            visitMBRIntersects(property, geometry, extraData);
+            return;
+        }
 
         String closingParenthesis = ")";
         if (filter instanceof Equals) {
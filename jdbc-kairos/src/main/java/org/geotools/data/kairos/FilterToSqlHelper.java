@@ -112,10 +112,29 @@ class FilterToSqlHelper {
         }
     }
 
+    /**
+     * Writes the envelope only intersection test, answered by the spatial index without the exact
+     * geometry test
+     */
+    void visitMBRIntersects(PropertyName property, Literal geometry, Object extraData)
+            throws IOException {
+        out.write("ST_MBRIntersects(");
+        property.accept(delegate, extraData);
+        out.write(", ");
+        geometry.accept(delegate, extraData);
+        out.write(")");
+    }
+
     void visitComparisonSpatialOperator(BinarySpatialOperator filter, PropertyName property,
             Literal geometry, boolean swapped, Object extraData) throws IOException {
 
         // NOTE: Kairos Spatial returns TRUE(1) or FALSE(0)
+        if (looseBBOXEnabled && filter instanceof BBOX) {
+            visitMBRIntersects(property, geometry, extraData);
+            out.write("=1");
+            return;
+        }
+
         String closingParenthesis = ")=1";
 
         if (filter instanceof Equals) {
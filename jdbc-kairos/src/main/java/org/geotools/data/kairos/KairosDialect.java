@@ -28,15 +28,28 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.korean.CatalogPrimaryKeyFinder;
+import org.geotools.data.korean.DeferredIndexBuilder;
+import org.geotools.data.korean.ExtentCache;
+import org.geotools.data.korean.FeatureCache;
+import org.geotools.data.korean.GeometryColumnsCache;
+import org.geotools.data.korean.QueryMetrics;
+import org.geotools.data.korean.SequenceAllocator;
+import org.geotools.data.korean.WKBAttributeIO;
+import org.geotools.data.korean.WKBDecoder;
+import org.geotools.data.korean.WKBEncoder;
+import org.geotools.data.korean.WKBQuirks;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
 import org.geotools.jdbc.ColumnMetadata;
 import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.PrimaryKeyFinder;
 import org.geotools.referencing.CRS;
 import org.geotools.util.Version;
 import org.opengis.feature.simple.SimpleFeatureType;
@@ -55,9 +68,8 @@ import com.vividsolutions.jts.geom.MultiPoint;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.simplify.DouglasPeuckerSimplifier;
 import com.vividsolutions.jts.io.ParseException;
-import com.vividsolutions.jts.io.WKBReader;
-import com.vividsolutions.jts.io.WKTReader;
 
 public class KairosDialect extends BasicSQLDialect {
 
@@ -67,6 +79,25 @@ public class KairosDialect extends BasicSQLDialect {
 
     Version version;
 
+    final GeometryColumnsCache geometryColumns;
+
+    final ExtentCache extents = new ExtentCache();
+
+    final SequenceAllocator sequences;
+
+    final DeferredIndexBuilder deferredIndexes = new DeferredIndexBuilder();
+
+    boolean bulkLoadEnabled = false;
+
+    FeatureCache featureCache;
+
+    QueryMetrics queryMetrics;
+
+    boolean simplifyEnabled = true;
+
+    /** the simplification function of the server, "" if it has none, null until checked */
+    volatile String simplifyFunction;
+
     static Integer GEOM_POINT = Integer.valueOf(4000);
 
     static Integer GEOM_LINESTRING = Integer.valueOf(4001);
@@ -127,6 +158,10 @@ public class KairosDialect extends BasicSQLDialect {
 
     public KairosDialect(JDBCDataStore dataStore) {
         super(dataStore);
+        this.geometryColumns = new GeometryColumnsCache(dataStore,
+                GeometryColumnsCache.GEOMETRY_COLUMNS);
+        this.sequences = new SequenceAllocator(dataStore);
+        dataStore.getConnectionLifecycleListeners().add(extents);
     }
 
     public boolean isLooseBBOXEnabled() {
@@ -137,6 +172,19 @@ public class KairosDialect extends BasicSQLDialect {
         this.looseBBOXEnabled = looseBBOXEnabled;
     }
 
+    public boolean isSimplifyEnabled() {
+        return simplifyEnabled;
+    }
+
+    /**
+     * Enables simplifying the geometries when the query carries a simplification distance, as
+     * rendering queries do: on the server with ST_SIMPLIFY or ST_SNAPTOGRID, after reading when
+     * the server has neither
+     */
+    public void setSimplifyEnabled(boolean simplifyEnabled) {
+        this.simplifyEnabled = simplifyEnabled;
+    }
+
     public boolean isEstimatedExtentsEnabled() {
         return estimatedExtentsEnabled;
     }
@@ -145,6 +193,79 @@ public class KairosDialect extends BasicSQLDialect {
         this.estimatedExtentsEnabled = estimatedExtentsEnabled;
     }
 
+    /**
+     * Sets how long, in milliseconds, the optimized bounds of a table are cached. Zero or less
+     * disables the cache.
+     */
+    public void setExtentsTimeToLive(long timeToLive) {
+        extents.setTimeToLive(timeToLive);
+    }
+
+    /**
+     * Sets how long, in milliseconds, the geometry metadata of the tables is cached. Zero or less
+     * reads it again on every lookup.
+     */
+    public void setGeometryColumnsTimeToLive(long timeToLive) {
+        geometryColumns.setTimeToLive(timeToLive);
+    }
+
+    /**
+     * Sets the number of sequence values reserved per query, 1 or less reads one value per insert
+     */
+    public void setSequenceBlockSize(int blockSize) {
+        sequences.setBlockSize(blockSize);
+    }
+
+    public boolean isBulkLoadEnabled() {
+        return bulkLoadEnabled;
+    }
+
+    /**
+     * In bulk load mode the spatial index of a new table is built once its first load commits,
+     * instead of being maintained row by row during the load
+     */
+    public void setBulkLoadEnabled(boolean bulkLoadEnabled) {
+        this.bulkLoadEnabled = bulkLoadEnabled;
+        dataStore.getConnectionLifecycleListeners().remove(deferredIndexes);
+        if (bulkLoadEnabled) {
+            dataStore.getConnectionLifecycleListeners().add(deferredIndexes);
+        }
+    }
+
+    public DeferredIndexBuilder getDeferredIndexes() {
+        return deferredIndexes;
+    }
+
+    public FeatureCache getFeatureCache() {
+        return featureCache;
+    }
+
+    /**
+     * Sets the estimated size, in bytes, of the query results kept for
+     * {@link org.geotools.data.korean.TileCachedFeatureSource}. Zero or less disables the cache.
+     */
+    public void setFeatureCacheSize(long maxBytes) {
+        if (featureCache != null) {
+            dataStore.getConnectionLifecycleListeners().remove(featureCache);
+            featureCache = null;
+        }
+        if (maxBytes > 0) {
+            featureCache = new FeatureCache(maxBytes);
+            dataStore.getConnectionLifecycleListeners().add(featureCache);
+        }
+    }
+
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Records the size and decode time of the geometries read, null disables the recording
+     */
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return "distinct".equalsIgnoreCase(function);
@@ -153,6 +274,43 @@ public class KairosDialect extends BasicSQLDialect {
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
         super.initializeConnection(cx);
+        if (simplifyEnabled && simplifyFunction == null) {
+            simplifyFunction = findSimplifyFunction(cx);
+        }
+    }
+
+    /**
+     * Returns the first of ST_SIMPLIFY and ST_SNAPTOGRID the server can run, or "" if neither
+     */
+    String findSimplifyFunction(Connection cx) throws SQLException {
+        for (String function : new String[] { "ST_SIMPLIFY", "ST_SNAPTOGRID" }) {
+            Statement st = null;
+            ResultSet rs = null;
+            Savepoint savePoint = null;
+            try {
+                if (!cx.getAutoCommit()) {
+                    savePoint = cx.setSavepoint();
+                }
+                st = cx.createStatement();
+                rs = st.executeQuery("SELECT " + function
+                        + "(ST_GEOMFROMTEXT('LINESTRING(0 0, 1 1)'), 1) FROM DUAL");
+                return function;
+            } catch (SQLException e) {
+                if (savePoint != null) {
+                    cx.rollback(savePoint);
+                }
+                LOGGER.log(Level.FINE, function + " is not available", e);
+            } finally {
+                if (savePoint != null) {
+                    cx.releaseSavepoint(savePoint);
+                }
+                dataStore.closeSafe(rs);
+                dataStore.closeSafe(st);
+            }
+        }
+        LOGGER.info("No simplification function on the server, geometries are simplified "
+                + "after reading");
+        return "";
     }
 
     @Override
@@ -186,28 +344,110 @@ public class KairosDialect extends BasicSQLDialect {
         return (Geometry) reader.read(rs, column);
     }
 
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return simplify(decodeGeometryValue(descriptor, rs, column, factory, cx), descriptor,
+                hints);
+    }
+
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return simplify(decodeGeometryValue(descriptor, rs, column, factory, cx), descriptor,
+                hints);
+    }
+
+    /**
+     * Simplifies the geometry read when the server could not do it
+     */
+    Geometry simplify(Geometry geometry, GeometryDescriptor descriptor, Hints hints) {
+        String function = simplifyFunction;
+        if (geometry == null || (function != null && function.length() > 0)) {
+            return geometry;
+        }
+        double distance = getSimplificationDistance(descriptor, hints);
+        return distance > 0 ? DouglasPeuckerSimplifier.simplify(geometry, distance) : geometry;
+    }
+
     WKBAttributeIO getWKBReader(GeometryFactory factory) {
         WKBAttributeIO reader = wkbReader.get();
         if (reader == null) {
-            reader = new WKBAttributeIO(factory);
+            reader = new WKBAttributeIO(factory, WKBQuirks.KAIROS);
             wkbReader.set(reader);
         } else {
             reader.setGeometryFactory(factory);
         }
+        reader.setMetrics(queryMetrics);
         return reader;
     }
 
     @Override
     public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid, Hints hints,
             StringBuffer sql) {
-        sql.append(" ST_ASBINARY(");
-        encodeColumnName(prefix, gatt.getLocalName(), sql);
-        sql.append(")");
+        encodeSimplifiedColumn(gatt, prefix, getSimplificationDistance(gatt, hints), sql);
+    }
+
+    /**
+     * Called by the datastore instead of
+     * {@link #encodeGeometryColumn(GeometryDescriptor, String, int, Hints, StringBuffer)} when
+     * the query carries {@link Hints#GEOMETRY_SIMPLIFICATION}, as rendering queries do
+     */
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        encodeSimplifiedColumn(gatt, prefix,
+                simplifyEnabled && distance != null ? distance.doubleValue() : 0, sql);
+    }
+
+    void encodeSimplifiedColumn(GeometryDescriptor gatt, String prefix, double distance,
+            StringBuffer sql) {
+        String function = simplifyFunction;
+        if (distance > 0 && function != null && function.length() > 0) {
+            // ST_ASBINARY(ST_SIMPLIFY(geom, 0.5)), or ST_SNAPTOGRID on servers without it
+            sql.append(" ST_ASBINARY(").append(function).append("(");
+            encodeColumnName(prefix, gatt.getLocalName(), sql);
+            sql.append(", ").append(distance).append("))");
+        } else {
+            // simplified after reading, if at all
+            sql.append(" ST_ASBINARY(");
+            encodeColumnName(prefix, gatt.getLocalName(), sql);
+            sql.append(")");
+        }
+    }
+
+    /**
+     * Returns the simplification distance requested by the hints, or 0 if the geometry has to be
+     * read at full resolution. Points have nothing to simplify.
+     */
+    double getSimplificationDistance(GeometryDescriptor gatt, Hints hints) {
+        if (!simplifyEnabled || hints == null) {
+            return 0;
+        }
+
+        Class<?> binding = gatt.getType().getBinding();
+        if (Point.class.isAssignableFrom(binding) || MultiPoint.class.isAssignableFrom(binding)) {
+            return 0;
+        }
+
+        Object distance = hints.get(Hints.GEOMETRY_SIMPLIFICATION);
+        if (distance == null) {
+            distance = hints.get(Hints.GEOMETRY_DISTANCE);
+        }
+        return distance instanceof Number ? ((Number) distance).doubleValue() : 0;
+    }
+
+    @Override
+    public void addSupportedHints(Set<Hints.Key> hints) {
+        if (simplifyEnabled) {
+            hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+            hints.add(Hints.GEOMETRY_DISTANCE);
+        }
     }
 
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
-        sql.append(" ST_ASBINARY(ST_ENVELOPE(");  // ST_ASTEXT
+        sql.append(" ST_ASBINARY(ST_ENVELOPE(");
         encodeColumnName(null, geometryColumn, sql);
         sql.append("))");
     }
@@ -228,6 +468,12 @@ public class KairosDialect extends BasicSQLDialect {
 
         String tableName = featureType.getTypeName();
 
+        List<ReferencedEnvelope> cached = extents.get(schema, tableName);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = extents.getGeneration(schema, tableName);
+
         Statement st = null;
         ResultSet rs = null;
 
@@ -260,7 +506,8 @@ public class KairosDialect extends BasicSQLDialect {
                 byte[] bytes = rs.getBytes(1);
                 if (bytes != null) {
                     try {
-                        Geometry extGeom = new WKBReader().read(bytes);
+                        Geometry extGeom = new WKBDecoder(new GeometryFactory(),
+                                WKBQuirks.KAIROS).read(bytes);
                         CoordinateReferenceSystem crs = att.getCoordinateReferenceSystem();
 
                         // reproject and merge
@@ -285,22 +532,46 @@ public class KairosDialect extends BasicSQLDialect {
             dataStore.closeSafe(rs);
             dataStore.closeSafe(st);
         }
+        extents.put(schema, tableName, generation, result);
         return result;
     }
 
     @Override
     public Envelope decodeGeometryEnvelope(ResultSet rs, int column, Connection cx)
             throws SQLException, IOException {
-        try {
-            String envelope = rs.getString(column);
-            if (envelope != null) {
-                return new WKTReader().read(envelope).getEnvelopeInternal();
-            } else {
-                return new Envelope();
-            }
-        } catch (ParseException e) {
-            throw (IOException) new IOException("Error occurred parsing the bounds WKT")
-                    .initCause(e);
+        // the envelope is read straight from the WKB, without building the polygon
+        WKBAttributeIO reader = wkbReader.get();
+        if (reader == null) {
+            reader = getWKBReader(new GeometryFactory());
+        }
+        return reader.readEnvelope(rs, column);
+    }
+
+    @Override
+    public void onInsert(Statement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+        deferredIndexes.inserted(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+    }
+
+    @Override
+    public void onUpdate(Statement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+    }
+
+    @Override
+    public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+    }
+
+    void invalidateFeatures(Connection cx, SimpleFeatureType featureType) {
+        if (featureCache != null) {
+            featureCache.written(cx, featureType.getTypeName());
         }
     }
 
@@ -336,29 +607,9 @@ public class KairosDialect extends BasicSQLDialect {
         String columnName = columnMetaData.getString("COLUMN_NAME");
         String schemaName = columnMetaData.getString("TABLE_SCHEM");
 
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-
-        try {
-            String sqlStatement = "SELECT F_GEOMETRY_TYPE FROM " + gTableName + " WHERE " //
-                    + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                    + "AND F_TABLE_NAME = '" + tableName + "' " //
-                    + "AND " + gColumnName + " = '" + columnName + "'";
-
-            LOGGER.log(Level.FINE, "Geometry type check; {0} ", sqlStatement);
-            statement = cx.createStatement();
-            result = statement.executeQuery(sqlStatement);
-
-            if (result.next()) {
-                return result.getString(1);
-            }
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
-        }
-
-        return null;
+        GeometryColumnsCache.GeometryColumn column = geometryColumns.get(schemaName, tableName,
+                columnName, cx);
+        return column == null ? null : column.getGeometryType();
     }
 
     @Override
@@ -391,77 +642,36 @@ public class KairosDialect extends BasicSQLDialect {
     @Override
     public Integer getGeometrySRID(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-        Integer srid = null;
+        // geometry_columns is matched on table and column only
         try {
-            // try geometry_columns
-            try {
-                String sql = "SELECT SRID FROM GEOMETRY_COLUMNS WHERE " //
-                        + " F_TABLE_NAME = '" + tableName + "' " //
-                        + " AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                LOGGER.log(Level.FINE, "Geometry srid check; {0} ", sql);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sql);
-
-                if (result.next()) {
-                    srid = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            GeometryColumnsCache.GeometryColumn column = geometryColumns.get(null, tableName,
+                    columnName, cx);
+            if (column != null) {
+                return column.getSrid();
             }
-
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         }
-
-        return srid;
+        return null;
     }
 
     @Override
     public int getGeometryDimension(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-        int dimension = 2; // default
         try {
-            // try geometry_columns
-            try {
-                String sql = "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS WHERE " //
-                        + " F_TABLE_NAME = '" + tableName + "' " //
-                        + " AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                LOGGER.log(Level.FINE, "Geometry srid check; {0} ", sql);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sql);
-
-                if (result.next()) {
-                    dimension = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            GeometryColumnsCache.GeometryColumn column = geometryColumns.get(null, tableName,
+                    columnName, cx);
+            if (column != null) {
+                return column.getDimension();
             }
-
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         }
-
-        return dimension;
+        return 2; // default
     }
 
     @Override
@@ -497,27 +707,13 @@ public class KairosDialect extends BasicSQLDialect {
     @Override
     public Object getNextSequenceValue(String schemaName, String sequenceName, Connection cx)
             throws SQLException {
-        Statement st = cx.createStatement();
-        try {
-            // SELECT seq_building_fid.NEXTVAL FROM DUAL;
-            String sql = "SELECT \"" + sequenceName + "\".NEXTVAL FROM DUAL";
-
-            dataStore.getLogger().fine(sql);
-            ResultSet rs = st.executeQuery(sql);
-            try {
-                if (rs.next()) {
-                    return rs.getLong(1);
-                } else {
-                    LOGGER.log(Level.WARNING, "Failed to retrieve sequence from " + sequenceName);
-                }
-            } finally {
-                dataStore.closeSafe(rs);
-            }
-        } finally {
-            dataStore.closeSafe(st);
+        // values are reserved in blocks, one query serves many inserts
+        Long value = sequences.next(schemaName, sequenceName, cx);
+        if (value == null) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve sequence from " + sequenceName);
+            return 0;
         }
-
-        return 0;
+        return value;
     }
 
     @Override
@@ -653,6 +849,7 @@ public class KairosDialect extends BasicSQLDialect {
     public void postCreateTable(String schemaName, SimpleFeatureType featureType, Connection cx)
             throws SQLException {
         String tableName = featureType.getTypeName();
+        invalidatePrimaryKey(schemaName, tableName);
 
         Statement st = null;
         try {
@@ -713,6 +910,8 @@ public class KairosDialect extends BasicSQLDialect {
                             + "'" + geomType + "')";
                     LOGGER.fine(sql);
                     st.execute(sql);
+                    geometryColumns.put(new GeometryColumnsCache.GeometryColumn(schemaName,
+                            tableName, gd.getLocalName(), srid, dimensions, geomType));
 
                     // add the spatial index
                     // Kairos: CREATE [UNIQUE] [RSTREE] INDEX IndexName ON TableName (GeoColName)
@@ -723,8 +922,12 @@ public class KairosDialect extends BasicSQLDialect {
                             + "\"" + tableName + "\"" //
                             + " (" //
                             + "\"" + gd.getLocalName() + "\")";
-                    LOGGER.fine(sql);
-                    st.execute(sql);
+                    if (bulkLoadEnabled) {
+                        deferredIndexes.defer(schemaName, tableName, sql);
+                    } else {
+                        LOGGER.fine(sql);
+                        st.execute(sql);
+                    }
 
                     // create sequence
                     String sequenceName = getSequenceForColumn(schemaName, tableName, "fid", cx);
@@ -762,11 +965,25 @@ public class KairosDialect extends BasicSQLDialect {
                     + "' AND F_TABLE_SCHEMA = '" + schemaName + "'";
             LOGGER.fine(sql);
             st.execute(sql);
+            geometryColumns.removeTable(schemaName, tableName);
+            extents.invalidate(schemaName, tableName);
+            deferredIndexes.remove(schemaName, tableName);
+            if (featureCache != null) {
+                featureCache.invalidate(tableName);
+            }
+            invalidatePrimaryKey(schemaName, tableName);
         } finally {
             dataStore.closeSafe(st);
         }
     }
 
+    void invalidatePrimaryKey(String schemaName, String tableName) {
+        PrimaryKeyFinder finder = dataStore.getPrimaryKeyFinder();
+        if (finder instanceof CatalogPrimaryKeyFinder) {
+            ((CatalogPrimaryKeyFinder) finder).invalidate(schemaName, tableName);
+        }
+    }
+
     @Override
     public void encodeGeometryValue(Geometry value, int dimension, int srid, StringBuffer sql)
             throws IOException {
@@ -779,8 +996,10 @@ public class KairosDialect extends BasicSQLDialect {
                         ((LinearRing) value).getCoordinateSequence());
             }
 
-            // KAIROS ERROR: ERROR(43003) WKT string is too long. Max length is 4KB
-            sql.append("ST_GeomFromText('" + value.toText() + "', " + srid + ")");
+            // WKT is limited to 4KB (ERROR 43003), hex WKB is not
+            sql.append("ST_GeomFromWKB(");
+            new WKBEncoder(dimension, WKBQuirks.KAIROS).encodeHex(value, sql);
+            sql.append(", " + srid + ")");
         }
     }
 
@@ -24,8 +24,13 @@ import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.Transaction;
+import org.geotools.data.korean.BatchingDataSource;
+import org.geotools.data.korean.DeferredIndexDataSource;
+import org.geotools.data.korean.MetricsDataSource;
+import org.geotools.data.korean.QueryMetrics;
 import org.geotools.jdbc.JDBCDataStore;
 import org.geotools.jdbc.JDBCDataStoreFactory;
+import org.geotools.jdbc.JDBCJNDIDataStoreFactory;
 import org.geotools.jdbc.SQLDialect;
 import org.geotools.util.Version;
 import org.geotools.util.logging.Logging;
@@ -56,19 +61,67 @@ public class KairosNGDataStoreFactory extends JDBCDataStoreFactory {
     /** parameter for database user */
     public static final Param USER = new Param("user", String.class, "User", true, "root");
 
+    /** rows read per round trip when the fetch size parameter is not set */
+    static final int DEFAULT_FETCH_SIZE = 1000;
+
     /** enables using && in bbox queries */
     public static final Param LOOSEBBOX = new Param("Loose bbox", Boolean.class,
             "Perform only primary filter on bbox", false, Boolean.TRUE);
 
+    /** enables simplifying the geometries of rendering queries on the server */
+    public static final Param SIMPLIFY = new Param("Support on the fly geometry simplification",
+            Boolean.class, "When enabled, operations such as map rendering will pass a hint that "
+                    + "will enable the usage of ST_Simplify", false, Boolean.TRUE);
+
     /** parameter that enables estimated extends instead of exact ones */
     public static final Param ESTIMATED_EXTENTS = new Param("Estimated extends", Boolean.class,
             "Use the spatial index information to quickly get an estimate of the data bounds",
             false, Boolean.FALSE);
 
+    /** parameter for the time the estimated extent of a table is cached */
+    public static final Param EXTENTS_CACHE_TTL = new Param("Extents cache ttl", Integer.class,
+            "Seconds the estimated extent of a table is cached, 0 disables the cache", false,
+            Integer.valueOf(300));
+
+    /** parameter for the time the geometry metadata is cached */
+    public static final Param GEOMETRY_COLUMNS_CACHE_TTL = new Param("Geometry columns cache ttl",
+            Integer.class, "Seconds the geometry metadata of the tables is cached, 0 reads it "
+                    + "on every lookup", false, Integer.valueOf(300));
+
+    /** parameter for the number of sequence values reserved per query */
+    public static final Param SEQUENCE_BLOCK_SIZE = new Param("Sequence block size",
+            Integer.class, "Number of sequence values reserved per query, 1 reads one per insert",
+            false, Integer.valueOf(100));
+
+    /** parameter that defers the spatial index of new tables until their first load */
+    public static final Param BULK_LOAD = new Param("Bulk load", Boolean.class,
+            "Build the spatial index of new tables once their first load commits, or when the "
+                    + "datastore is disposed", false, Boolean.FALSE);
+
+    /**
+     * parameter for the size of the query result cache, only used by the feature sources wrapped
+     * with {@link org.geotools.data.korean.TileCachedFeatureSource#wrap}
+     */
+    public static final Param FEATURE_CACHE_SIZE = new Param("Feature cache size",
+            Integer.class, "Megabytes of query results cached for repeated tiles, 0 disables the "
+                    + "cache. Only used by the feature sources wrapped with "
+                    + "TileCachedFeatureSource.wrap, the plain feature sources always read the "
+                    + "database", false, Integer.valueOf(0));
+
+    /** parameter that times the queries and publishes the timings through JMX */
+    public static final Param QUERY_METRICS = new Param("Query metrics", Boolean.class,
+            "Record the query timings per table and publish them as JMX MBeans", false,
+            Boolean.FALSE);
+
     /** Whether a prepared statements based dialect should be used, or not */
     public static final Param PREPARED_STATEMENTS = new Param("preparedStatements", Boolean.class,
             "Use prepared statements", false, Boolean.TRUE);
 
+    /** Number of inserts sent in one JDBC batch by the prepared statements dialect */
+    public static final Param BATCH_INSERT_SIZE = new Param("Batch insert size", Integer.class,
+            "Number of inserts sent to the database in one batch when using prepared "
+                    + "statements, 1 sends one insert at a time", false, Integer.valueOf(1));
+
     @Override
     protected SQLDialect createSQLDialect(JDBCDataStore dataStore) {
         return new KairosDialect(dataStore);
@@ -128,19 +181,74 @@ public class KairosNGDataStoreFactory extends JDBCDataStoreFactory {
             dataStore.setDatabaseSchema((String) USER.lookUp(params));
         }
 
+        // read features in blocks, the driver default is a few rows per round trip
+        if (dataStore.getFetchSize() <= 0) {
+            dataStore.setFetchSize(DEFAULT_FETCH_SIZE);
+        }
+
         // setup loose bbox
         KairosDialect dialect = (KairosDialect) dataStore.getSQLDialect();
         Boolean loose = (Boolean) LOOSEBBOX.lookUp(params);
         dialect.setLooseBBOXEnabled(loose == null || Boolean.TRUE.equals(loose));
 
+        // setup the geometry simplification
+        Boolean simplify = (Boolean) SIMPLIFY.lookUp(params);
+        dialect.setSimplifyEnabled(simplify == null || Boolean.TRUE.equals(simplify));
+
         // check the estimated extents
         Boolean estimated = (Boolean) ESTIMATED_EXTENTS.lookUp(params);
         dialect.setEstimatedExtentsEnabled(estimated == null || Boolean.TRUE.equals(estimated));
+        Integer extentsTTL = (Integer) EXTENTS_CACHE_TTL.lookUp(params);
+        if (extentsTTL != null) {
+            dialect.setExtentsTimeToLive(extentsTTL.intValue() * 1000L);
+        }
+
+        // geometry metadata cache
+        Integer geometryColumnsTTL = (Integer) GEOMETRY_COLUMNS_CACHE_TTL.lookUp(params);
+        if (geometryColumnsTTL != null) {
+            dialect.setGeometryColumnsTimeToLive(geometryColumnsTTL.intValue() * 1000L);
+        }
+
+        // sequence values reserved per query
+        Integer blockSize = (Integer) SEQUENCE_BLOCK_SIZE.lookUp(params);
+        if (blockSize != null) {
+            dialect.setSequenceBlockSize(blockSize.intValue());
+        }
+
+        // defer the spatial index of new tables
+        Boolean bulkLoad = (Boolean) BULK_LOAD.lookUp(params);
+        if (bulkLoad != null && Boolean.TRUE.equals(bulkLoad)) {
+            dialect.setBulkLoadEnabled(true);
+            dataStore.setDataSource(new DeferredIndexDataSource(dataStore.getDataSource(),
+                    dataStore, dialect.getDeferredIndexes()));
+        }
+
+        // cache the results of repeated queries
+        Integer cacheSize = (Integer) FEATURE_CACHE_SIZE.lookUp(params);
+        if (cacheSize != null) {
+            dialect.setFeatureCacheSize(cacheSize.intValue() * 1024L * 1024L);
+        }
+
+        // time the queries, the batched inserts included
+        Boolean queryMetrics = (Boolean) QUERY_METRICS.lookUp(params);
+        if (queryMetrics != null && Boolean.TRUE.equals(queryMetrics)) {
+            QueryMetrics metrics = new QueryMetrics();
+            metrics.register(getMetricsName(dataStore, params));
+            dialect.setQueryMetrics(metrics);
+            dataStore.setDataSource(new MetricsDataSource(dataStore.getDataSource(), metrics));
+        }
 
         // setup the ps dialect if need be
         Boolean usePs = (Boolean) PREPARED_STATEMENTS.lookUp(params);
         if (usePs != null && Boolean.TRUE.equals(usePs)) {
             dataStore.setSQLDialect(new KairosPSDialect(dataStore, dialect));
+
+            // batch the inserts of the prepared statements
+            Integer batchSize = (Integer) BATCH_INSERT_SIZE.lookUp(params);
+            if (batchSize != null && batchSize.intValue() > 1) {
+                dataStore.setDataSource(new BatchingDataSource(dataStore.getDataSource(),
+                        batchSize.intValue()));
+            }
         }
 
         // primary key finder
@@ -173,6 +281,14 @@ public class KairosNGDataStoreFactory extends JDBCDataStoreFactory {
         parameters.put(NAMESPACE.key, NAMESPACE);
         parameters.put(EXPOSE_PK.key, EXPOSE_PK);
         parameters.put(PREPARED_STATEMENTS.key, PREPARED_STATEMENTS);
+        parameters.put(BATCH_INSERT_SIZE.key, BATCH_INSERT_SIZE);
+        parameters.put(SIMPLIFY.key, SIMPLIFY);
+        parameters.put(EXTENTS_CACHE_TTL.key, EXTENTS_CACHE_TTL);
+        parameters.put(GEOMETRY_COLUMNS_CACHE_TTL.key, GEOMETRY_COLUMNS_CACHE_TTL);
+        parameters.put(SEQUENCE_BLOCK_SIZE.key, SEQUENCE_BLOCK_SIZE);
+        parameters.put(BULK_LOAD.key, BULK_LOAD);
+        parameters.put(FEATURE_CACHE_SIZE.key, FEATURE_CACHE_SIZE);
+        parameters.put(QUERY_METRICS.key, QUERY_METRICS);
         parameters.put(MAXCONN.key, MAXCONN);
         parameters.put(MINCONN.key, MINCONN);
         parameters.put(FETCHSIZE.key, FETCHSIZE);
@@ -198,6 +314,22 @@ public class KairosNGDataStoreFactory extends JDBCDataStoreFactory {
         }
     }
 
+    /**
+     * The name of the metrics MBeans: the JNDI name or the JDBC url of the database, and the schema
+     */
+    @SuppressWarnings("unchecked")
+    String getMetricsName(JDBCDataStore dataStore, Map params) throws IOException {
+        // the JNDI parameters have no host nor port to build the url from
+        String name = (String) JDBCJNDIDataStoreFactory.JNDI_REFNAME.lookUp(params);
+        if (name == null && params.get(HOST.key) != null && params.get(PORT.key) != null) {
+            name = getJDBCUrl(params);
+        }
+        if (name == null) {
+            name = dataStore.getNamespaceURI();
+        }
+        return name + "/" + dataStore.getDatabaseSchema();
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     protected String getJDBCUrl(Map params) throws IOException {
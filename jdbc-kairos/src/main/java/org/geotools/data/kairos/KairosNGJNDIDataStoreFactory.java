@@ -33,8 +33,11 @@ public class KairosNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         super.setupParameters(parameters);
 
         parameters.put(KairosNGDataStoreFactory.LOOSEBBOX.key, KairosNGDataStoreFactory.LOOSEBBOX);
+        parameters.put(KairosNGDataStoreFactory.SIMPLIFY.key, KairosNGDataStoreFactory.SIMPLIFY);
         parameters.put(KairosNGDataStoreFactory.PREPARED_STATEMENTS.key,
                 KairosNGDataStoreFactory.PREPARED_STATEMENTS);
+        parameters.put(KairosNGDataStoreFactory.BATCH_INSERT_SIZE.key,
+                KairosNGDataStoreFactory.BATCH_INSERT_SIZE);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
     }
 }
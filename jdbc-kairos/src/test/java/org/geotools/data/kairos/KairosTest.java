@@ -20,6 +20,8 @@ import org.geotools.data.DefaultTransaction;
 import org.geotools.data.FeatureWriter;
 import org.geotools.data.Query;
 import org.geotools.data.Transaction;
+import org.geotools.data.korean.WKBDecoder;
+import org.geotools.data.korean.WKBQuirks;
 import org.geotools.data.simple.SimpleFeatureIterator;
 import org.geotools.data.simple.SimpleFeatureSource;
 import org.geotools.data.simple.SimpleFeatureStore;
@@ -35,6 +37,7 @@ import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.NoSuchAuthorityCodeException;
 
 import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.io.ByteOrderValues;
 import com.vividsolutions.jts.io.ParseException;
 import com.vividsolutions.jts.io.WKBWriter;
@@ -148,7 +151,7 @@ public class KairosTest {
             byte[] wkbBytes = rs.getBytes(1);
             Geometry geom;
             try {
-                geom = new WKBReader().read(wkbBytes);
+                geom = new WKBDecoder(new GeometryFactory(), WKBQuirks.KAIROS).read(wkbBytes);
                 System.out.println(geom.getGeometryType() + " = " + geom.getArea());
             } catch (ParseException e) {
                 e.printStackTrace();
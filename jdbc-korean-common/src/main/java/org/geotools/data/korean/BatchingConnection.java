@@ -0,0 +1,295 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Connection handler of {@link BatchingDataSource}: batches the executions of a prepared INSERT
+ * statement and executes the batch before any other use of the connection.
+ * <p>
+ * The other statements are wrapped too and execute the batch before each of their executions, so
+ * a failing row is reported by the next statement run on the connection, not by a later
+ * unrelated call.
+ */
+class BatchingConnection implements InvocationHandler {
+    protected static final Logger LOGGER = Logging.getLogger(BatchingConnection.class);
+
+    /** connection methods that neither read nor write data, the batch is left pending */
+    static final Set<String> PASSIVE = new HashSet<String>(Arrays.asList("isClosed",
+            "isReadOnly", "getTransactionIsolation", "getWarnings", "clearWarnings", "getCatalog",
+            "getSchema", "getHoldability", "isValid", "unwrap", "isWrapperFor"));
+
+    /** connection methods creating statements, wrapped to execute the batch before their own */
+    static final Set<String> STATEMENTS = new HashSet<String>(Arrays.asList("createStatement",
+            "prepareStatement", "prepareCall"));
+
+    final Connection cx;
+
+    final int batchSize;
+
+    /** the SQL and the statement being batched */
+    String sql;
+
+    PreparedStatement batch;
+
+    /** the values bound to each pending row, for error reporting */
+    final List<Object[]> rows = new ArrayList<Object[]>();
+
+    Object[] values = new Object[0];
+
+    BatchingConnection(Connection cx, int batchSize) {
+        this.cx = cx;
+        this.batchSize = batchSize;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("toString".equals(name)) {
+            return "BatchingConnection[" + cx + "]";
+        }
+
+        if ("prepareStatement".equals(name) && args.length == 1 && isInsert((String) args[0])) {
+            String insert = (String) args[0];
+            if (!insert.equals(sql)) {
+                closeBatch();
+                batch = cx.prepareStatement(insert);
+                sql = insert;
+            }
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { PreparedStatement.class },
+                    new BatchingStatement(proxy, insert));
+        }
+
+        if ("close".equals(name)) {
+            try {
+                closeBatch();
+            } finally {
+                cx.close();
+            }
+            return null;
+        } else if (!PASSIVE.contains(name)) {
+            // anything else may read the pending rows or end the transaction
+            flush();
+        }
+
+        Object result = forward(cx, method, args);
+        if (STATEMENTS.contains(name) && result != null) {
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { method.getReturnType() }, new FlushingStatement(proxy,
+                            result));
+        }
+        return result;
+    }
+
+    static boolean isInsert(String sql) {
+        return sql.trim().regionMatches(true, 0, "INSERT", 0, 6);
+    }
+
+    /**
+     * Executes the pending rows
+     */
+    void flush() throws SQLException {
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        try {
+            batch.executeBatch();
+        } catch (BatchUpdateException e) {
+            throw failure(e);
+        } finally {
+            rows.clear();
+        }
+    }
+
+    void closeBatch() throws SQLException {
+        flush();
+        if (batch != null) {
+            try {
+                batch.close();
+            } catch (SQLException e) {
+                LOGGER.log(Level.FINE, "Error closing the batched statement", e);
+            }
+            batch = null;
+            sql = null;
+        }
+    }
+
+    /**
+     * Maps the failure back to the row of the batch, the first one reported as failed or, for
+     * drivers stopping at the first error, the one after the last executed
+     */
+    SQLException failure(BatchUpdateException e) {
+        int[] counts = e.getUpdateCounts();
+        int failed = counts == null ? 0 : counts.length;
+        if (counts != null) {
+            for (int i = 0; i < counts.length; i++) {
+                if (counts[i] == Statement.EXECUTE_FAILED) {
+                    failed = i;
+                    break;
+                }
+            }
+        }
+        if (failed >= rows.size()) {
+            failed = rows.size() - 1;
+        }
+
+        StringBuilder sb = new StringBuilder("Batched insert failed on row ");
+        sb.append(failed + 1).append(" of ").append(rows.size()).append(", values (");
+        Object[] row = rows.get(failed);
+        for (int i = 1; i < row.length; i++) {
+            if (i > 1) {
+                sb.append(", ");
+            }
+            Object value = row[i];
+            if (value instanceof byte[]) {
+                sb.append("byte[").append(((byte[]) value).length).append("]");
+            } else {
+                sb.append(value);
+            }
+        }
+        sb.append("): ").append(e.getMessage());
+        return new SQLException(sb.toString(), e.getSQLState(), e.getErrorCode(), e);
+    }
+
+    static Object forward(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+
+    /**
+     * Any other statement of the connection: executes the pending rows before its own executions,
+     * since the rows may have been batched after the statement was created
+     */
+    class FlushingStatement implements InvocationHandler {
+        final Object connection;
+
+        final Object statement;
+
+        FlushingStatement(Object connection, Object statement) {
+            this.connection = connection;
+            this.statement = statement;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name)) {
+                return "FlushingStatement[" + statement + "]";
+            } else if ("getConnection".equals(name)) {
+                return connection;
+            } else if (name.startsWith("execute")) {
+                flush();
+            }
+            return forward(statement, method, args);
+        }
+    }
+
+    /**
+     * The INSERT statement handed to the datastore: execute() adds a row to the batch and close()
+     * keeps the statement for the next feature
+     */
+    class BatchingStatement implements InvocationHandler {
+        final Object connection;
+
+        final String insert;
+
+        boolean closed;
+
+        BatchingStatement(Object connection, String insert) {
+            this.connection = connection;
+            this.insert = insert;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name)) {
+                return "BatchingStatement[" + insert + "]";
+            } else if ("close".equals(name)) {
+                closed = true;
+                return null;
+            } else if ("isClosed".equals(name)) {
+                return closed;
+            } else if ("getConnection".equals(name)) {
+                return connection;
+            }
+
+            if (closed || !insert.equals(sql)) {
+                throw new SQLException("Statement is closed");
+            }
+
+            if (name.startsWith("set") && args != null && args.length >= 2
+                    && args[0] instanceof Integer) {
+                bind(((Integer) args[0]).intValue(), name.equals("setNull") ? null : args[1]);
+            } else if ("clearParameters".equals(name)) {
+                values = new Object[values.length];
+            } else if (("execute".equals(name) || "executeUpdate".equals(name))
+                    && (args == null || args.length == 0)) {
+                batch.addBatch();
+                rows.add(values);
+                values = new Object[values.length];
+                if (rows.size() >= batchSize) {
+                    flush();
+                }
+                return "execute".equals(name) ? Boolean.FALSE : Integer.valueOf(1);
+            } else {
+                // generated keys, update counts and the like need the rows executed
+                flush();
+            }
+            return forward(batch, method, args);
+        }
+
+        void bind(int index, Object value) {
+            if (index >= values.length) {
+                values = Arrays.copyOf(values, index + 1);
+            }
+            values[index] = value;
+        }
+    }
+}
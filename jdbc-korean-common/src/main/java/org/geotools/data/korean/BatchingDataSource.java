@@ -0,0 +1,121 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.geotools.data.jdbc.datasource.ManageableDataSource;
+
+/**
+ * Wraps the datastore connection pool so that prepared INSERT statements are sent with
+ * addBatch/executeBatch instead of one round trip per feature.
+ * <p>
+ * The JDBC datastore prepares, executes and closes one INSERT statement per feature. The
+ * connections returned here keep the statement open while the same SQL is prepared again and turn
+ * execute() into addBatch(). The batch is executed when it is full and before any other use of
+ * the connection (other statements, commit, rollback, close), so the pending rows are always
+ * visible to the next statement and part of the transaction.
+ * <p>
+ * A failing batch throws an SQLException naming the row of the batch and the values bound to it,
+ * the primary key among them.
+ * <p>
+ * Closing this data source closes the wrapped pool, if it is a {@link ManageableDataSource}, so
+ * that the datastore still releases it on dispose.
+ */
+public class BatchingDataSource implements ManageableDataSource {
+
+    final DataSource delegate;
+
+    final int batchSize;
+
+    public BatchingDataSource(DataSource delegate, int batchSize) {
+        this.delegate = delegate;
+        this.batchSize = batchSize;
+    }
+
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    public int getBatchSize() {
+        return batchSize;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return wrap(delegate.getConnection());
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        return wrap(delegate.getConnection(username, password));
+    }
+
+    Connection wrap(Connection cx) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, new BatchingConnection(cx, batchSize));
+    }
+
+    public void close() throws SQLException {
+        if (delegate instanceof ManageableDataSource) {
+            ((ManageableDataSource) delegate).close();
+        }
+    }
+
+    public String getDescription() {
+        if (delegate instanceof ManageableDataSource) {
+            return ((ManageableDataSource) delegate).getDescription();
+        }
+        return null;
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(delegate)) {
+            return iface.cast(delegate);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+}
@@ -0,0 +1,333 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.jdbc.AutoGeneratedPrimaryKeyColumn;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.NonIncrementingPrimaryKeyColumn;
+import org.geotools.jdbc.PrimaryKey;
+import org.geotools.jdbc.PrimaryKeyColumn;
+import org.geotools.jdbc.PrimaryKeyFinder;
+import org.geotools.jdbc.SequencedPrimaryKeyColumn;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Primary key finder reading the key columns from the system catalog, with the keys cached per
+ * datastore.
+ * <p>
+ * The first lookup in a schema reads the key columns of all its tables with one catalog query and
+ * the types of those columns with one metadata call, instead of a catalog query and a metadata
+ * call per table. The resolved keys are kept until the table is created or dropped through the
+ * datastore or {@link #invalidate()} is called, so rebuilding the feature types does not read the
+ * catalog again. A table missing from the schema load, created since then or without a key, is
+ * read on its own.
+ */
+public abstract class CatalogPrimaryKeyFinder extends PrimaryKeyFinder {
+    protected static final Logger LOGGER = Logging.getLogger(CatalogPrimaryKeyFinder.class);
+
+    /** schemas whose key columns have been loaded */
+    final Set<String> schemas = new HashSet<String>();
+
+    /** schema.table -> key columns of the loaded schemas, until the table key is resolved */
+    final Map<String, List<String>> keyColumns = new HashMap<String, List<String>>();
+
+    /** schema.table.column -> type of the key columns of the loaded schemas */
+    final Map<String, Class<?>> columnTypes = new HashMap<String, Class<?>>();
+
+    /** schema.table -> resolved primary key, null for the tables without one */
+    final Map<String, PrimaryKey> keys = new HashMap<String, PrimaryKey>();
+
+    /**
+     * The catalog query returning the table name and the column name of the key columns, in key
+     * order within each table.
+     *
+     * @param tableName the table to read, or null for all the tables of the schema
+     */
+    protected abstract String selectKeyColumns(String databaseSchema, String tableName);
+
+    @Override
+    public synchronized PrimaryKey getPrimaryKey(JDBCDataStore store, String databaseSchema,
+            String tableName, Connection cx) throws SQLException {
+        String key = key(databaseSchema, tableName);
+        if (keys.containsKey(key)) {
+            return keys.get(key);
+        }
+
+        if (!schemas.contains(databaseSchema)) {
+            loadSchema(store, databaseSchema, cx);
+        }
+
+        List<String> columns = keyColumns.remove(key);
+        if (columns == null) {
+            columns = readKeyColumns(store, databaseSchema, tableName, cx);
+        }
+
+        PrimaryKey primaryKey = createPrimaryKey(store, columns, databaseSchema, tableName, cx);
+        keys.put(key, primaryKey);
+        return primaryKey;
+    }
+
+    /**
+     * Forgets the key of the table, called when the table is created or dropped
+     */
+    public synchronized void invalidate(String databaseSchema, String tableName) {
+        String key = key(databaseSchema, tableName);
+        keys.remove(key);
+        keyColumns.remove(key);
+        String prefix = key + '\u0000';
+        for (Iterator<String> it = columnTypes.keySet().iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Forgets all the keys, for tables changed outside the datastore
+     */
+    public synchronized void invalidate() {
+        schemas.clear();
+        keyColumns.clear();
+        columnTypes.clear();
+        keys.clear();
+    }
+
+    void loadSchema(JDBCDataStore store, String databaseSchema, Connection cx) {
+        // a failed load leaves the tables to be read one by one
+        schemas.add(databaseSchema);
+
+        Statement st = null;
+        ResultSet rs = null;
+        Savepoint savePoint = null;
+        try {
+            st = cx.createStatement();
+            if (!cx.getAutoCommit()) {
+                savePoint = cx.setSavepoint();
+            }
+
+            long start = System.currentTimeMillis();
+            String sql = selectKeyColumns(databaseSchema, null);
+            LOGGER.log(Level.FINE, "Loading the primary keys of the schema: {0}", sql);
+            rs = st.executeQuery(sql);
+            Map<String, List<String>> tables = new LinkedHashMap<String, List<String>>();
+            while (rs.next()) {
+                String tableName = rs.getString(1);
+                String columnName = rs.getString(2);
+                if (tableName == null || columnName == null) {
+                    continue;
+                }
+
+                String key = key(databaseSchema, tableName);
+                List<String> columns = tables.get(key);
+                if (columns == null) {
+                    columns = new ArrayList<String>();
+                    tables.put(key, columns);
+                }
+                columns.add(columnName);
+            }
+            store.closeSafe(rs);
+            rs = null;
+
+            if (!tables.isEmpty()) {
+                loadColumnTypes(store, databaseSchema, tables, cx);
+            }
+            keyColumns.putAll(tables);
+
+            LOGGER.fine("Loaded the primary keys of " + tables.size() + " tables of "
+                    + databaseSchema + " in " + (System.currentTimeMillis() - start) + " ms");
+        } catch (SQLException e) {
+            if (savePoint != null) {
+                try {
+                    cx.rollback(savePoint);
+                } catch (SQLException re) {
+                    LOGGER.log(Level.FINE, "Failed to roll back to the savepoint", re);
+                }
+            }
+            LOGGER.log(Level.WARNING, "Failed to load the primary keys of " + databaseSchema
+                    + ", reading them table by table", e);
+        } finally {
+            if (savePoint != null) {
+                try {
+                    cx.releaseSavepoint(savePoint);
+                } catch (SQLException e) {
+                    LOGGER.log(Level.FINE, "Failed to release the savepoint", e);
+                }
+            }
+            store.closeSafe(rs);
+            store.closeSafe(st);
+        }
+    }
+
+    void loadColumnTypes(JDBCDataStore store, String databaseSchema,
+            Map<String, List<String>> tables, Connection cx) throws SQLException {
+        DatabaseMetaData metaData = cx.getMetaData();
+        ResultSet columns = metaData.getColumns(null, databaseSchema, "%", "%");
+        try {
+            while (columns.next()) {
+                String key = key(databaseSchema, columns.getString("TABLE_NAME"));
+                String columnName = columns.getString("COLUMN_NAME");
+                List<String> names = tables.get(key);
+                if (names != null && names.contains(columnName)) {
+                    columnTypes.put(key + '\u0000' + columnName, getColumnType(store, columns,
+                            cx));
+                }
+            }
+        } finally {
+            store.closeSafe(columns);
+        }
+    }
+
+    List<String> readKeyColumns(JDBCDataStore store, String databaseSchema, String tableName,
+            Connection cx) throws SQLException {
+        List<String> columns = new ArrayList<String>();
+        Statement st = null;
+        ResultSet rs = null;
+        try {
+            st = cx.createStatement();
+            String sql = selectKeyColumns(databaseSchema, tableName);
+            LOGGER.log(Level.FINE, "Grabbing table pk columns: {0}", sql);
+            rs = st.executeQuery(sql);
+            while (rs.next()) {
+                String columnName = rs.getString(2);
+                if (columnName != null) {
+                    columns.add(columnName);
+                }
+            }
+        } finally {
+            store.closeSafe(rs);
+            store.closeSafe(st);
+        }
+        return columns;
+    }
+
+    PrimaryKey createPrimaryKey(JDBCDataStore store, List<String> columns, String databaseSchema,
+            String tableName, Connection cx) throws SQLException {
+        ArrayList<PrimaryKeyColumn> cols = new ArrayList<PrimaryKeyColumn>();
+
+        for (String columnName : columns) {
+            Class<?> columnType = columnTypes.remove(key(databaseSchema, tableName) + '\u0000'
+                    + columnName);
+            if (columnType == null) {
+                // look up the type ( should only be one row )
+                ResultSet rs = cx.getMetaData().getColumns(null, databaseSchema, tableName,
+                        columnName);
+                try {
+                    rs.next();
+                    columnType = getColumnType(store, rs, cx);
+                } finally {
+                    store.closeSafe(rs);
+                }
+            }
+
+            // determine which type of primary key we have
+            PrimaryKeyColumn col = null;
+
+            // 1. Auto Incrementing?
+            Statement st = cx.createStatement();
+            try {
+                // not actually going to get data
+                st.setFetchSize(1);
+
+                StringBuffer sql = new StringBuffer();
+                sql.append("SELECT ");
+                store.getSQLDialect().encodeColumnName(null, columnName, sql);
+                sql.append(" FROM ");
+                store.getSQLDialect().encodeTableName(databaseSchema, sql);
+                sql.append(".");
+                store.getSQLDialect().encodeTableName(tableName, sql);
+
+                sql.append(" WHERE 0=1");
+
+                LOGGER.log(Level.FINE, "Grabbing table pk metadata: {0}", sql);
+
+                ResultSet rs = st.executeQuery(sql.toString());
+
+                try {
+                    if (rs.getMetaData().isAutoIncrement(1)) {
+                        col = new AutoGeneratedPrimaryKeyColumn(columnName, columnType);
+                    }
+                } finally {
+                    store.closeSafe(rs);
+                }
+            } finally {
+                store.closeSafe(st);
+            }
+
+            // 2. Has a sequence?
+            if (col == null) {
+                try {
+                    String sequenceName = store.getSQLDialect().getSequenceForColumn(
+                            databaseSchema, tableName, columnName, cx);
+                    if (sequenceName != null) {
+                        col = new SequencedPrimaryKeyColumn(columnName, columnType, sequenceName);
+                    }
+                } catch (Exception e) {
+                    // log the exception , and continue on
+                    LOGGER.log(Level.WARNING, "Error occured determining sequence for "
+                            + columnName + ", " + tableName, e);
+                }
+            }
+
+            if (col == null) {
+                col = new NonIncrementingPrimaryKeyColumn(columnName, columnType);
+            }
+
+            cols.add(col);
+        }
+
+        if (!cols.isEmpty()) {
+            return new PrimaryKey(tableName, cols);
+        }
+
+        return null;
+    }
+
+    Class<?> getColumnType(JDBCDataStore store, ResultSet columns, Connection cx)
+            throws SQLException {
+        Class<?> columnType = store.getSQLDialect().getMapping(columns, cx);
+        if (columnType == null) {
+            int binding = columns.getInt("DATA_TYPE");
+            columnType = store.getMapping(binding);
+            if (columnType == null) {
+                LOGGER.warning("No class for sql type " + binding);
+                columnType = Object.class;
+            }
+        }
+        return columnType;
+    }
+
+    static String key(String databaseSchema, String tableName) {
+        return databaseSchema + '\u0000' + tableName;
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.jdbc.ConnectionLifecycleListener;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Holds back the spatial index statements of new tables in bulk load mode, so the rows of the
+ * initial load do not pay for incremental index maintenance.
+ * <p>
+ * The indexes of a table are built in one pass once a transaction that inserted into it commits,
+ * or when an auto commit connection that inserted into it is released. A load that rolls back
+ * leaves the index pending for the next load. A failed build is rolled back to a savepoint,
+ * logged and retried after the next load, it never fails the load itself.
+ * <p>
+ * The pending statements only live in memory: {@link DeferredIndexDataSource} builds the ones
+ * left when the datastore is disposed, and a warning names every index still missing after that.
+ */
+public class DeferredIndexBuilder implements ConnectionLifecycleListener {
+    protected static final Logger LOGGER = Logging.getLogger(DeferredIndexBuilder.class);
+
+    /** schema.table -> pending CREATE INDEX statements */
+    final Map<String, List<String>> pending = new LinkedHashMap<String, List<String>>();
+
+    /** connection -> tables inserted into through it */
+    final Map<Connection, Set<String>> written = new IdentityHashMap<Connection, Set<String>>();
+
+    /**
+     * Holds back the statement until the table has been loaded
+     */
+    public synchronized void defer(String schemaName, String tableName, String createIndexSql) {
+        String key = key(schemaName, tableName);
+        List<String> statements = pending.get(key);
+        if (statements == null) {
+            statements = new ArrayList<String>();
+            pending.put(key, statements);
+        }
+        statements.add(createIndexSql);
+        LOGGER.fine("Deferred until the table is loaded: " + createIndexSql);
+    }
+
+    /**
+     * Records an insert into the table through the connection, called from the dialect onInsert
+     */
+    public synchronized void inserted(Connection cx, String schemaName, String tableName) {
+        String key = key(schemaName, tableName);
+        if (!pending.containsKey(key)) {
+            return;
+        }
+        Set<String> tables = written.get(cx);
+        if (tables == null) {
+            tables = new HashSet<String>();
+            written.put(cx, tables);
+        }
+        tables.add(key);
+    }
+
+    /**
+     * Forgets the pending indexes of a dropped table
+     */
+    public synchronized void remove(String schemaName, String tableName) {
+        pending.remove(key(schemaName, tableName));
+    }
+
+    public synchronized boolean hasPending() {
+        return !pending.isEmpty();
+    }
+
+    /**
+     * Builds all the pending indexes on the connection, whether their table was loaded or not,
+     * then logs the ones that could not be built
+     */
+    public synchronized void buildAll(JDBCDataStore store, Connection cx) {
+        build(store, cx, new ArrayList<String>(pending.keySet()));
+        logPending();
+    }
+
+    /**
+     * Logs a warning for every pending index, which has to be built by hand once the datastore
+     * is gone
+     */
+    public synchronized void logPending() {
+        for (Map.Entry<String, List<String>> entry : pending.entrySet()) {
+            for (String sql : entry.getValue()) {
+                LOGGER.warning("The deferred spatial index of "
+                        + entry.getKey().replace('\u0000', '.') + " was never built: " + sql);
+            }
+        }
+    }
+
+    public void onBorrow(JDBCDataStore store, Connection cx) throws SQLException {
+        // nothing to do
+    }
+
+    public synchronized void onRelease(JDBCDataStore store, Connection cx) throws SQLException {
+        Set<String> tables = written.remove(cx);
+        if (tables != null && cx.getAutoCommit()) {
+            build(store, cx, tables);
+        }
+    }
+
+    public synchronized void onCommit(JDBCDataStore store, Connection cx) throws SQLException {
+        Set<String> tables = written.remove(cx);
+        if (tables != null) {
+            build(store, cx, tables);
+        }
+    }
+
+    public synchronized void onRollback(JDBCDataStore store, Connection cx) throws SQLException {
+        // the load did not happen, the indexes stay pending
+        written.remove(cx);
+    }
+
+    void build(JDBCDataStore store, Connection cx, Iterable<String> tables) {
+        for (Iterator<String> it = tables.iterator(); it.hasNext();) {
+            String key = it.next();
+            List<String> statements = pending.get(key);
+            if (statements == null) {
+                continue;
+            }
+
+            Statement st = null;
+            Savepoint savePoint = null;
+            try {
+                st = cx.createStatement();
+                if (!cx.getAutoCommit()) {
+                    savePoint = cx.setSavepoint();
+                }
+
+                for (int i = 0; i < statements.size(); i++) {
+                    String sql = statements.get(i);
+                    LOGGER.info("Building deferred spatial index " + (i + 1) + " of "
+                            + statements.size() + ": " + sql);
+                    long start = System.currentTimeMillis();
+                    st.execute(sql);
+                    LOGGER.info("Built in " + (System.currentTimeMillis() - start) + " ms");
+                }
+                pending.remove(key);
+            } catch (SQLException e) {
+                if (savePoint != null) {
+                    try {
+                        cx.rollback(savePoint);
+                    } catch (SQLException re) {
+                        LOGGER.log(Level.FINE, "Failed to roll back to the savepoint", re);
+                    }
+                }
+                LOGGER.log(Level.WARNING, "Failed to build the deferred spatial index of "
+                        + key.replace('\u0000', '.') + ", will retry after the next load", e);
+            } finally {
+                if (savePoint != null) {
+                    try {
+                        cx.releaseSavepoint(savePoint);
+                    } catch (SQLException e) {
+                        LOGGER.log(Level.FINE, "Failed to release the savepoint", e);
+                    }
+                }
+                store.closeSafe(st);
+            }
+        }
+    }
+
+    static String key(String schemaName, String tableName) {
+        return schemaName + '\u0000' + tableName;
+    }
+}
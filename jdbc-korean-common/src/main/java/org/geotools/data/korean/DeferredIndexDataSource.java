@@ -0,0 +1,136 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.PrintWriter;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.geotools.data.jdbc.datasource.ManageableDataSource;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Wraps the datastore connection pool so that the spatial indexes still held back by a
+ * {@link DeferredIndexBuilder} are built when the datastore is disposed, instead of being lost
+ * with it.
+ * <p>
+ * Closing this data source, as the datastore does on dispose, builds the pending indexes on a
+ * connection of the wrapped pool, logs the ones that could not be built and then closes the
+ * wrapped pool if it is a {@link ManageableDataSource}.
+ */
+public class DeferredIndexDataSource implements ManageableDataSource {
+    protected static final Logger LOGGER = Logging.getLogger(DeferredIndexDataSource.class);
+
+    final DataSource delegate;
+
+    final JDBCDataStore dataStore;
+
+    final DeferredIndexBuilder indexes;
+
+    public DeferredIndexDataSource(DataSource delegate, JDBCDataStore dataStore,
+            DeferredIndexBuilder indexes) {
+        this.delegate = delegate;
+        this.dataStore = dataStore;
+        this.indexes = indexes;
+    }
+
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    public Connection getConnection() throws SQLException {
+        return delegate.getConnection();
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        return delegate.getConnection(username, password);
+    }
+
+    public void close() throws SQLException {
+        try {
+            buildPending();
+        } finally {
+            if (delegate instanceof ManageableDataSource) {
+                ((ManageableDataSource) delegate).close();
+            }
+        }
+    }
+
+    void buildPending() {
+        if (!indexes.hasPending()) {
+            return;
+        }
+
+        Connection cx = null;
+        try {
+            cx = delegate.getConnection();
+            indexes.buildAll(dataStore, cx);
+            if (!cx.getAutoCommit()) {
+                cx.commit();
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to build the deferred spatial indexes", e);
+            indexes.logPending();
+        } finally {
+            dataStore.closeSafe(cx);
+        }
+    }
+
+    public String getDescription() {
+        if (delegate instanceof ManageableDataSource) {
+            return ((ManageableDataSource) delegate).getDescription();
+        }
+        return null;
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(delegate)) {
+            return iface.cast(delegate);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+}
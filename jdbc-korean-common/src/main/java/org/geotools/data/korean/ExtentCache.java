@@ -0,0 +1,202 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.ConnectionLifecycleListener;
+import org.geotools.jdbc.JDBCDataStore;
+
+/**
+ * Per table cache of the bounds returned by getOptimizedBounds.
+ * <p>
+ * Computing the extent scans the whole table on these databases, the result is kept until the
+ * time to live expires or a write through the datastore invalidates the table. A time to live of
+ * zero or less disables the cache.
+ * <p>
+ * The writes are reported before they are executed and committed, so bounds computed while a
+ * write is pending are not stored. The commit and rollback events also come before the database
+ * commits, the written tables stay pending until the connection is released, when they are
+ * invalidated again.
+ */
+public class ExtentCache implements ConnectionLifecycleListener {
+
+    /** default time to live, in milliseconds */
+    public static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000L;
+
+    static final class Entry {
+        final List<ReferencedEnvelope> bounds;
+
+        final long expires;
+
+        Entry(List<ReferencedEnvelope> bounds, long expires) {
+            this.bounds = bounds;
+            this.expires = expires;
+        }
+    }
+
+    long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    /** schema.table -> bounds */
+    final Map<String, Entry> entries = new HashMap<String, Entry>();
+
+    /** invalidation counter, to detect writes while the bounds are computed */
+    long clock;
+
+    /** schema.table -> value of the clock when the table was last invalidated */
+    final Map<String, Long> generations = new HashMap<String, Long>();
+
+    /** connection -> tables written through it in the current transaction */
+    final Map<Connection, Set<String>> written = new IdentityHashMap<Connection, Set<String>>();
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public synchronized void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+        entries.clear();
+    }
+
+    /**
+     * Returns a copy of the cached bounds of the table, or null if missing or expired
+     */
+    public synchronized List<ReferencedEnvelope> get(String schemaName, String tableName) {
+        String key = key(schemaName, tableName);
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.currentTimeMillis() >= entry.expires) {
+            entries.remove(key);
+            return null;
+        }
+        return copy(entry.bounds);
+    }
+
+    /**
+     * The generation of the table, to read before computing its bounds and hand back to
+     * {@link #put(String, String, long, List)}
+     */
+    public synchronized long getGeneration(String schemaName, String tableName) {
+        Long generation = generations.get(key(schemaName, tableName));
+        return generation == null ? 0 : generation.longValue();
+    }
+
+    /**
+     * Stores the bounds unless the table was invalidated since the generation was read or a
+     * transaction has uncommitted writes to it
+     */
+    public synchronized void put(String schemaName, String tableName, long generation,
+            List<ReferencedEnvelope> bounds) {
+        String key = key(schemaName, tableName);
+        if (timeToLive <= 0 || bounds == null || generation != getGeneration(schemaName, tableName)
+                || isPending(key)) {
+            return;
+        }
+        entries.put(key, new Entry(copy(bounds), System.currentTimeMillis() + timeToLive));
+    }
+
+    boolean isPending(String key) {
+        for (Set<String> tables : written.values()) {
+            if (tables.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Drops the bounds of the table
+     */
+    public synchronized void invalidate(String schemaName, String tableName) {
+        invalidate(key(schemaName, tableName));
+    }
+
+    void invalidate(String key) {
+        entries.remove(key);
+        generations.put(key, Long.valueOf(++clock));
+    }
+
+    public synchronized void invalidate() {
+        entries.clear();
+    }
+
+    /**
+     * Records a write to the table through the connection, called from the dialect onInsert,
+     * onUpdate and onDelete
+     */
+    public synchronized void written(Connection cx, String schemaName, String tableName) {
+        invalidate(schemaName, tableName);
+        Set<String> tables = written.get(cx);
+        if (tables == null) {
+            tables = new HashSet<String>();
+            written.put(cx, tables);
+        }
+        tables.add(key(schemaName, tableName));
+    }
+
+    public void onBorrow(JDBCDataStore store, Connection cx) throws SQLException {
+        // nothing to do
+    }
+
+    public synchronized void onRelease(JDBCDataStore store, Connection cx) throws SQLException {
+        // the writes are committed by now, auto commit ones included
+        Set<String> tables = written.remove(cx);
+        if (tables != null) {
+            for (String key : tables) {
+                invalidate(key);
+            }
+        }
+    }
+
+    public synchronized void onCommit(JDBCDataStore store, Connection cx) throws SQLException {
+        // called before the commit, the tables stay pending until the connection is released
+        Set<String> tables = written.get(cx);
+        if (tables != null) {
+            for (String key : tables) {
+                invalidate(key);
+            }
+        }
+    }
+
+    public synchronized void onRollback(JDBCDataStore store, Connection cx) throws SQLException {
+        // the bounds computed through the writing connection saw the rolled back rows
+        onCommit(store, cx);
+    }
+
+    static List<ReferencedEnvelope> copy(List<ReferencedEnvelope> bounds) {
+        List<ReferencedEnvelope> copy = new ArrayList<ReferencedEnvelope>(bounds.size());
+        for (ReferencedEnvelope envelope : bounds) {
+            copy.add(new ReferencedEnvelope(envelope));
+        }
+        return copy;
+    }
+
+    static String key(String schemaName, String tableName) {
+        return schemaName + '\u0000' + tableName;
+    }
+}
@@ -0,0 +1,308 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.geotools.jdbc.ConnectionLifecycleListener;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Least recently used cache of query results of a datastore, bounded by the estimated size of the
+ * cached features, for the tiles requested again and again by map clients.
+ * <p>
+ * The results of a table are dropped as soon as a statement writes to it through the datastore,
+ * and again when the writing transaction commits and when its connection is released, so readers
+ * never keep the state before a write they could see. Results read while a write to the table is
+ * pending, until the writing connection is released, are not stored. Changes made outside the
+ * datastore are only seen once the results are evicted or {@link #invalidate()} is called.
+ *
+ * @see TileCachedFeatureSource
+ */
+public class FeatureCache implements ConnectionLifecycleListener {
+    protected static final Logger LOGGER = Logging.getLogger(FeatureCache.class);
+
+    /** number of query keys remembered as too large to cache */
+    static final int OVERSIZED_KEYS = 256;
+
+    /**
+     * The features of a query result and their estimated size
+     */
+    static final class Entry {
+        final String typeName;
+
+        final SimpleFeatureType schema;
+
+        final List<SimpleFeature> features;
+
+        final long bytes;
+
+        Entry(String typeName, SimpleFeatureType schema, List<SimpleFeature> features, long bytes) {
+            this.typeName = typeName;
+            this.schema = schema;
+            this.features = features;
+            this.bytes = bytes;
+        }
+    }
+
+    final long maxBytes;
+
+    long bytes;
+
+    long hits;
+
+    long misses;
+
+    /** query key -> result, in access order */
+    final LinkedHashMap<String, Entry> entries = new LinkedHashMap<String, Entry>(16, 0.75f, true);
+
+    /** query keys whose result did not fit in an entry, type name first */
+    final Map<String, Boolean> oversized = new LinkedHashMap<String, Boolean>(16, 0.75f, true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+            return size() > OVERSIZED_KEYS;
+        }
+    };
+
+    /** invalidation counter, to detect writes during a read */
+    long clock;
+
+    /** value of the clock when the whole cache was last invalidated */
+    long cleared;
+
+    /** type name -> value of the clock when the table was last invalidated */
+    final Map<String, Long> generations = new HashMap<String, Long>();
+
+    /** connection -> tables written through it in the current transaction */
+    final Map<Connection, Set<String>> written = new IdentityHashMap<Connection, Set<String>>();
+
+    /**
+     * @param maxBytes the estimated size of all the cached features
+     */
+    public FeatureCache(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    public long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * The largest result cached, a quarter of the cache so one query cannot flush it
+     */
+    public long getMaxEntryBytes() {
+        return maxBytes / 4;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int getSize() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /**
+     * The cached result of the query, or null
+     */
+    synchronized Entry get(String key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return entry;
+    }
+
+    /**
+     * The generation of the table, to read before querying it and hand back to
+     * {@link #put(String, String, long, SimpleFeatureType, List, long)}
+     */
+    synchronized long getGeneration(String typeName) {
+        Long generation = generations.get(typeName);
+        return generation == null ? cleared : Math.max(cleared, generation.longValue());
+    }
+
+    /**
+     * Stores the result unless the table was written since the generation was read or has a
+     * pending write, then evicts the least recently used results above the size of the cache
+     */
+    synchronized boolean put(String typeName, String key, long generation,
+            SimpleFeatureType schema, List<SimpleFeature> features, long size) {
+        size += 2 * key.length();
+        if (generation != getGeneration(typeName) || size > getMaxEntryBytes()
+                || isPending(typeName)) {
+            return false;
+        }
+
+        Entry previous = entries.put(key, new Entry(typeName, schema, features, size));
+        if (previous != null) {
+            bytes -= previous.bytes;
+        }
+        bytes += size;
+
+        for (Iterator<Entry> it = entries.values().iterator(); bytes > maxBytes && it.hasNext();) {
+            Entry eldest = it.next();
+            it.remove();
+            bytes -= eldest.bytes;
+        }
+        return true;
+    }
+
+    synchronized void oversized(String key) {
+        oversized.put(key, Boolean.TRUE);
+    }
+
+    synchronized boolean isOversized(String key) {
+        return oversized.containsKey(key);
+    }
+
+    /**
+     * Drops the cached results of the table
+     */
+    public synchronized void invalidate(String typeName) {
+        generations.put(typeName, Long.valueOf(++clock));
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (entry.typeName.equals(typeName)) {
+                it.remove();
+                bytes -= entry.bytes;
+            }
+        }
+        String prefix = typeName + '\u0000';
+        for (Iterator<String> it = oversized.keySet().iterator(); it.hasNext();) {
+            if (it.next().startsWith(prefix)) {
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Drops all the cached results, for tables changed outside the datastore
+     */
+    public synchronized void invalidate() {
+        cleared = ++clock;
+        generations.clear();
+        entries.clear();
+        oversized.clear();
+        bytes = 0;
+    }
+
+    /**
+     * Records a write to the table through the connection, called from the dialect onInsert,
+     * onUpdate and onDelete
+     */
+    public synchronized void written(Connection cx, String typeName) {
+        invalidate(typeName);
+        Set<String> tables = written.get(cx);
+        if (tables == null) {
+            tables = new HashSet<String>();
+            written.put(cx, tables);
+        }
+        tables.add(typeName);
+    }
+
+    public void onBorrow(JDBCDataStore store, Connection cx) throws SQLException {
+        // nothing to do
+    }
+
+    public synchronized void onRelease(JDBCDataStore store, Connection cx) throws SQLException {
+        // the writes are committed by now, auto commit ones included: they are invalidated
+        // before they execute, a result read in between holds the state before the write
+        Set<String> tables = written.remove(cx);
+        if (tables != null) {
+            for (String typeName : tables) {
+                invalidate(typeName);
+            }
+        }
+    }
+
+    public synchronized void onCommit(JDBCDataStore store, Connection cx) throws SQLException {
+        // called before the commit, the tables stay pending until the connection is released
+        Set<String> tables = written.get(cx);
+        if (tables != null) {
+            for (String typeName : tables) {
+                invalidate(typeName);
+            }
+        }
+    }
+
+    public synchronized void onRollback(JDBCDataStore store, Connection cx) throws SQLException {
+        // results read meanwhile are the committed state, dropping them again is cheap
+        onCommit(store, cx);
+    }
+
+    boolean isPending(String typeName) {
+        for (Set<String> tables : written.values()) {
+            if (tables.contains(typeName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Estimated heap size of a feature: the attribute values, their boxing and the feature itself
+     */
+    static long sizeOf(SimpleFeature feature) {
+        long size = 64;
+        for (Object value : feature.getAttributes()) {
+            if (value == null) {
+                size += 8;
+            } else if (value instanceof Geometry) {
+                size += 64 + 16L * ((Geometry) value).getNumPoints();
+            } else if (value instanceof String) {
+                size += 40 + 2L * ((String) value).length();
+            } else if (value instanceof Number || value instanceof Date
+                    || value instanceof Boolean) {
+                size += 16;
+            } else if (value instanceof byte[]) {
+                size += 16 + ((byte[]) value).length;
+            } else {
+                size += 32;
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+
+/**
+ * In-memory copy of a geometry metadata table.
+ * <p>
+ * The whole table is read with a single catalog query the first time it is needed and read again
+ * once the time to live has expired, so the datastore does not send one query per geometry
+ * column. The query returns the schema, table and column names, the SRID and the coordinate
+ * dimension, optionally followed by the geometry type.
+ * <p>
+ * A lookup that misses reads the table again, at most once per miss reload interval, so a column
+ * registered by another client is found without waiting for the time to live to expire.
+ */
+public class GeometryColumnsCache {
+    protected static final Logger LOGGER = Logging.getLogger(GeometryColumnsCache.class);
+
+    /** default time to live, in milliseconds */
+    public static final long DEFAULT_TIME_TO_LIVE = 5 * 60 * 1000L;
+
+    /** default minimum time between two loads caused by a lookup miss, in milliseconds */
+    public static final long DEFAULT_MISS_RELOAD_INTERVAL = 10 * 1000L;
+
+    /** the OGC GEOMETRY_COLUMNS table */
+    public static final String GEOMETRY_COLUMNS = "SELECT F_TABLE_SCHEMA, F_TABLE_NAME, "
+            + "F_GEOMETRY_COLUMN, SRID, COORD_DIMENSION, F_GEOMETRY_TYPE FROM GEOMETRY_COLUMNS";
+
+    /**
+     * A row of the geometry metadata table
+     */
+    public static final class GeometryColumn {
+        final String schemaName;
+
+        final String tableName;
+
+        final String columnName;
+
+        final Integer srid;
+
+        final int dimension;
+
+        final String geometryType;
+
+        public GeometryColumn(String schemaName, String tableName, String columnName,
+                Integer srid, int dimension, String geometryType) {
+            this.schemaName = schemaName;
+            this.tableName = tableName;
+            this.columnName = columnName;
+            this.srid = srid;
+            this.dimension = dimension;
+            this.geometryType = geometryType;
+        }
+
+        public String getSchemaName() {
+            return schemaName;
+        }
+
+        public String getTableName() {
+            return tableName;
+        }
+
+        public String getColumnName() {
+            return columnName;
+        }
+
+        /**
+         * The SRID, null if not set
+         */
+        public Integer getSrid() {
+            return srid;
+        }
+
+        public int getDimension() {
+            return dimension;
+        }
+
+        /**
+         * The geometry type, null if the query does not read it
+         */
+        public String getGeometryType() {
+            return geometryType;
+        }
+    }
+
+    final JDBCDataStore dataStore;
+
+    final String sql;
+
+    long timeToLive = DEFAULT_TIME_TO_LIVE;
+
+    long missReloadInterval = DEFAULT_MISS_RELOAD_INTERVAL;
+
+    /** schema.table.column -> row */
+    Map<String, GeometryColumn> columns;
+
+    /** table.column -> row, for lookups that ignore the schema */
+    Map<String, GeometryColumn> tableColumns;
+
+    /** schema.table of the registered tables */
+    Set<String> tables;
+
+    long expires;
+
+    /** time of the last load */
+    long loadedAt;
+
+    /**
+     * @param sql the catalog query reading the whole table
+     */
+    public GeometryColumnsCache(JDBCDataStore dataStore, String sql) {
+        this.dataStore = dataStore;
+        this.sql = sql;
+    }
+
+    public long getTimeToLive() {
+        return timeToLive;
+    }
+
+    public synchronized void setTimeToLive(long timeToLive) {
+        this.timeToLive = timeToLive;
+        invalidate();
+    }
+
+    public long getMissReloadInterval() {
+        return missReloadInterval;
+    }
+
+    /**
+     * Sets the minimum time, in milliseconds, between two loads caused by a lookup miss
+     */
+    public synchronized void setMissReloadInterval(long missReloadInterval) {
+        this.missReloadInterval = missReloadInterval;
+    }
+
+    /**
+     * Returns the registration of the geometry column, or null if it is not registered. A null
+     * schema matches any schema.
+     */
+    public synchronized GeometryColumn get(String schemaName, String tableName,
+            String columnName, Connection cx) throws SQLException {
+        load(cx);
+        GeometryColumn column = lookup(schemaName, tableName, columnName);
+        if (column == null && reloadOnMiss(cx)) {
+            column = lookup(schemaName, tableName, columnName);
+        }
+        return column;
+    }
+
+    /**
+     * Returns true if the table has at least one registered geometry column
+     */
+    public synchronized boolean containsTable(String schemaName, String tableName,
+            Connection cx) throws SQLException {
+        load(cx);
+        String key = key(schemaName, tableName);
+        return tables.contains(key) || (reloadOnMiss(cx) && tables.contains(key));
+    }
+
+    /**
+     * Registers a new geometry column, as done by postCreateTable
+     */
+    public synchronized void put(GeometryColumn column) {
+        if (columns != null) {
+            columns.put(key(column.schemaName, column.tableName, column.columnName), column);
+            tableColumns.put(key(column.tableName, column.columnName), column);
+            tables.add(key(column.schemaName, column.tableName));
+        }
+    }
+
+    /**
+     * Removes all the geometry columns of the table, as done by postDropTable
+     */
+    public synchronized void removeTable(String schemaName, String tableName) {
+        if (columns == null) {
+            return;
+        }
+
+        tables.remove(key(schemaName, tableName));
+
+        Set<String> removed = new HashSet<String>();
+        for (Iterator<GeometryColumn> it = columns.values().iterator(); it.hasNext();) {
+            GeometryColumn column = it.next();
+            if (same(tableName, column.tableName) && same(schemaName, column.schemaName)) {
+                removed.add(key(column.tableName, column.columnName));
+                it.remove();
+            }
+        }
+
+        // another schema may still hold a table with the same name
+        tableColumns.keySet().removeAll(removed);
+        for (GeometryColumn column : columns.values()) {
+            String key = key(column.tableName, column.columnName);
+            if (removed.contains(key) && !tableColumns.containsKey(key)) {
+                tableColumns.put(key, column);
+            }
+        }
+    }
+
+    /**
+     * Forces the table to be read again on next access
+     */
+    public synchronized void invalidate() {
+        columns = null;
+        tableColumns = null;
+        tables = null;
+    }
+
+    GeometryColumn lookup(String schemaName, String tableName, String columnName) {
+        if (schemaName == null) {
+            return tableColumns.get(key(tableName, columnName));
+        }
+        return columns.get(key(schemaName, tableName, columnName));
+    }
+
+    /**
+     * Reads the table again after a lookup miss, unless it was read less than the miss reload
+     * interval ago. Returns true if the table was read.
+     */
+    boolean reloadOnMiss(Connection cx) throws SQLException {
+        if (System.currentTimeMillis() - loadedAt < missReloadInterval) {
+            return false;
+        }
+        invalidate();
+        load(cx);
+        return true;
+    }
+
+    void load(Connection cx) throws SQLException {
+        long now = System.currentTimeMillis();
+        if (columns != null && now < expires) {
+            return;
+        }
+
+        Map<String, GeometryColumn> loaded = new HashMap<String, GeometryColumn>();
+        Map<String, GeometryColumn> loadedByTable = new HashMap<String, GeometryColumn>();
+        Set<String> loadedTables = new HashSet<String>();
+
+        Statement st = null;
+        ResultSet rs = null;
+        try {
+            LOGGER.log(Level.FINE, "Geometry metadata load; {0} ", sql);
+            st = cx.createStatement();
+            rs = st.executeQuery(sql);
+            boolean hasType = rs.getMetaData().getColumnCount() >= 6;
+            while (rs.next()) {
+                int srid = rs.getInt(4);
+                Integer sridValue = rs.wasNull() ? null : Integer.valueOf(srid);
+                int dimension = rs.getInt(5);
+                if (rs.wasNull()) {
+                    dimension = 2;
+                }
+
+                GeometryColumn column = new GeometryColumn(rs.getString(1), rs.getString(2),
+                        rs.getString(3), sridValue, dimension, hasType ? rs.getString(6) : null);
+                loaded.put(key(column.schemaName, column.tableName, column.columnName), column);
+                loadedTables.add(key(column.schemaName, column.tableName));
+
+                String tableKey = key(column.tableName, column.columnName);
+                if (!loadedByTable.containsKey(tableKey)) {
+                    loadedByTable.put(tableKey, column);
+                }
+            }
+        } finally {
+            dataStore.closeSafe(rs);
+            dataStore.closeSafe(st);
+        }
+
+        columns = loaded;
+        tableColumns = loadedByTable;
+        tables = loadedTables;
+        expires = now + timeToLive;
+        loadedAt = now;
+    }
+
+    static String key(String... names) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            sb.append(name).append('\u0000');
+        }
+        return sb.toString();
+    }
+
+    static boolean same(String a, String b) {
+        return a == null ? b == null : a.equals(b);
+    }
+}
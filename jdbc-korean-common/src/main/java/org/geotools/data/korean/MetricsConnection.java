@@ -0,0 +1,195 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Connection handler of {@link MetricsDataSource}: times the executions of the statements it
+ * creates and counts the rows of their result sets.
+ */
+class MetricsConnection implements InvocationHandler {
+
+    final Connection cx;
+
+    final QueryMetrics metrics;
+
+    MetricsConnection(Connection cx, QueryMetrics metrics) {
+        this.cx = cx;
+        this.metrics = metrics;
+    }
+
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        if ("equals".equals(name)) {
+            return proxy == args[0];
+        } else if ("hashCode".equals(name)) {
+            return System.identityHashCode(proxy);
+        } else if ("toString".equals(name)) {
+            return "MetricsConnection[" + cx + "]";
+        }
+
+        Object result = BatchingConnection.forward(cx, method, args);
+        if (result instanceof Statement
+                && Statement.class.isAssignableFrom(method.getReturnType())) {
+            // prepareStatement and prepareCall know their SQL, createStatement gets it on execute
+            String sql = name.startsWith("prepare") ? (String) args[0] : null;
+            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                    new Class<?>[] { method.getReturnType() }, new MetricsStatement(proxy,
+                            (Statement) result, sql));
+        }
+        return result;
+    }
+
+    /**
+     * The table of the query of a result set of this connection, {@link QueryMetrics#OTHER} for
+     * the other result sets
+     */
+    static String tableOf(ResultSet rs) {
+        if (rs != null && Proxy.isProxyClass(rs.getClass())) {
+            InvocationHandler handler = Proxy.getInvocationHandler(rs);
+            if (handler instanceof MetricsResultSet) {
+                return ((MetricsResultSet) handler).table;
+            }
+        }
+        return QueryMetrics.OTHER;
+    }
+
+    /**
+     * Times the execute methods, the result sets are wrapped to count their rows
+     */
+    class MetricsStatement implements InvocationHandler {
+        final Object connection;
+
+        final Statement st;
+
+        final String sql;
+
+        /** the table of the last execution, for getResultSet and getGeneratedKeys */
+        String table;
+
+        MetricsResultSet results;
+
+        MetricsStatement(Object connection, Statement st, String sql) {
+            this.connection = connection;
+            this.st = st;
+            this.sql = sql;
+            this.table = QueryMetrics.tableOf(sql);
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name)) {
+                return "MetricsStatement[" + st + "]";
+            } else if ("getConnection".equals(name)) {
+                return connection;
+            }
+
+            Object result;
+            if (name.startsWith("execute")) {
+                String executed = sql;
+                if (args != null && args.length > 0 && args[0] instanceof String) {
+                    executed = (String) args[0];
+                    table = QueryMetrics.tableOf(executed);
+                }
+                long start = System.nanoTime();
+                try {
+                    result = BatchingConnection.forward(st, method, args);
+                } catch (Throwable e) {
+                    metrics.queryExecuted(table, executed, System.nanoTime() - start,
+                            e instanceof SQLException ? (SQLException) e : new SQLException(e));
+                    throw e;
+                }
+                metrics.queryExecuted(table, executed, System.nanoTime() - start, null);
+            } else {
+                if ("close".equals(name) && results != null) {
+                    results.report();
+                }
+                result = BatchingConnection.forward(st, method, args);
+            }
+
+            if (result instanceof ResultSet) {
+                results = new MetricsResultSet(proxy, (ResultSet) result, table);
+                return Proxy.newProxyInstance(getClass().getClassLoader(),
+                        new Class<?>[] { ResultSet.class }, results);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Counts the rows read, reported once the result set is read to its end or closed
+     */
+    class MetricsResultSet implements InvocationHandler {
+        final Object statement;
+
+        final ResultSet rs;
+
+        final String table;
+
+        long rows;
+
+        boolean reported;
+
+        MetricsResultSet(Object statement, ResultSet rs, String table) {
+            this.statement = statement;
+            this.rs = rs;
+            this.table = table;
+        }
+
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if ("equals".equals(name)) {
+                return proxy == args[0];
+            } else if ("hashCode".equals(name)) {
+                return System.identityHashCode(proxy);
+            } else if ("toString".equals(name)) {
+                return "MetricsResultSet[" + rs + "]";
+            } else if ("getStatement".equals(name)) {
+                return statement;
+            } else if ("next".equals(name)) {
+                Object next = BatchingConnection.forward(rs, method, args);
+                if (Boolean.TRUE.equals(next)) {
+                    rows++;
+                } else {
+                    report();
+                }
+                return next;
+            } else if ("close".equals(name)) {
+                report();
+            }
+            return BatchingConnection.forward(rs, method, args);
+        }
+
+        void report() {
+            if (!reported) {
+                reported = true;
+                metrics.rowsFetched(table, rows);
+            }
+        }
+    }
+}
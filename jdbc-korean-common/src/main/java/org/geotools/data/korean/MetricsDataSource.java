@@ -0,0 +1,123 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.geotools.data.jdbc.datasource.ManageableDataSource;
+
+/**
+ * Wraps the datastore connection pool to time the statements, count the rows read and measure
+ * the wait for a connection, recorded in a {@link QueryMetrics}.
+ * <p>
+ * Statements, prepared statements and their result sets are returned as proxies, which adds a
+ * small cost to every call: the instrumentation is meant to be enabled while looking for slow
+ * layers rather than permanently.
+ * <p>
+ * Closing this data source, as the datastore does on dispose, removes the MBeans of the metrics
+ * and closes the wrapped pool if it is a {@link ManageableDataSource}.
+ */
+public class MetricsDataSource implements ManageableDataSource {
+
+    final DataSource delegate;
+
+    final QueryMetrics metrics;
+
+    public MetricsDataSource(DataSource delegate, QueryMetrics metrics) {
+        this.delegate = delegate;
+        this.metrics = metrics;
+    }
+
+    public DataSource getDelegate() {
+        return delegate;
+    }
+
+    public QueryMetrics getMetrics() {
+        return metrics;
+    }
+
+    public Connection getConnection() throws SQLException {
+        long start = System.nanoTime();
+        Connection cx = delegate.getConnection();
+        metrics.connectionAcquired(System.nanoTime() - start);
+        return wrap(cx);
+    }
+
+    public Connection getConnection(String username, String password) throws SQLException {
+        long start = System.nanoTime();
+        Connection cx = delegate.getConnection(username, password);
+        metrics.connectionAcquired(System.nanoTime() - start);
+        return wrap(cx);
+    }
+
+    Connection wrap(Connection cx) {
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, new MetricsConnection(cx, metrics));
+    }
+
+    public void close() throws SQLException {
+        metrics.unregister();
+        if (delegate instanceof ManageableDataSource) {
+            ((ManageableDataSource) delegate).close();
+        }
+    }
+
+    public String getDescription() {
+        if (delegate instanceof ManageableDataSource) {
+            return ((ManageableDataSource) delegate).getDescription();
+        }
+        return null;
+    }
+
+    public PrintWriter getLogWriter() throws SQLException {
+        return delegate.getLogWriter();
+    }
+
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        delegate.setLogWriter(out);
+    }
+
+    public void setLoginTimeout(int seconds) throws SQLException {
+        delegate.setLoginTimeout(seconds);
+    }
+
+    public int getLoginTimeout() throws SQLException {
+        return delegate.getLoginTimeout();
+    }
+
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        return delegate.getParentLogger();
+    }
+
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(delegate)) {
+            return iface.cast(delegate);
+        }
+        return delegate.unwrap(iface);
+    }
+
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(delegate) || delegate.isWrapperFor(iface);
+    }
+}
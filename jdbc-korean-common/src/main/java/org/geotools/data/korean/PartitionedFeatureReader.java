@@ -0,0 +1,206 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.korean.PartitionedScan.Partition;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * FeatureReader merging the ranges of a {@link PartitionedScan}, each read by its own thread.
+ * <p>
+ * The threads hand the features over through bounded queues: a single shared queue when the
+ * features are returned as they arrive, one queue per range in ordered mode. A failing range
+ * ends the read with its exception, after the features already returned.
+ */
+class PartitionedFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
+    protected static final Logger LOGGER = Logging.getLogger(PartitionedFeatureReader.class);
+
+    /** end of range marker */
+    static final Object END = new Object();
+
+    /**
+     * Failure of a range, rethrown by the consumer
+     */
+    static final class Failure {
+        final Throwable exception;
+
+        Failure(Throwable exception) {
+            this.exception = exception;
+        }
+    }
+
+    final SimpleFeatureSource source;
+
+    final SimpleFeatureType schema;
+
+    final List<Partition> ranges;
+
+    final boolean ordered;
+
+    final BlockingQueue<Object>[] queues;
+
+    final Thread[] readers;
+
+    volatile boolean closed = false;
+
+    /** ranges read to the end */
+    int finished;
+
+    SimpleFeature next;
+
+    @SuppressWarnings("unchecked")
+    PartitionedFeatureReader(SimpleFeatureSource source, List<Partition> ranges,
+            boolean ordered, int queueSize) {
+        this.source = source;
+        this.schema = source.getSchema();
+        this.ranges = ranges;
+        this.ordered = ordered;
+
+        int count = ranges.size();
+        this.queues = new BlockingQueue[count];
+        BlockingQueue<Object> shared = ordered ? null : new ArrayBlockingQueue<Object>(
+                Math.max(count + 1, queueSize));
+        for (int i = 0; i < count; i++) {
+            queues[i] = ordered ? new ArrayBlockingQueue<Object>(Math.max(2, queueSize / count))
+                    : shared;
+        }
+
+        this.readers = new Thread[count];
+        for (int i = 0; i < count; i++) {
+            readers[i] = new Thread(new Reader(ranges.get(i), queues[i]), "Partitioned scan "
+                    + schema.getTypeName() + " " + (i + 1) + "/" + count);
+            readers[i].setDaemon(true);
+            readers[i].start();
+        }
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return schema;
+    }
+
+    public SimpleFeature next() throws IOException, IllegalArgumentException,
+            NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features in " + schema.getTypeName());
+        }
+        SimpleFeature feature = next;
+        next = null;
+        return feature;
+    }
+
+    public boolean hasNext() throws IOException {
+        try {
+            while (next == null) {
+                if (closed || finished == ranges.size()) {
+                    return false;
+                }
+
+                // ordered: the current range, otherwise the shared queue
+                Object item = queues[ordered ? finished : 0].take();
+                if (item == END) {
+                    finished++;
+                } else if (item instanceof Failure) {
+                    Throwable cause = ((Failure) item).exception;
+                    close();
+                    if (cause instanceof IOException) {
+                        throw (IOException) cause;
+                    } else if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw new IOException("Failed to read " + schema.getTypeName(), cause);
+                } else {
+                    next = (SimpleFeature) item;
+                }
+            }
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + schema.getTypeName());
+        }
+    }
+
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (Thread reader : readers) {
+            reader.interrupt();
+        }
+        for (BlockingQueue<Object> queue : queues) {
+            queue.clear();
+        }
+    }
+
+    /**
+     * Reads a range on its own thread, the iterator and its connection are only used and closed
+     * here.
+     */
+    class Reader implements Runnable {
+        final Partition range;
+
+        final BlockingQueue<Object> queue;
+
+        Reader(Partition range, BlockingQueue<Object> queue) {
+            this.range = range;
+            this.queue = queue;
+        }
+
+        public void run() {
+            SimpleFeatureIterator features = null;
+            try {
+                features = source.getFeatures(range.query).features();
+                while (!closed && features.hasNext()) {
+                    SimpleFeature feature = features.next();
+                    if (range.accept(feature)) {
+                        queue.put(range.retype(feature));
+                    }
+                }
+                if (!closed) {
+                    queue.put(END);
+                }
+            } catch (InterruptedException e) {
+                LOGGER.log(Level.FINEST, "read of " + schema.getTypeName() + " interrupted");
+            } catch (Throwable e) {
+                // errors too, or the consumer would wait forever for the end of the range
+                try {
+                    queue.put(new Failure(e));
+                } catch (InterruptedException ie) {
+                    LOGGER.log(Level.FINEST, e.getMessage(), e);
+                }
+            } finally {
+                if (features != null) {
+                    features.close();
+                }
+            }
+        }
+    }
+}
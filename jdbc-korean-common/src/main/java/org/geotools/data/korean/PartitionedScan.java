@@ -0,0 +1,413 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.data.FeatureStore;
+import org.geotools.data.Query;
+import org.geotools.data.Transaction;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.CommonFactoryFinder;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
+import org.geotools.feature.visitor.CalcResult;
+import org.geotools.feature.visitor.MaxVisitor;
+import org.geotools.feature.visitor.MinVisitor;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+import org.opengis.filter.FilterFactory2;
+import org.opengis.filter.expression.PropertyName;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+
+/**
+ * Splits a query of a JDBC feature source into ranges read in parallel, each on its own pooled
+ * connection, for exports and analysis jobs bound by the throughput of a single cursor.
+ * <p>
+ * The ranges are either equal ranges of a numeric attribute, usually the primary key exposed as
+ * an attribute, or a grid of tiles over the bounds of the query. A feature whose envelope lies in
+ * a single tile is returned by that tile, a feature crossing tile edges by the first tile reading
+ * it, whether the store evaluates the tile BBOX filters on the envelopes or on the geometries.
+ * The features are handed over through bounded queues, so memory use does not depend on the size
+ * of the table, apart from the ids of the features crossing tile edges kept during a tile scan.
+ * <p>
+ * By default the features are returned as they arrive. In ordered mode the ranges are returned
+ * one after the other, in range order, each in the order of the query: a range scan sorted on
+ * its attribute then returns the features in a deterministic, globally sorted order.
+ * <p>
+ * Each range holds a connection while it is read, the number of partitions should stay below the
+ * maximum number of connections of the datastore. Queries limited to a number of features or a
+ * start index, and sources bound to a transaction, whose connection cannot be shared between
+ * threads, are read as a single range.
+ */
+public class PartitionedScan {
+    protected static final Logger LOGGER = Logging.getLogger(PartitionedScan.class);
+
+    /** default number of features waiting to be read, over all the partitions */
+    public static final int DEFAULT_QUEUE_SIZE = 1024;
+
+    static final FilterFactory2 FF = CommonFactoryFinder.getFilterFactory2(null);
+
+    final SimpleFeatureSource source;
+
+    final int partitions;
+
+    boolean ordered = false;
+
+    int queueSize = DEFAULT_QUEUE_SIZE;
+
+    public PartitionedScan(SimpleFeatureSource source, int partitions) {
+        this.source = source;
+        this.partitions = Math.max(1, partitions);
+    }
+
+    public boolean isOrdered() {
+        return ordered;
+    }
+
+    /**
+     * Returns the ranges one after the other in range order, instead of as they arrive
+     */
+    public void setOrdered(boolean ordered) {
+        this.ordered = ordered;
+    }
+
+    public int getQueueSize() {
+        return queueSize;
+    }
+
+    public void setQueueSize(int queueSize) {
+        this.queueSize = Math.max(1, queueSize);
+    }
+
+    /**
+     * Reads the query in equal ranges of a numeric attribute, between its minimum and maximum
+     * values. The first and last ranges are open ended and the last one also holds the null
+     * values, so features inserted meanwhile are not lost.
+     */
+    public FeatureReader<SimpleFeatureType, SimpleFeature> byRange(Query query, String attribute)
+            throws IOException {
+        if (!isPartitionable(query)) {
+            return read(Collections.singletonList(new Partition(query)));
+        }
+
+        SimpleFeatureCollection features = source.getFeatures(new Query(getTypeName(query),
+                filter(query)));
+        MinVisitor min = new MinVisitor(attribute, source.getSchema());
+        features.accepts(min, null);
+        MaxVisitor max = new MaxVisitor(attribute, source.getSchema());
+        features.accepts(max, null);
+        Object lower = value(min.getResult());
+        Object upper = value(max.getResult());
+        if (!(lower instanceof Number) || !(upper instanceof Number)) {
+            LOGGER.fine("No numeric range on " + attribute + ", reading a single range");
+            return read(Collections.singletonList(new Partition(query)));
+        }
+
+        Number[] bounds = split((Number) lower, (Number) upper, partitions);
+        PropertyName property = FF.property(attribute);
+        List<Partition> ranges = new ArrayList<Partition>();
+        for (int i = 0; i < bounds.length + 1; i++) {
+            Filter range;
+            if (bounds.length == 0) {
+                range = Filter.INCLUDE;
+            } else if (i == 0) {
+                range = FF.less(property, FF.literal(bounds[0]));
+            } else if (i == bounds.length) {
+                range = FF.or(FF.greaterOrEqual(property, FF.literal(bounds[i - 1])),
+                        FF.isNull(property));
+            } else {
+                range = FF.and(FF.greaterOrEqual(property, FF.literal(bounds[i - 1])),
+                        FF.less(property, FF.literal(bounds[i])));
+            }
+            ranges.add(new Partition(restrict(query, range)));
+        }
+        return read(ranges);
+    }
+
+    /**
+     * Reads the query in a grid of tiles over its bounds. The features without geometry are read
+     * with the first tile. The tiles only cover the bounds reported by the source, estimated
+     * extents smaller than the data leave the features outside them out. A query whose property
+     * names leave the geometry out reads it anyway, to split the features among the tiles, and
+     * returns the features without it.
+     */
+    public FeatureReader<SimpleFeatureType, SimpleFeature> byTiles(Query query)
+            throws IOException {
+        GeometryDescriptor geometry = source.getSchema().getGeometryDescriptor();
+        ReferencedEnvelope bounds = null;
+        if (geometry != null && isPartitionable(query)) {
+            bounds = source.getBounds(query);
+            if (bounds == null) {
+                bounds = source.getFeatures(query).getBounds();
+            }
+        }
+        if (bounds == null || bounds.isNull()) {
+            return read(Collections.singletonList(new Partition(query)));
+        }
+
+        int columns = (int) Math.ceil(Math.sqrt(partitions));
+        int rows = (int) Math.ceil(partitions / (double) columns);
+        double[] xs = edges(bounds.getMinX(), bounds.getMaxX(), columns);
+        double[] ys = edges(bounds.getMinY(), bounds.getMaxY(), rows);
+
+        // the tiles need the geometry to tell which one returns a feature
+        String geometryName = geometry.getLocalName();
+        String[] names = query.getPropertyNames();
+        SimpleFeatureType target = null;
+        Query tileQuery = query;
+        if (names != null && !Arrays.asList(names).contains(geometryName)) {
+            target = SimpleFeatureTypeBuilder.retype(source.getSchema(), names);
+            String[] withGeometry = Arrays.copyOf(names, names.length + 1);
+            withGeometry[names.length] = geometryName;
+            tileQuery = new Query(query);
+            tileQuery.setPropertyNames(withGeometry);
+        }
+        Grid grid = new Grid(geometryName, xs, ys, target);
+
+        PropertyName property = FF.property(geometryName);
+        List<Partition> tiles = new ArrayList<Partition>();
+        for (int row = 0; row < rows; row++) {
+            for (int column = 0; column < columns; column++) {
+                ReferencedEnvelope tile = new ReferencedEnvelope(xs[column], xs[column + 1],
+                        ys[row], ys[row + 1], bounds.getCoordinateReferenceSystem());
+                Filter filter = FF.bbox(property, tile);
+                if (row == 0 && column == 0) {
+                    filter = FF.or(filter, FF.isNull(property));
+                }
+                tiles.add(new Tile(restrict(tileQuery, filter), grid, column, row));
+            }
+        }
+        return read(tiles);
+    }
+
+    FeatureReader<SimpleFeatureType, SimpleFeature> read(List<Partition> ranges) {
+        return new PartitionedFeatureReader(source, ranges, ordered, queueSize);
+    }
+
+    boolean isPartitionable(Query query) {
+        if (partitions < 2) {
+            return false;
+        } else if (query.getMaxFeatures() != Query.DEFAULT_MAX || query.getStartIndex() != null) {
+            LOGGER.fine("Limited query, reading a single range");
+            return false;
+        } else if (source instanceof FeatureStore
+                && ((FeatureStore<?, ?>) source).getTransaction() != Transaction.AUTO_COMMIT) {
+            LOGGER.fine("Source bound to a transaction, reading a single range");
+            return false;
+        }
+        return true;
+    }
+
+    String getTypeName(Query query) {
+        return query.getTypeName() != null ? query.getTypeName() : source.getSchema()
+                .getTypeName();
+    }
+
+    static Filter filter(Query query) {
+        return query.getFilter() != null ? query.getFilter() : Filter.INCLUDE;
+    }
+
+    static Query restrict(Query query, Filter range) {
+        Query restricted = new Query(query);
+        Filter filter = filter(query);
+        if (filter != Filter.INCLUDE && range != Filter.INCLUDE) {
+            restricted.setFilter(FF.and(filter, range));
+        } else if (range != Filter.INCLUDE) {
+            restricted.setFilter(range);
+        }
+        return restricted;
+    }
+
+    static Object value(CalcResult result) {
+        return result == null ? null : result.getValue();
+    }
+
+    /**
+     * Returns the inner bounds splitting [lower, upper] in at most count ranges, integral values
+     * are split on integral bounds
+     */
+    static Number[] split(Number lower, Number upper, int count) {
+        if (isIntegral(lower) && isIntegral(upper)) {
+            long min = lower.longValue();
+            long span = upper.longValue() - min + 1;
+            if (span <= 1) {
+                return new Number[0];
+            }
+            count = (int) Math.min(count, span);
+            long step = span / count + (span % count == 0 ? 0 : 1);
+            List<Number> bounds = new ArrayList<Number>();
+            for (long bound = min + step; bound <= upper.longValue(); bound += step) {
+                bounds.add(Long.valueOf(bound));
+            }
+            return bounds.toArray(new Number[bounds.size()]);
+        }
+
+        double min = lower.doubleValue();
+        double max = upper.doubleValue();
+        if (!(max > min)) {
+            return new Number[0];
+        }
+        Number[] bounds = new Number[count - 1];
+        for (int i = 1; i < count; i++) {
+            bounds[i - 1] = Double.valueOf(min + (max - min) * i / count);
+        }
+        return bounds;
+    }
+
+    static boolean isIntegral(Number value) {
+        return value instanceof Long || value instanceof Integer || value instanceof Short
+                || value instanceof Byte;
+    }
+
+    static double[] edges(double min, double max, int count) {
+        double[] edges = new double[count + 1];
+        for (int i = 0; i < count; i++) {
+            edges[i] = min + (max - min) * i / count;
+        }
+        edges[count] = max;
+        return edges;
+    }
+
+    /**
+     * The query of a range and the features of its result it returns
+     */
+    static class Partition {
+        final Query query;
+
+        Partition(Query query) {
+            this.query = query;
+        }
+
+        boolean accept(SimpleFeature feature) {
+            return true;
+        }
+
+        /**
+         * The feature as returned to the caller
+         */
+        SimpleFeature retype(SimpleFeature feature) {
+            return feature;
+        }
+    }
+
+    /**
+     * The tiles of a scan and the state they share
+     */
+    static class Grid {
+        final String geometryName;
+
+        final double[] xs;
+
+        final double[] ys;
+
+        /** the type of the query if the geometry was only added for the tiles, null otherwise */
+        final SimpleFeatureType target;
+
+        /** ids of the features crossing tile edges already returned by a tile */
+        final Set<String> crossing = Collections
+                .newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        Grid(String geometryName, double[] xs, double[] ys, SimpleFeatureType target) {
+            this.geometryName = geometryName;
+            this.xs = xs;
+            this.ys = ys;
+            this.target = target;
+        }
+    }
+
+    /**
+     * Grid tile, returns the features whose envelope lies in the tile and the features crossing
+     * its edges no other tile returned yet
+     */
+    static class Tile extends Partition {
+        final Grid grid;
+
+        final int column;
+
+        final int row;
+
+        Tile(Query query, Grid grid, int column, int row) {
+            super(query);
+            this.grid = grid;
+            this.column = column;
+            this.row = row;
+        }
+
+        @Override
+        boolean accept(SimpleFeature feature) {
+            Object geometry = feature.getAttribute(grid.geometryName);
+            if (!(geometry instanceof Geometry) || ((Geometry) geometry).isEmpty()) {
+                // only matched by the first tile
+                return column == 0 && row == 0;
+            }
+
+            Envelope envelope = ((Geometry) geometry).getEnvelopeInternal();
+            int minColumn = index(grid.xs, envelope.getMinX());
+            int minRow = index(grid.ys, envelope.getMinY());
+            if (minColumn == index(grid.xs, envelope.getMaxX())
+                    && minRow == index(grid.ys, envelope.getMaxY())) {
+                // returned by this tile whatever the BBOX semantics, and by a neighbour at most
+                // when touching its edge
+                return minColumn == column && minRow == row;
+            }
+
+            // an exact BBOX filter only returns it from the tiles its geometry crosses, which
+            // need not include the one holding the corner of its envelope
+            String id = feature.getID();
+            if (id == null) {
+                return minColumn == column && minRow == row;
+            }
+            return grid.crossing.add(id);
+        }
+
+        @Override
+        SimpleFeature retype(SimpleFeature feature) {
+            if (grid.target == null) {
+                return feature;
+            }
+            return SimpleFeatureBuilder.retype(feature, grid.target);
+        }
+
+        /**
+         * The last cell whose lower edge is at or below the value, the same edges as the tile
+         * filters so a value always falls in a tile intersecting it
+         */
+        static int index(double[] edges, double value) {
+            int index = 0;
+            while (index < edges.length - 2 && edges[index + 1] <= value) {
+                index++;
+            }
+            return index;
+        }
+    }
+}
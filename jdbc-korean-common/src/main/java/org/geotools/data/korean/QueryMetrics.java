@@ -0,0 +1,385 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.lang.management.ManagementFactory;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.geotools.util.logging.Logging;
+
+/**
+ * Query timings of a datastore, per table: statement latency histograms, rows fetched, WKB bytes
+ * decoded and decode time, plus the time spent waiting for pooled connections.
+ * <p>
+ * The statements are timed by {@link MetricsDataSource} and the geometries by
+ * {@link WKBAttributeIO}, the table of a statement is the first one named in its SQL. The metrics
+ * can be published as JMX MBeans with {@link #register(String)}, one for the datastore and one per
+ * table, and forwarded to {@link QueryMetricsListener}s.
+ */
+public class QueryMetrics implements QueryMetricsListener, QueryMetricsMBean {
+    protected static final Logger LOGGER = Logging.getLogger(QueryMetrics.class);
+
+    /** table of the statements not naming one */
+    public static final String OTHER = "<other>";
+
+    static final String DOMAIN = "org.geotools.data.korean";
+
+    /** object name -> the MBean registered under it, to only remove the MBeans still owned */
+    static final Map<ObjectName, Object> REGISTERED = new HashMap<ObjectName, Object>();
+
+    /** the first table after FROM, INTO or UPDATE, possibly qualified and quoted */
+    static final Pattern TABLE = Pattern.compile("\\b(?:FROM|INTO|UPDATE)\\s+"
+            + "((?:\"[^\"]+\"|[\\w$#]+)(?:\\s*\\.\\s*(?:\"[^\"]+\"|[\\w$#]+))*)",
+            Pattern.CASE_INSENSITIVE);
+
+    /** a part of a qualified name */
+    static final Pattern PART = Pattern.compile("\"[^\"]+\"|[\\w$#]+");
+
+    /** table -> metrics */
+    final ConcurrentMap<String, TableMetrics> tables =
+            new ConcurrentHashMap<String, TableMetrics>();
+
+    final List<QueryMetricsListener> listeners = new CopyOnWriteArrayList<QueryMetricsListener>();
+
+    final AtomicLong connectionWaits = new AtomicLong();
+
+    final AtomicLong connectionWaitNanos = new AtomicLong();
+
+    final AtomicLong maxConnectionWaitNanos = new AtomicLong();
+
+    /** the name the MBeans are registered with, null if they are not */
+    String name;
+
+    public void addListener(QueryMetricsListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(QueryMetricsListener listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * The metrics of the table, null if it was never queried
+     */
+    public TableMetrics getTableMetrics(String table) {
+        return tables.get(table);
+    }
+
+    public Collection<TableMetrics> getTableMetrics() {
+        return new ArrayList<TableMetrics>(tables.values());
+    }
+
+    public void queryExecuted(String table, String sql, long nanos, SQLException failure) {
+        table(table).queryExecuted(nanos, failure != null);
+        if (LOGGER.isLoggable(Level.FINER)) {
+            LOGGER.finer(table + ": " + TimeUnit.NANOSECONDS.toMillis(nanos) + " ms, " + sql);
+        }
+        for (QueryMetricsListener listener : listeners) {
+            try {
+                listener.queryExecuted(table, sql, nanos, failure);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Query metrics listener failed", e);
+            }
+        }
+    }
+
+    public void rowsFetched(String table, long rows) {
+        table(table).rowsFetched(rows);
+        for (QueryMetricsListener listener : listeners) {
+            try {
+                listener.rowsFetched(table, rows);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Query metrics listener failed", e);
+            }
+        }
+    }
+
+    public void geometryDecoded(String table, long bytes, long nanos) {
+        table(table).geometryDecoded(bytes, nanos);
+        for (QueryMetricsListener listener : listeners) {
+            try {
+                listener.geometryDecoded(table, bytes, nanos);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Query metrics listener failed", e);
+            }
+        }
+    }
+
+    /**
+     * Records a geometry decoded from the result set, attributed to the table of its query when
+     * the result set comes from a {@link MetricsDataSource}
+     */
+    public void geometryDecoded(ResultSet rs, long bytes, long nanos) {
+        geometryDecoded(MetricsConnection.tableOf(rs), bytes, nanos);
+    }
+
+    public void connectionAcquired(long nanos) {
+        connectionWaits.incrementAndGet();
+        connectionWaitNanos.addAndGet(nanos);
+        TableMetrics.max(maxConnectionWaitNanos, nanos);
+        for (QueryMetricsListener listener : listeners) {
+            try {
+                listener.connectionAcquired(nanos);
+            } catch (RuntimeException e) {
+                LOGGER.log(Level.FINE, "Query metrics listener failed", e);
+            }
+        }
+    }
+
+    TableMetrics table(String table) {
+        TableMetrics metrics = tables.get(table);
+        if (metrics == null) {
+            TableMetrics created = new TableMetrics(table);
+            metrics = tables.putIfAbsent(table, created);
+            if (metrics == null) {
+                metrics = created;
+                register(metrics);
+            }
+        }
+        return metrics;
+    }
+
+    /**
+     * The table named by the statement, without schema and quotes
+     */
+    static String tableOf(String sql) {
+        if (sql == null) {
+            return OTHER;
+        }
+        Matcher matcher = TABLE.matcher(sql);
+        if (!matcher.find()) {
+            return OTHER;
+        }
+        // the last part of the qualified name
+        String table = null;
+        Matcher part = PART.matcher(matcher.group(1));
+        while (part.find()) {
+            table = part.group();
+        }
+        if (table.startsWith("\"")) {
+            table = table.substring(1, table.length() - 1);
+        }
+        return table;
+    }
+
+    public long getQueries() {
+        long count = 0;
+        for (TableMetrics metrics : tables.values()) {
+            count += metrics.getQueries();
+        }
+        return count;
+    }
+
+    public long getFailedQueries() {
+        long count = 0;
+        for (TableMetrics metrics : tables.values()) {
+            count += metrics.getFailedQueries();
+        }
+        return count;
+    }
+
+    public long getRowsFetched() {
+        long count = 0;
+        for (TableMetrics metrics : tables.values()) {
+            count += metrics.getRowsFetched();
+        }
+        return count;
+    }
+
+    public long getGeometriesDecoded() {
+        long count = 0;
+        for (TableMetrics metrics : tables.values()) {
+            count += metrics.getGeometriesDecoded();
+        }
+        return count;
+    }
+
+    public long getWKBBytesDecoded() {
+        long count = 0;
+        for (TableMetrics metrics : tables.values()) {
+            count += metrics.getWKBBytesDecoded();
+        }
+        return count;
+    }
+
+    public long getDecodeTimeMillis() {
+        long nanos = 0;
+        for (TableMetrics metrics : tables.values()) {
+            nanos += metrics.decodeNanos.get();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+
+    public long getConnectionWaits() {
+        return connectionWaits.get();
+    }
+
+    public long getConnectionWaitTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(connectionWaitNanos.get());
+    }
+
+    public long getMaxConnectionWaitMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxConnectionWaitNanos.get());
+    }
+
+    public String[] getTableNames() {
+        return tables.keySet().toArray(new String[0]);
+    }
+
+    public void reset() {
+        for (TableMetrics metrics : tables.values()) {
+            metrics.reset();
+        }
+        connectionWaits.set(0);
+        connectionWaitNanos.set(0);
+        maxConnectionWaitNanos.set(0);
+    }
+
+    /**
+     * Publishes the metrics in the platform MBean server, replacing the MBeans of a previous
+     * datastore registered with the same name. The previous datastore no longer publishes its
+     * tables and does not remove the new MBeans when it is disposed.
+     */
+    public synchronized void register(String name) {
+        unregister();
+        this.name = name;
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName previous : server.queryNames(namePattern(), null)) {
+            unregister(previous);
+        }
+        register(this, objectName(null));
+        for (TableMetrics metrics : tables.values()) {
+            register(metrics);
+        }
+    }
+
+    /**
+     * Removes the MBeans of the datastore and of its tables, unless another datastore replaced
+     * them since
+     */
+    public synchronized void unregister() {
+        if (name == null) {
+            return;
+        }
+        unregister(this, objectName(null));
+        for (TableMetrics metrics : tables.values()) {
+            unregister(metrics, objectName(metrics.getTable()));
+        }
+        name = null;
+    }
+
+    public synchronized String getName() {
+        return name;
+    }
+
+    synchronized void register(TableMetrics metrics) {
+        if (name != null && isRegistered(this, objectName(null))) {
+            register(metrics, objectName(metrics.getTable()));
+        }
+    }
+
+    ObjectName objectName(String table) {
+        try {
+            StringBuilder sb = new StringBuilder(DOMAIN);
+            sb.append(":type=").append(table == null ? "QueryMetrics" : "TableMetrics");
+            sb.append(",name=").append(ObjectName.quote(name));
+            if (table != null) {
+                sb.append(",table=").append(ObjectName.quote(table));
+            }
+            return new ObjectName(sb.toString());
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid MBean name for " + name, e);
+        }
+    }
+
+    ObjectName namePattern() {
+        try {
+            return new ObjectName(DOMAIN + ":name=" + ObjectName.quote(name) + ",*");
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid MBean name for " + name, e);
+        }
+    }
+
+    static void register(Object mbean, ObjectName objectName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (REGISTERED) {
+            try {
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+                REGISTERED.remove(objectName);
+                server.registerMBean(mbean, objectName);
+                REGISTERED.put(objectName, mbean);
+            } catch (JMException e) {
+                LOGGER.log(Level.WARNING, "Failed to register " + objectName, e);
+            }
+        }
+    }
+
+    /**
+     * Returns true if the MBean is still the one registered under the name
+     */
+    static boolean isRegistered(Object mbean, ObjectName objectName) {
+        synchronized (REGISTERED) {
+            return REGISTERED.get(objectName) == mbean;
+        }
+    }
+
+    /**
+     * Removes the MBean registered under the name if it is still the given one
+     */
+    static void unregister(Object mbean, ObjectName objectName) {
+        synchronized (REGISTERED) {
+            if (REGISTERED.get(objectName) == mbean) {
+                unregister(objectName);
+            }
+        }
+    }
+
+    static void unregister(ObjectName objectName) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        synchronized (REGISTERED) {
+            try {
+                REGISTERED.remove(objectName);
+                if (server.isRegistered(objectName)) {
+                    server.unregisterMBean(objectName);
+                }
+            } catch (JMException e) {
+                LOGGER.log(Level.FINE, "Failed to unregister " + objectName, e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.SQLException;
+
+/**
+ * Receives the timings recorded by {@link QueryMetrics}, to forward them to a monitoring system.
+ * <p>
+ * The methods are called on the threads running the queries, while the connection is held, and
+ * should return quickly. Table names are parsed from the SQL, {@link QueryMetrics#OTHER} stands
+ * for the statements without one.
+ */
+public interface QueryMetricsListener {
+
+    /**
+     * A statement was executed
+     *
+     * @param failure the error of the statement, null if it succeeded
+     */
+    void queryExecuted(String table, String sql, long nanos, SQLException failure);
+
+    /**
+     * The result of a query was read to its end or closed
+     */
+    void rowsFetched(String table, long rows);
+
+    /**
+     * A WKB value was read and decoded
+     */
+    void geometryDecoded(String table, long bytes, long nanos);
+
+    /**
+     * A connection was obtained from the pool
+     */
+    void connectionAcquired(long nanos);
+}
@@ -0,0 +1,48 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+/**
+ * JMX view of the {@link QueryMetrics} of a datastore, over all its tables
+ */
+public interface QueryMetricsMBean {
+
+    long getQueries();
+
+    long getFailedQueries();
+
+    long getRowsFetched();
+
+    long getGeometriesDecoded();
+
+    long getWKBBytesDecoded();
+
+    long getDecodeTimeMillis();
+
+    long getConnectionWaits();
+
+    long getConnectionWaitTimeMillis();
+
+    long getMaxConnectionWaitMillis();
+
+    /**
+     * The tables queried so far, each with its own {@link TableMetricsMBean}
+     */
+    String[] getTableNames();
+
+    void reset();
+}
@@ -0,0 +1,222 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.SQLSyntaxErrorException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+
+/**
+ * Hands out sequence values from blocks reserved with a single multi-row NEXTVAL query, so that
+ * inserting features does not cost one round trip per feature.
+ * <p>
+ * Values left in a block when the datastore is disposed are lost, leaving a gap in the sequence
+ * as a rolled back transaction does. If the database rejects the syntax of the block query while
+ * the single value query works, the allocator reads the values of that sequence one at a time
+ * from then on. Any other failure of the block query is thrown.
+ */
+public class SequenceAllocator {
+    protected static final Logger LOGGER = Logging.getLogger(SequenceAllocator.class);
+
+    /** default number of values reserved per query */
+    public static final int DEFAULT_BLOCK_SIZE = 100;
+
+    /**
+     * Reserved values of a sequence
+     */
+    static final class Block {
+        long[] values = new long[0];
+
+        int next;
+
+        int size;
+
+        boolean isEmpty() {
+            return next >= size;
+        }
+    }
+
+    final JDBCDataStore dataStore;
+
+    int blockSize = DEFAULT_BLOCK_SIZE;
+
+    /** schema.sequence of the sequences whose block query was rejected */
+    final Set<String> blocksUnsupported = new HashSet<String>();
+
+    /** schema.sequence -> reserved values */
+    final Map<String, Block> blocks = new HashMap<String, Block>();
+
+    public SequenceAllocator(JDBCDataStore dataStore) {
+        this.dataStore = dataStore;
+    }
+
+    public int getBlockSize() {
+        return blockSize;
+    }
+
+    /**
+     * Sets the number of values reserved per query, 1 or less reads one value per insert
+     */
+    public synchronized void setBlockSize(int blockSize) {
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the next value of the sequence, or null if the sequence returned no value
+     */
+    public synchronized Long next(String schemaName, String sequenceName, Connection cx)
+            throws SQLException {
+        String key = schemaName + '\u0000' + sequenceName;
+        Block block = blocks.get(key);
+        if (block == null) {
+            block = new Block();
+            blocks.put(key, block);
+        }
+
+        if (block.isEmpty()) {
+            fill(block, key, sequenceName, cx);
+            if (block.isEmpty()) {
+                return null;
+            }
+        }
+        return Long.valueOf(block.values[block.next++]);
+    }
+
+    /**
+     * Drops the reserved values of all sequences
+     */
+    public synchronized void reset() {
+        blocks.clear();
+    }
+
+    void fill(Block block, String key, String sequenceName, Connection cx) throws SQLException {
+        block.next = 0;
+        block.size = 0;
+        SQLException rejected = null;
+        if (blockSize > 1 && !blocksUnsupported.contains(key)) {
+            if (block.values.length != blockSize) {
+                block.values = new long[blockSize];
+            }
+
+            Statement st = null;
+            ResultSet rs = null;
+            Savepoint savePoint = null;
+            try {
+                st = cx.createStatement();
+                if (!cx.getAutoCommit()) {
+                    savePoint = cx.setSavepoint();
+                }
+
+                String sql = selectNextValues(sequenceName, blockSize);
+                LOGGER.fine(sql);
+                rs = st.executeQuery(sql);
+                while (block.size < blockSize && rs.next()) {
+                    block.values[block.size++] = rs.getLong(1);
+                }
+                // the rows are not guaranteed to come back in sequence order
+                Arrays.sort(block.values, 0, block.size);
+                return;
+            } catch (SQLException e) {
+                if (savePoint != null) {
+                    cx.rollback(savePoint);
+                }
+                if (!isRejectedSyntax(e)) {
+                    throw e;
+                }
+                // confirmed below by the single value query
+                rejected = e;
+            } finally {
+                if (savePoint != null) {
+                    cx.releaseSavepoint(savePoint);
+                }
+                dataStore.closeSafe(rs);
+                dataStore.closeSafe(st);
+            }
+        }
+
+        if (block.values.length == 0) {
+            block.values = new long[1];
+        }
+
+        Statement st = cx.createStatement();
+        try {
+            String sql = selectNextValue(sequenceName);
+            LOGGER.fine(sql);
+            ResultSet rs = st.executeQuery(sql);
+            try {
+                if (rs.next()) {
+                    block.values[0] = rs.getLong(1);
+                    block.size = 1;
+                }
+            } finally {
+                dataStore.closeSafe(rs);
+            }
+        } finally {
+            dataStore.closeSafe(st);
+        }
+
+        if (rejected != null) {
+            blocksUnsupported.add(key);
+            LOGGER.log(Level.WARNING, "Failed to reserve a block of values from "
+                    + sequenceName + ", falling back on one value per insert", rejected);
+        }
+    }
+
+    /**
+     * Returns true if the exception may come from the database not supporting the block query,
+     * rather than from the sequence, the connection or the transaction. Drivers that do not set
+     * the SQL state are given the benefit of the doubt.
+     */
+    static boolean isRejectedSyntax(SQLException e) {
+        if (e instanceof SQLSyntaxErrorException || e instanceof SQLFeatureNotSupportedException) {
+            return true;
+        }
+        String state = e.getSQLState();
+        // 42: syntax error or access rule violation, 0A: feature not supported
+        return state == null || state.startsWith("42") || state.startsWith("0A");
+    }
+
+    /**
+     * The query returning count values of the sequence, one per row
+     */
+    protected String selectNextValues(String sequenceName, int count) {
+        // SELECT seq_building_fid.NEXTVAL FROM DUAL CONNECT BY LEVEL <= 100;
+        return "SELECT \"" + sequenceName + "\".NEXTVAL FROM DUAL CONNECT BY LEVEL <= " + count;
+    }
+
+    /**
+     * The query returning the next value of the sequence
+     */
+    protected String selectNextValue(String sequenceName) {
+        // SELECT seq_building_fid.NEXTVAL FROM DUAL;
+        return "SELECT \"" + sequenceName + "\".NEXTVAL FROM DUAL";
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Query timings of one table: latency histogram, rows fetched and geometries decoded
+ */
+public class TableMetrics implements TableMetricsMBean {
+
+    /** upper bounds of the latency buckets, in milliseconds */
+    static final long[] BUCKETS = { 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000,
+            Long.MAX_VALUE };
+
+    final String table;
+
+    final AtomicLong queries = new AtomicLong();
+
+    final AtomicLong failedQueries = new AtomicLong();
+
+    final AtomicLong totalNanos = new AtomicLong();
+
+    final AtomicLong maxNanos = new AtomicLong();
+
+    final AtomicLongArray histogram = new AtomicLongArray(BUCKETS.length);
+
+    final AtomicLong rowsFetched = new AtomicLong();
+
+    final AtomicLong geometriesDecoded = new AtomicLong();
+
+    final AtomicLong wkbBytesDecoded = new AtomicLong();
+
+    final AtomicLong decodeNanos = new AtomicLong();
+
+    TableMetrics(String table) {
+        this.table = table;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    void queryExecuted(long nanos, boolean failed) {
+        queries.incrementAndGet();
+        if (failed) {
+            failedQueries.incrementAndGet();
+        }
+        totalNanos.addAndGet(nanos);
+        max(maxNanos, nanos);
+        histogram.incrementAndGet(bucket(TimeUnit.NANOSECONDS.toMillis(nanos)));
+    }
+
+    void rowsFetched(long rows) {
+        rowsFetched.addAndGet(rows);
+    }
+
+    void geometryDecoded(long bytes, long nanos) {
+        geometriesDecoded.incrementAndGet();
+        wkbBytesDecoded.addAndGet(bytes);
+        decodeNanos.addAndGet(nanos);
+    }
+
+    static int bucket(long millis) {
+        int index = Arrays.binarySearch(BUCKETS, millis);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    static void max(AtomicLong max, long value) {
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+
+    public long getQueries() {
+        return queries.get();
+    }
+
+    public long getFailedQueries() {
+        return failedQueries.get();
+    }
+
+    public long getTotalTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(totalNanos.get());
+    }
+
+    public double getMeanTimeMillis() {
+        long count = queries.get();
+        return count == 0 ? 0 : totalNanos.get() / 1e6 / count;
+    }
+
+    public long getMaxTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(maxNanos.get());
+    }
+
+    public long[] getLatencyBucketsMillis() {
+        return BUCKETS.clone();
+    }
+
+    public long[] getLatencyHistogram() {
+        long[] counts = new long[histogram.length()];
+        for (int i = 0; i < counts.length; i++) {
+            counts[i] = histogram.get(i);
+        }
+        return counts;
+    }
+
+    public long getRowsFetched() {
+        return rowsFetched.get();
+    }
+
+    public long getGeometriesDecoded() {
+        return geometriesDecoded.get();
+    }
+
+    public long getWKBBytesDecoded() {
+        return wkbBytesDecoded.get();
+    }
+
+    public long getDecodeTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(decodeNanos.get());
+    }
+
+    public void reset() {
+        queries.set(0);
+        failedQueries.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+        for (int i = 0; i < histogram.length(); i++) {
+            histogram.set(i, 0);
+        }
+        rowsFetched.set(0);
+        geometriesDecoded.set(0);
+        wkbBytesDecoded.set(0);
+        decodeNanos.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return "TableMetrics[" + table + ": " + getQueries() + " queries, mean "
+                + getMeanTimeMillis() + " ms, max " + getMaxTimeMillis() + " ms, "
+                + getRowsFetched() + " rows]";
+    }
+}
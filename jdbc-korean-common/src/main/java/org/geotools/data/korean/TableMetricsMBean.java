@@ -0,0 +1,51 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+/**
+ * JMX view of the query timings of one table
+ */
+public interface TableMetricsMBean {
+
+    long getQueries();
+
+    long getFailedQueries();
+
+    long getTotalTimeMillis();
+
+    double getMeanTimeMillis();
+
+    long getMaxTimeMillis();
+
+    /**
+     * The upper bounds, in milliseconds, of the buckets of {@link #getLatencyHistogram()}, the
+     * last bucket holds the slower queries
+     */
+    long[] getLatencyBucketsMillis();
+
+    long[] getLatencyHistogram();
+
+    long getRowsFetched();
+
+    long getGeometriesDecoded();
+
+    long getWKBBytesDecoded();
+
+    long getDecodeTimeMillis();
+
+    void reset();
+}
@@ -0,0 +1,225 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.awt.RenderingHints.Key;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataAccess;
+import org.geotools.data.FeatureListener;
+import org.geotools.data.FeatureStore;
+import org.geotools.data.Query;
+import org.geotools.data.QueryCapabilities;
+import org.geotools.data.ResourceInfo;
+import org.geotools.data.Transaction;
+import org.geotools.data.collection.ListFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.factory.Hints;
+import org.geotools.geometry.jts.ReferencedEnvelope;
+import org.geotools.jdbc.ConnectionLifecycleListener;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.Name;
+import org.opengis.filter.Filter;
+import org.opengis.filter.sort.SortBy;
+
+/**
+ * Feature source answering repeated queries from the {@link FeatureCache} of its datastore.
+ * <p>
+ * The results are keyed by the layer and everything in the query changing its result: the filter,
+ * holding the tile bounds of map requests, the attributes, the sorting, the paging, the
+ * reprojection and the simplification hints. A result larger than the entries of the cache is
+ * read again from the database each time. Sources bound to a transaction, which may see
+ * uncommitted changes, are never cached.
+ * <p>
+ * The features returned from the cache are shared between the callers and must not be modified.
+ */
+public class TileCachedFeatureSource implements SimpleFeatureSource {
+    protected static final Logger LOGGER = Logging.getLogger(TileCachedFeatureSource.class);
+
+    final SimpleFeatureSource delegate;
+
+    final FeatureCache cache;
+
+    public TileCachedFeatureSource(SimpleFeatureSource delegate, FeatureCache cache) {
+        this.delegate = delegate;
+        this.cache = cache;
+    }
+
+    /**
+     * Wraps the source if its datastore has a feature cache, returns it as is otherwise
+     */
+    public static SimpleFeatureSource wrap(SimpleFeatureSource source) {
+        if (source.getDataStore() instanceof JDBCDataStore) {
+            JDBCDataStore store = (JDBCDataStore) source.getDataStore();
+            for (ConnectionLifecycleListener listener : store.getConnectionLifecycleListeners()) {
+                if (listener instanceof FeatureCache) {
+                    return new TileCachedFeatureSource(source, (FeatureCache) listener);
+                }
+            }
+        }
+        return source;
+    }
+
+    public SimpleFeatureSource getDelegate() {
+        return delegate;
+    }
+
+    public SimpleFeatureCollection getFeatures(Query query) throws IOException {
+        if (!isCacheable()) {
+            return delegate.getFeatures(query);
+        }
+
+        String typeName = delegate.getSchema().getTypeName();
+        String key = key(typeName, query);
+        FeatureCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            return new ListFeatureCollection(entry.schema, entry.features);
+        } else if (cache.isOversized(key)) {
+            return delegate.getFeatures(query);
+        }
+
+        long generation = cache.getGeneration(typeName);
+        SimpleFeatureCollection result = delegate.getFeatures(query);
+        List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+        long size = 0;
+        long limit = cache.getMaxEntryBytes();
+        SimpleFeatureIterator it = result.features();
+        try {
+            while (it.hasNext()) {
+                SimpleFeature feature = it.next();
+                size += FeatureCache.sizeOf(feature);
+                if (size > limit) {
+                    LOGGER.fine("Result of " + typeName + " too large to cache: " + key);
+                    cache.oversized(key);
+                    return result;
+                }
+                features.add(feature);
+            }
+        } finally {
+            it.close();
+        }
+
+        features = Collections.unmodifiableList(features);
+        cache.put(typeName, key, generation, result.getSchema(), features, size);
+        return new ListFeatureCollection(result.getSchema(), features);
+    }
+
+    public SimpleFeatureCollection getFeatures(Filter filter) throws IOException {
+        return getFeatures(new Query(delegate.getSchema().getTypeName(), filter));
+    }
+
+    public SimpleFeatureCollection getFeatures() throws IOException {
+        return getFeatures(Filter.INCLUDE);
+    }
+
+    boolean isCacheable() {
+        return !(delegate instanceof FeatureStore)
+                || ((FeatureStore<?, ?>) delegate).getTransaction() == Transaction.AUTO_COMMIT;
+    }
+
+    /**
+     * The type name first, so the oversized keys of a table can be dropped with its results
+     */
+    static String key(String typeName, Query query) {
+        StringBuilder sb = new StringBuilder(typeName);
+        sb.append('\u0000').append(query.getFilter() != null ? query.getFilter() : Filter.INCLUDE);
+        sb.append('\u0000');
+        String[] propertyNames = query.getPropertyNames();
+        if (propertyNames != null) {
+            for (String propertyName : propertyNames) {
+                sb.append(propertyName).append(',');
+            }
+        } else {
+            sb.append('*');
+        }
+        sb.append('\u0000');
+        SortBy[] sortBy = query.getSortBy();
+        if (sortBy != null) {
+            for (SortBy sort : sortBy) {
+                if (sort.getPropertyName() != null) {
+                    sb.append(sort.getPropertyName().getPropertyName());
+                }
+                sb.append(' ').append(sort.getSortOrder().toSQL()).append(',');
+            }
+        }
+        sb.append('\u0000').append(query.getMaxFeatures());
+        sb.append('\u0000').append(query.getStartIndex());
+        sb.append('\u0000').append(query.getCoordinateSystem());
+        sb.append('\u0000').append(query.getCoordinateSystemReproject());
+        Hints hints = query.getHints();
+        if (hints != null) {
+            sb.append('\u0000').append(hints.get(Hints.GEOMETRY_SIMPLIFICATION));
+            sb.append('\u0000').append(hints.get(Hints.GEOMETRY_DISTANCE));
+            sb.append('\u0000').append(hints.get(Hints.GEOMETRY_GENERALIZATION));
+        }
+        return sb.toString();
+    }
+
+    public Name getName() {
+        return delegate.getName();
+    }
+
+    public ResourceInfo getInfo() {
+        return delegate.getInfo();
+    }
+
+    public DataAccess<SimpleFeatureType, SimpleFeature> getDataStore() {
+        return delegate.getDataStore();
+    }
+
+    public QueryCapabilities getQueryCapabilities() {
+        return delegate.getQueryCapabilities();
+    }
+
+    public void addFeatureListener(FeatureListener listener) {
+        delegate.addFeatureListener(listener);
+    }
+
+    public void removeFeatureListener(FeatureListener listener) {
+        delegate.removeFeatureListener(listener);
+    }
+
+    public SimpleFeatureType getSchema() {
+        return delegate.getSchema();
+    }
+
+    public ReferencedEnvelope getBounds() throws IOException {
+        return delegate.getBounds();
+    }
+
+    public ReferencedEnvelope getBounds(Query query) throws IOException {
+        return delegate.getBounds(query);
+    }
+
+    public int getCount(Query query) throws IOException {
+        return delegate.getCount(query);
+    }
+
+    public Set<Key> getSupportedHints() {
+        return delegate.getSupportedHints();
+    }
+}
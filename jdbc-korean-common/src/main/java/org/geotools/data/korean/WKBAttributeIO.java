@@ -0,0 +1,280 @@
+package org.geotools.data.korean;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+import org.geotools.data.DataSourceException;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.ByteArrayInStream;
+import com.vividsolutions.jts.io.InStream;
+import com.vividsolutions.jts.io.ParseException;
+
+/**
+ * An attribute IO implementation that can manage the WKB
+ * <p>
+ * Decoding and encoding go through {@link WKBDecoder} and {@link WKBEncoder} with the
+ * {@link WKBQuirks} of the database.
+ * 
+ * @author Andrea Aime
+ * 
+ * @source $URL:
+ *         http://svn.osgeo.org/geotools/branches/2.7.x/modules/plugin/jdbc/jdbc-postgis/src/main
+ *         /java/org/geotools/data/postgis/WKBAttributeIO.java $
+ * @since 2.4.1
+ */
+public class WKBAttributeIO {
+
+    WKBDecoder wkbr;
+
+    final WKBQuirks quirks;
+
+    ByteArrayInStream inStream = new ByteArrayInStream(new byte[0]);
+
+    BufferedInStream bufferedStream = new BufferedInStream();
+
+    /** false once the driver failed to return a binary stream, bytes are read instead */
+    boolean streaming = true;
+
+    GeometryFactory gf;
+
+    /** records the decoded geometries, null when the datastore has no metrics */
+    QueryMetrics metrics;
+
+    /** size of the last decoded value */
+    long size;
+
+    public WKBAttributeIO() {
+        this(new GeometryFactory());
+    }
+
+    public WKBAttributeIO(GeometryFactory gf) {
+        this(gf, WKBQuirks.OGC);
+    }
+
+    public WKBAttributeIO(GeometryFactory gf, WKBQuirks quirks) {
+        this.gf = gf;
+        this.quirks = quirks;
+        wkbr = new WKBDecoder(gf, quirks);
+    }
+
+    /**
+     * Sets the factory of the decoded geometries. The reader is only rebuilt when the factory
+     * changes, the same factory is passed for every row of a query.
+     */
+    public void setGeometryFactory(GeometryFactory gf) {
+        if (gf != this.gf) {
+            this.gf = gf;
+            wkbr = new WKBDecoder(gf, quirks);
+        }
+    }
+
+    public void setMetrics(QueryMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * This method will convert a Well Known Binary representation to a JTS Geometry object.
+     * 
+     * @param wkb te wkb encoded byte array
+     * 
+     * @return a JTS Geometry object that is equivalent to the WTB representation passed in by param
+     *         wkb
+     * 
+     * @throws IOException if more than one geometry object was found in the WTB representation, or
+     *         if the parser could not parse the WKB representation.
+     */
+    private Geometry wkb2Geometry(byte[] wkbBytes) throws IOException {
+        if (wkbBytes == null)
+            return null;
+        try {
+            size = wkbBytes.length;
+            inStream.setBytes(wkbBytes);
+            return wkbr.read(inStream);
+        } catch (Exception e) {
+            throw new DataSourceException("An exception occurred while parsing WKB data", e);
+        }
+    }
+
+    /**
+     * Decodes the geometry while reading the binary stream, without copying the whole value
+     */
+    private Geometry wkb2Geometry(InputStream stream) throws IOException {
+        if (stream == null)
+            return null;
+        try {
+            bufferedStream.setStream(stream);
+            return wkbr.read(bufferedStream);
+        } catch (Exception e) {
+            throw new DataSourceException("An exception occurred while parsing WKB data", e);
+        } finally {
+            size = bufferedStream.count;
+            bufferedStream.setStream(null);
+            stream.close();
+        }
+    }
+
+    /**
+     * @see org.geotools.data.jdbc.attributeio.AttributeIO#read(java.sql.ResultSet, int)
+     */
+    public Object read(ResultSet rs, String columnName) throws IOException {
+        if (metrics == null) {
+            return readGeometry(rs, columnName);
+        }
+        long start = System.nanoTime();
+        Geometry geometry = readGeometry(rs, columnName);
+        decoded(rs, geometry, start);
+        return geometry;
+    }
+
+    private Geometry readGeometry(ResultSet rs, String columnName) throws IOException {
+        try {
+            if (streaming) {
+                InputStream stream = null;
+                try {
+                    stream = rs.getBinaryStream(columnName);
+                } catch (SQLException e) {
+                    streaming = false;
+                }
+                if (streaming) {
+                    return wkb2Geometry(stream);
+                }
+            }
+
+            byte bytes[] = rs.getBytes(columnName);
+            if (bytes == null)
+                return null;
+            return wkb2Geometry(bytes);
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * @see org.geotools.data.jdbc.attributeio.AttributeIO#read(java.sql.ResultSet, int)
+     */
+    public Object read(ResultSet rs, int columnIndex) throws IOException {
+        if (metrics == null) {
+            return readGeometry(rs, columnIndex);
+        }
+        long start = System.nanoTime();
+        Geometry geometry = readGeometry(rs, columnIndex);
+        decoded(rs, geometry, start);
+        return geometry;
+    }
+
+    private Geometry readGeometry(ResultSet rs, int columnIndex) throws IOException {
+        try {
+            if (streaming) {
+                InputStream stream = null;
+                try {
+                    stream = rs.getBinaryStream(columnIndex);
+                } catch (SQLException e) {
+                    streaming = false;
+                }
+                if (streaming) {
+                    return wkb2Geometry(stream);
+                }
+            }
+
+            byte bytes[] = rs.getBytes(columnIndex);
+            if (bytes == null)
+                return null;
+            return wkb2Geometry(bytes);
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+    }
+
+    /**
+     * Records the time spent reading and decoding a non null value
+     */
+    private void decoded(ResultSet rs, Geometry geometry, long start) {
+        if (geometry != null) {
+            metrics.geometryDecoded(rs, size, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Reads the envelope of a WKB value without building the geometry. A null value returns an
+     * empty envelope, as an empty geometry does.
+     */
+    public Envelope readEnvelope(ResultSet rs, int columnIndex) throws IOException {
+        try {
+            byte bytes[] = rs.getBytes(columnIndex);
+            if (bytes == null)
+                return new Envelope();
+            inStream.setBytes(bytes);
+            return wkbr.readEnvelope(inStream);
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the envelope.", e);
+        } catch (ParseException e) {
+            throw new DataSourceException("An exception occurred while parsing WKB data", e);
+        }
+    }
+
+    /**
+     * @see org.geotools.data.jdbc.attributeio.AttributeIO#write(java.sql.PreparedStatement, int,
+     *      java.lang.Object)
+     */
+    public void write(PreparedStatement ps, int position, Object value) throws IOException {
+        try {
+            if (value == null) {
+                ps.setNull(position, Types.OTHER);
+            } else {
+                ps.setBytes(position, new WKBEncoder(2, quirks).encode((Geometry) value));
+            }
+        } catch (SQLException e) {
+            throw new DataSourceException("SQL exception occurred while reading the geometry.", e);
+        }
+
+    }
+
+    /**
+     * InStream over a JDBC binary stream, read in blocks through a reusable buffer
+     */
+    static final class BufferedInStream implements InStream {
+        final byte[] buffer = new byte[8192];
+
+        InputStream stream;
+
+        int position;
+
+        int limit;
+
+        /** bytes read from the stream */
+        long count;
+
+        void setStream(InputStream stream) {
+            this.stream = stream;
+            this.position = 0;
+            this.limit = 0;
+            this.count = 0;
+        }
+
+        public void read(byte[] buf) throws IOException {
+            int offset = 0;
+            while (offset < buf.length) {
+                if (position == limit) {
+                    position = 0;
+                    limit = Math.max(0, stream.read(buffer, 0, buffer.length));
+                    count += limit;
+                    if (limit == 0) {
+                        throw new EOFException("Unexpected end of WKB stream");
+                    }
+                }
+                int length = Math.min(buf.length - offset, limit - position);
+                System.arraycopy(buffer, position, buf, offset, length);
+                position += length;
+                offset += length;
+            }
+        }
+    }
+}
@@ -0,0 +1,445 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.CoordinateSequences;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.LinearRing;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.geom.PrecisionModel;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequence;
+import com.vividsolutions.jts.geom.impl.PackedCoordinateSequenceFactory;
+import com.vividsolutions.jts.io.ByteArrayInStream;
+import com.vividsolutions.jts.io.InStream;
+import com.vividsolutions.jts.io.ParseException;
+import com.vividsolutions.jts.io.WKBConstants;
+
+/**
+ * Reads OGC, ISO and Extended (PostGIS) WKB into geometries backed by
+ * {@link PackedCoordinateSequence.Double}.
+ * <p>
+ * 2D, Z, M and ZM coordinates are supported. Coordinates with M are stored with dimension 4, the
+ * third ordinate being NaN when there is no Z. Vendor specific type codes are resolved through
+ * {@link WKBQuirks}. As the JTS reader, structurally invalid line strings and rings are repaired.
+ * <p>
+ * Coordinates are read in blocks through buffers owned by the decoder. Instances are not thread
+ * safe, each thread should use its own.
+ */
+public class WKBDecoder {
+
+    static final int EWKB_Z = 0x80000000;
+
+    static final int EWKB_M = 0x40000000;
+
+    static final int EWKB_SRID = 0x20000000;
+
+    /** number of coordinates read per block */
+    static final int BLOCK_SIZE = 256;
+
+    static final PackedCoordinateSequenceFactory PACKED =
+            PackedCoordinateSequenceFactory.DOUBLE_FACTORY;
+
+    final GeometryFactory factory;
+
+    final WKBQuirks quirks;
+
+    final PrecisionModel precisionModel;
+
+    final boolean floating;
+
+    final ByteBuffer int8 = ByteBuffer.allocate(1);
+
+    final ByteBuffer int32 = ByteBuffer.allocate(4);
+
+    /** one coordinate, indexed by the number of ordinates */
+    final ByteBuffer[] tuples = new ByteBuffer[5];
+
+    /** a block of coordinates, indexed by the number of ordinates */
+    final ByteBuffer[] blocks = new ByteBuffer[5];
+
+    InStream in;
+
+    ByteOrder order;
+
+    boolean hasZ;
+
+    boolean hasM;
+
+    /** the type code and the SRID of the last header read */
+    int header;
+
+    int srid;
+
+    public WKBDecoder(GeometryFactory factory) {
+        this(factory, WKBQuirks.OGC);
+    }
+
+    public WKBDecoder(GeometryFactory factory, WKBQuirks quirks) {
+        this.factory = factory;
+        this.quirks = quirks;
+        this.precisionModel = factory.getPrecisionModel();
+        this.floating = precisionModel.isFloating();
+    }
+
+    public GeometryFactory getGeometryFactory() {
+        return factory;
+    }
+
+    public WKBQuirks getQuirks() {
+        return quirks;
+    }
+
+    /**
+     * Reads a geometry from a byte array
+     */
+    public Geometry read(byte[] bytes) throws ParseException {
+        try {
+            return read(new ByteArrayInStream(bytes));
+        } catch (IOException e) {
+            throw new ParseException("Unexpected IOException caught: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads a geometry from the stream
+     */
+    public Geometry read(InStream is) throws IOException, ParseException {
+        this.in = is;
+        try {
+            return readGeometry();
+        } finally {
+            this.in = null;
+        }
+    }
+
+    /**
+     * Reads the two dimensional envelope of a geometry from a byte array, without building the
+     * geometry
+     */
+    public Envelope readEnvelope(byte[] bytes) throws ParseException {
+        try {
+            return readEnvelope(new ByteArrayInStream(bytes));
+        } catch (IOException e) {
+            throw new ParseException("Unexpected IOException caught: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the two dimensional envelope of a geometry from the stream, without building the
+     * geometry. Empty geometries return an empty envelope, see {@link Envelope#isNull()}.
+     */
+    public Envelope readEnvelope(InStream is) throws IOException, ParseException {
+        this.in = is;
+        try {
+            Envelope envelope = new Envelope();
+            scanGeometry(envelope);
+            return envelope;
+        } finally {
+            this.in = null;
+        }
+    }
+
+    Geometry readGeometry() throws IOException, ParseException {
+        int geometryType = readHeader();
+        int srid = this.srid;
+
+        Geometry geometry;
+        switch (geometryType) {
+        case WKBConstants.wkbPoint:
+            geometry = readPoint();
+            break;
+        case WKBConstants.wkbLineString:
+            geometry = readLineString();
+            break;
+        case WKBConstants.wkbPolygon:
+            geometry = readPolygon();
+            break;
+        case WKBConstants.wkbMultiPoint:
+            geometry = factory.createMultiPoint(readGeometries(new Point[readCount()]));
+            break;
+        case WKBConstants.wkbMultiLineString:
+            geometry = factory.createMultiLineString(readGeometries(new LineString[readCount()]));
+            break;
+        case WKBConstants.wkbMultiPolygon:
+            geometry = factory.createMultiPolygon(readGeometries(new Polygon[readCount()]));
+            break;
+        case WKBConstants.wkbGeometryCollection:
+            geometry = factory.createGeometryCollection(readGeometries(new Geometry[readCount()]));
+            break;
+        default:
+            throw new ParseException("Unknown WKB type " + header + " (" + quirks + ")");
+        }
+
+        if (srid != 0) {
+            geometry.setSRID(srid);
+        }
+        return geometry;
+    }
+
+    /**
+     * Reads the byte order and the type, sets the coordinate flags and returns the OGC geometry
+     * type. The type code and the SRID, if any, are left in {@link #header} and {@link #srid}.
+     */
+    int readHeader() throws IOException {
+        in.read(int8.array());
+        order = int8.get(0) == WKBConstants.wkbNDR ? ByteOrder.LITTLE_ENDIAN
+                : ByteOrder.BIG_ENDIAN;
+
+        int typeInt = readInt();
+        header = typeInt;
+        srid = 0;
+
+        int[] vendor = quirks.lookup(typeInt);
+        if (vendor != null) {
+            hasZ = vendor[1] > 2;
+            hasM = false;
+            return vendor[0];
+        }
+
+        // EWKB flags, then ISO 1000 (Z), 2000 (M) and 3000 (ZM) type codes
+        hasZ = (typeInt & EWKB_Z) != 0;
+        hasM = (typeInt & EWKB_M) != 0;
+        if ((typeInt & EWKB_SRID) != 0) {
+            srid = readInt();
+        }
+
+        int code = typeInt & 0x0FFFFFFF;
+        int iso = code / 1000;
+        hasZ |= iso == 1 || iso == 3;
+        hasM |= iso == 2 || iso == 3;
+        return code % 1000;
+    }
+
+    void scanGeometry(Envelope envelope) throws IOException, ParseException {
+        int geometryType = readHeader();
+        switch (geometryType) {
+        case WKBConstants.wkbPoint:
+            scanCoordinates(1, envelope);
+            break;
+        case WKBConstants.wkbLineString:
+            scanCoordinates(readCount(), envelope);
+            break;
+        case WKBConstants.wkbPolygon:
+            for (int rings = readCount(); rings > 0; rings--) {
+                scanCoordinates(readCount(), envelope);
+            }
+            break;
+        case WKBConstants.wkbMultiPoint:
+        case WKBConstants.wkbMultiLineString:
+        case WKBConstants.wkbMultiPolygon:
+        case WKBConstants.wkbGeometryCollection:
+            for (int count = readCount(); count > 0; count--) {
+                scanGeometry(envelope);
+            }
+            break;
+        default:
+            throw new ParseException("Unknown WKB type " + header + " (" + quirks + ")");
+        }
+    }
+
+    /**
+     * Expands the envelope by the coordinates, read the same way as
+     * {@link #readCoordinates(int)}. NaN coordinates (empty points) are skipped.
+     */
+    void scanCoordinates(int size, Envelope envelope) throws IOException {
+        int ordinates = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+
+        int remaining = size;
+        if (remaining >= BLOCK_SIZE) {
+            ByteBuffer block = block(ordinates);
+            block.order(order);
+            while (remaining >= BLOCK_SIZE) {
+                in.read(block.array());
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    scanCoordinate(block, i * ordinates * 8, envelope);
+                }
+                remaining -= BLOCK_SIZE;
+            }
+        }
+
+        ByteBuffer tuple = tuple(ordinates);
+        tuple.order(order);
+        for (; remaining > 0; remaining--) {
+            in.read(tuple.array());
+            scanCoordinate(tuple, 0, envelope);
+        }
+    }
+
+    void scanCoordinate(ByteBuffer buffer, int offset, Envelope envelope) {
+        double x = buffer.getDouble(offset);
+        double y = buffer.getDouble(offset + 8);
+        if (!Double.isNaN(x) && !Double.isNaN(y)) {
+            envelope.expandToInclude(x, y);
+        }
+    }
+
+    ByteBuffer block(int ordinates) {
+        ByteBuffer block = blocks[ordinates];
+        if (block == null) {
+            block = ByteBuffer.allocate(BLOCK_SIZE * ordinates * 8);
+            blocks[ordinates] = block;
+        }
+        return block;
+    }
+
+    ByteBuffer tuple(int ordinates) {
+        ByteBuffer tuple = tuples[ordinates];
+        if (tuple == null) {
+            tuple = ByteBuffer.allocate(ordinates * 8);
+            tuples[ordinates] = tuple;
+        }
+        return tuple;
+    }
+
+    Point readPoint() throws IOException {
+        PackedCoordinateSequence.Double seq = readCoordinates(1);
+        double[] coords = seq.getRawCoordinates();
+        if (Double.isNaN(coords[0]) && Double.isNaN(coords[1])) {
+            // empty point
+            return factory.createPoint(new PackedCoordinateSequence.Double(new double[0],
+                    seq.getDimension()));
+        }
+        return factory.createPoint(seq);
+    }
+
+    LineString readLineString() throws IOException, ParseException {
+        CoordinateSequence seq = readCoordinates(readCount());
+        if (seq.size() == 1) {
+            seq = CoordinateSequences.extend(PACKED, seq, 2);
+        }
+        return factory.createLineString(seq);
+    }
+
+    LinearRing readLinearRing() throws IOException, ParseException {
+        CoordinateSequence seq = readCoordinates(readCount());
+        if (!CoordinateSequences.isRing(seq)) {
+            seq = CoordinateSequences.ensureValidRing(PACKED, seq);
+        }
+        return factory.createLinearRing(seq);
+    }
+
+    Polygon readPolygon() throws IOException, ParseException {
+        int numRings = readCount();
+        if (numRings == 0) {
+            return factory.createPolygon(null, null);
+        }
+
+        LinearRing shell = readLinearRing();
+        LinearRing[] holes = new LinearRing[numRings - 1];
+        for (int i = 0; i < holes.length; i++) {
+            holes[i] = readLinearRing();
+        }
+        return factory.createPolygon(shell, holes);
+    }
+
+    <T extends Geometry> T[] readGeometries(T[] geometries) throws IOException, ParseException {
+        Class<?> type = geometries.getClass().getComponentType();
+        for (int i = 0; i < geometries.length; i++) {
+            Geometry geometry = readGeometry();
+            if (!type.isInstance(geometry)) {
+                throw new ParseException("Invalid geometry type encountered in "
+                        + type.getSimpleName() + " collection");
+            }
+            @SuppressWarnings("unchecked")
+            T member = (T) geometry;
+            geometries[i] = member;
+        }
+        return geometries;
+    }
+
+    /**
+     * Reads the coordinates in blocks of {@link #BLOCK_SIZE}, then one by one
+     */
+    PackedCoordinateSequence.Double readCoordinates(int size) throws IOException {
+        int ordinates = 2 + (hasZ ? 1 : 0) + (hasM ? 1 : 0);
+        int dimension = hasM ? 4 : ordinates;
+        double[] coords = new double[size * dimension];
+
+        int offset = 0;
+        int remaining = size;
+        if (remaining >= BLOCK_SIZE) {
+            ByteBuffer block = block(ordinates);
+            block.order(order);
+
+            while (remaining >= BLOCK_SIZE) {
+                in.read(block.array());
+                block.clear();
+                for (int i = 0; i < BLOCK_SIZE; i++) {
+                    readCoordinate(block, coords, offset);
+                    offset += dimension;
+                }
+                remaining -= BLOCK_SIZE;
+            }
+        }
+
+        ByteBuffer tuple = tuple(ordinates);
+        tuple.order(order);
+
+        for (; remaining > 0; remaining--) {
+            in.read(tuple.array());
+            tuple.clear();
+            readCoordinate(tuple, coords, offset);
+            offset += dimension;
+        }
+
+        return new PackedCoordinateSequence.Double(coords, dimension);
+    }
+
+    void readCoordinate(ByteBuffer buffer, double[] coords, int offset) {
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        if (floating) {
+            coords[offset] = x;
+            coords[offset + 1] = y;
+        } else {
+            coords[offset] = precisionModel.makePrecise(x);
+            coords[offset + 1] = precisionModel.makePrecise(y);
+        }
+
+        if (hasZ) {
+            coords[offset + 2] = buffer.getDouble();
+        } else if (hasM) {
+            coords[offset + 2] = Double.NaN;
+        }
+
+        if (hasM) {
+            coords[offset + 3] = buffer.getDouble();
+        }
+    }
+
+    int readInt() throws IOException {
+        in.read(int32.array());
+        return int32.order(order).getInt(0);
+    }
+
+    int readCount() throws IOException, ParseException {
+        int count = readInt();
+        if (count < 0) {
+            throw new ParseException("Invalid WKB element count " + count);
+        }
+        return count;
+    }
+}
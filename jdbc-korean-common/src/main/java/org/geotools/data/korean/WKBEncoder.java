@@ -0,0 +1,288 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryCollection;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.OutStream;
+import com.vividsolutions.jts.io.WKBConstants;
+
+/**
+ * Writes geometries as WKB, flagging Z and M the EWKB way as the JTS writer does.
+ * <p>
+ * {@link #encode(Geometry)} computes the exact size first and fills a single array, without the
+ * growing buffer and final copy of the JTS writer. {@link #write(Geometry, OutStream)} and
+ * {@link #encodeHex(Geometry, StringBuffer)} go through a small buffer owned by the encoder.
+ * <p>
+ * The output dimension is 2, 3 (Z) or 4 (ZM, M taken from the fourth ordinate). Empty points are
+ * written with NaN coordinates. Instances are not thread safe.
+ */
+public class WKBEncoder {
+
+    static final int BUFFER_SIZE = 8192;
+
+    static final char[] HEX = "0123456789ABCDEF".toCharArray();
+
+    final int outputDimension;
+
+    final ByteOrder order;
+
+    final int byteOrderWKB;
+
+    ByteBuffer target;
+
+    OutStream out;
+
+    ByteBuffer buffer;
+
+    public WKBEncoder(int outputDimension, WKBQuirks quirks) {
+        this(outputDimension, quirks.getByteOrder());
+    }
+
+    /**
+     * @param outputDimension 2, 3 or 4
+     * @param byteOrder see {@link ByteOrderValues}
+     */
+    public WKBEncoder(int outputDimension, int byteOrder) {
+        this.outputDimension = Math.max(2, Math.min(4, outputDimension));
+        if (byteOrder == ByteOrderValues.LITTLE_ENDIAN) {
+            this.order = ByteOrder.LITTLE_ENDIAN;
+            this.byteOrderWKB = WKBConstants.wkbNDR;
+        } else {
+            this.order = ByteOrder.BIG_ENDIAN;
+            this.byteOrderWKB = WKBConstants.wkbXDR;
+        }
+    }
+
+    public int getOutputDimension() {
+        return outputDimension;
+    }
+
+    /**
+     * Returns the number of bytes of the WKB of the geometry
+     */
+    public int getLength(Geometry geometry) {
+        if (geometry instanceof Point) {
+            return 5 + outputDimension * 8;
+        } else if (geometry instanceof LineString) {
+            return 9 + ((LineString) geometry).getNumPoints() * outputDimension * 8;
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            if (polygon.isEmpty()) {
+                return 9;
+            }
+            int length = 9 + 4 + polygon.getExteriorRing().getNumPoints() * outputDimension * 8;
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                length += 4 + polygon.getInteriorRingN(i).getNumPoints() * outputDimension * 8;
+            }
+            return length;
+        } else if (geometry instanceof GeometryCollection) {
+            int length = 9;
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                length += getLength(geometry.getGeometryN(i));
+            }
+            return length;
+        }
+        throw new IllegalArgumentException("Unsupported geometry type " + geometry.getClass());
+    }
+
+    /**
+     * Returns the WKB of the geometry, written straight into an array of the exact length
+     */
+    public byte[] encode(Geometry geometry) {
+        byte[] bytes = new byte[getLength(geometry)];
+        target = ByteBuffer.wrap(bytes).order(order);
+        out = null;
+        try {
+            writeGeometry(geometry);
+        } catch (IOException e) {
+            // no I/O involved
+            throw new RuntimeException(e);
+        } finally {
+            target = null;
+        }
+        return bytes;
+    }
+
+    /**
+     * Writes the WKB of the geometry to the stream
+     */
+    public void write(Geometry geometry, OutStream os) throws IOException {
+        if (buffer == null) {
+            buffer = ByteBuffer.allocate(BUFFER_SIZE);
+        }
+        target = buffer;
+        target.clear();
+        target.order(order);
+        out = os;
+        try {
+            writeGeometry(geometry);
+            flush();
+        } finally {
+            target = null;
+            out = null;
+        }
+    }
+
+    /**
+     * Appends the WKB of the geometry to the SQL as a hex binary literal, X'...'
+     */
+    public void encodeHex(Geometry geometry, StringBuffer sql) {
+        sql.ensureCapacity(sql.length() + 2 * getLength(geometry) + 3);
+        sql.append("X'");
+        try {
+            write(geometry, new HexOutStream(sql));
+        } catch (IOException e) {
+            // no I/O involved
+            throw new RuntimeException(e);
+        }
+        sql.append("'");
+    }
+
+    void writeGeometry(Geometry geometry) throws IOException {
+        if (geometry instanceof Point) {
+            writeHeader(WKBConstants.wkbPoint);
+            CoordinateSequence seq = ((Point) geometry).getCoordinateSequence();
+            if (seq.size() == 0) {
+                ensure(outputDimension * 8);
+                for (int i = 0; i < outputDimension; i++) {
+                    target.putDouble(Double.NaN);
+                }
+            } else {
+                writeCoordinates(seq, false);
+            }
+        } else if (geometry instanceof LineString) {
+            writeHeader(WKBConstants.wkbLineString);
+            writeCoordinates(((LineString) geometry).getCoordinateSequence(), true);
+        } else if (geometry instanceof Polygon) {
+            Polygon polygon = (Polygon) geometry;
+            writeHeader(WKBConstants.wkbPolygon);
+            if (polygon.isEmpty()) {
+                writeInt(0);
+                return;
+            }
+            writeInt(polygon.getNumInteriorRing() + 1);
+            writeCoordinates(polygon.getExteriorRing().getCoordinateSequence(), true);
+            for (int i = 0; i < polygon.getNumInteriorRing(); i++) {
+                writeCoordinates(polygon.getInteriorRingN(i).getCoordinateSequence(), true);
+            }
+        } else if (geometry instanceof GeometryCollection) {
+            if (geometry instanceof MultiPoint) {
+                writeHeader(WKBConstants.wkbMultiPoint);
+            } else if (geometry instanceof MultiLineString) {
+                writeHeader(WKBConstants.wkbMultiLineString);
+            } else if (geometry instanceof MultiPolygon) {
+                writeHeader(WKBConstants.wkbMultiPolygon);
+            } else {
+                writeHeader(WKBConstants.wkbGeometryCollection);
+            }
+            writeInt(geometry.getNumGeometries());
+            for (int i = 0; i < geometry.getNumGeometries(); i++) {
+                writeGeometry(geometry.getGeometryN(i));
+            }
+        } else {
+            throw new IllegalArgumentException("Unsupported geometry type "
+                    + geometry.getClass());
+        }
+    }
+
+    void writeHeader(int geometryType) throws IOException {
+        int typeInt = geometryType;
+        if (outputDimension > 2) {
+            typeInt |= WKBDecoder.EWKB_Z;
+        }
+        if (outputDimension > 3) {
+            typeInt |= WKBDecoder.EWKB_M;
+        }
+
+        ensure(5);
+        target.put((byte) byteOrderWKB);
+        target.putInt(typeInt);
+    }
+
+    void writeCoordinates(CoordinateSequence seq, boolean writeSize) throws IOException {
+        int size = seq.size();
+        if (writeSize) {
+            writeInt(size);
+        }
+
+        int dimension = seq.getDimension();
+        for (int i = 0; i < size; i++) {
+            ensure(outputDimension * 8);
+            target.putDouble(seq.getOrdinate(i, 0));
+            target.putDouble(seq.getOrdinate(i, 1));
+            if (outputDimension > 2) {
+                target.putDouble(dimension > 2 ? seq.getOrdinate(i, 2) : Double.NaN);
+            }
+            if (outputDimension > 3) {
+                target.putDouble(dimension > 3 ? seq.getOrdinate(i, 3) : Double.NaN);
+            }
+        }
+    }
+
+    void writeInt(int value) throws IOException {
+        ensure(4);
+        target.putInt(value);
+    }
+
+    /**
+     * Makes room for the next bytes, flushing the buffer to the stream if needed
+     */
+    void ensure(int length) throws IOException {
+        if (target.remaining() < length) {
+            flush();
+        }
+    }
+
+    void flush() throws IOException {
+        if (out != null && target.position() > 0) {
+            out.write(target.array(), target.position());
+            target.clear();
+        }
+    }
+
+    /**
+     * Appends the bytes as hexadecimal digits
+     */
+    static final class HexOutStream implements OutStream {
+        final StringBuffer sql;
+
+        HexOutStream(StringBuffer sql) {
+            this.sql = sql;
+        }
+
+        @Override
+        public void write(byte[] buf, int len) throws IOException {
+            for (int i = 0; i < len; i++) {
+                int b = buf[i];
+                sql.append(HEX[(b >> 4) & 0x0F]).append(HEX[b & 0x0F]);
+            }
+        }
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.WKBConstants;
+
+/**
+ * The WKB variations of a spatial DBMS: the byte order it expects and the vendor specific geometry
+ * type codes it returns.
+ * <p>
+ * Instances are immutable, {@link #typeCode(int, int, int)} returns a modified copy.
+ */
+public final class WKBQuirks {
+
+    /** Plain OGC / ISO WKB, Z and M flagged either the ISO (1000, 2000, 3000) or EWKB way */
+    public static final WKBQuirks OGC = new WKBQuirks("OGC", ByteOrderValues.BIG_ENDIAN);
+
+    /**
+     * Kairos returns 1001 - 1006 for two dimensional geometries, and 235 for polygons
+     */
+    public static final WKBQuirks KAIROS = OGC.named("Kairos", ByteOrderValues.BIG_ENDIAN)
+            .typeCode(1001, WKBConstants.wkbPoint, 2)
+            .typeCode(1002, WKBConstants.wkbLineString, 2)
+            .typeCode(1003, WKBConstants.wkbPolygon, 2)
+            .typeCode(1004, WKBConstants.wkbMultiPoint, 2)
+            .typeCode(1005, WKBConstants.wkbMultiLineString, 2)
+            .typeCode(1006, WKBConstants.wkbMultiPolygon, 2)
+            .typeCode(235, WKBConstants.wkbPolygon, 2);
+
+    public static final WKBQuirks TIBERO = OGC.named("Tibero", ByteOrderValues.LITTLE_ENDIAN);
+
+    public static final WKBQuirks ALTIBASE = OGC.named("Altibase", ByteOrderValues.LITTLE_ENDIAN);
+
+    final String name;
+
+    final int byteOrder;
+
+    /** vendor type code -> { geometry type, dimension } */
+    final Map<Integer, int[]> typeCodes;
+
+    public WKBQuirks(String name, int byteOrder) {
+        this(name, byteOrder, Collections.<Integer, int[]> emptyMap());
+    }
+
+    private WKBQuirks(String name, int byteOrder, Map<Integer, int[]> typeCodes) {
+        this.name = name;
+        this.byteOrder = byteOrder;
+        this.typeCodes = typeCodes;
+    }
+
+    /**
+     * Returns a copy with another name and output byte order
+     */
+    public WKBQuirks named(String name, int byteOrder) {
+        return new WKBQuirks(name, byteOrder, typeCodes);
+    }
+
+    /**
+     * Returns a copy that decodes the vendor type code as the OGC geometry type with the given
+     * coordinate dimension
+     */
+    public WKBQuirks typeCode(int code, int geometryType, int dimension) {
+        Map<Integer, int[]> codes = new HashMap<Integer, int[]>(typeCodes);
+        codes.put(Integer.valueOf(code), new int[] { geometryType, dimension });
+        return new WKBQuirks(name, byteOrder, Collections.unmodifiableMap(codes));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * The byte order written by {@link WKBEncoder}, see {@link ByteOrderValues}
+     */
+    public int getByteOrder() {
+        return byteOrder;
+    }
+
+    /**
+     * Returns { geometry type, dimension } for a vendor type code, or null if the code is not
+     * vendor specific
+     */
+    int[] lookup(int code) {
+        return typeCodes.isEmpty() ? null : typeCodes.get(Integer.valueOf(code));
+    }
+
+    @Override
+    public String toString() {
+        return "WKBQuirks[" + name + "]";
+    }
+}
@@ -0,0 +1,244 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class BatchingConnectionTest {
+
+    static final String INSERT = "INSERT INTO ROADS (FID, NAME) VALUES (?, ?)";
+
+    /** the calls reaching the mock database */
+    List<String> log = new ArrayList<String>();
+
+    /** rows added to the current batch of the mock database */
+    int added;
+
+    /** update counts of the BatchUpdateException thrown by the next batch, none if it works */
+    int[] failedCounts;
+
+    Connection cx;
+
+    @Before
+    public void setUp() {
+        cx = new BatchingDataSource(null, 10).wrap(connection());
+    }
+
+    @Test
+    public void testFlushBeforeOtherStatement() throws Exception {
+        Statement created = cx.createStatement();
+        insert(1, 3);
+        assertEquals(0, batches().size());
+
+        cx.createStatement().executeQuery("SELECT * FROM ROADS");
+        assertEquals(Arrays.asList("executeBatch 3", "executeQuery"), since("executeBatch 3"));
+
+        // a statement created before the rows were batched flushes them too
+        insert(4, 2);
+        created.execute("DELETE FROM ROADS");
+        assertEquals(Arrays.asList("executeBatch 2", "execute"), since("executeBatch 2"));
+    }
+
+    @Test
+    public void testFlushBeforeCommit() throws Exception {
+        insert(1, 3);
+        cx.commit();
+        assertEquals(Arrays.asList("executeBatch 3", "commit"), since("executeBatch 3"));
+    }
+
+    @Test
+    public void testFlushBeforeRollback() throws Exception {
+        insert(1, 3);
+        cx.rollback();
+        assertEquals(Arrays.asList("executeBatch 3", "rollback"), since("executeBatch 3"));
+    }
+
+    @Test
+    public void testFlushBeforeClose() throws Exception {
+        insert(1, 3);
+        cx.close();
+        assertEquals(Arrays.asList("executeBatch 3", "ps.close", "close"),
+                since("executeBatch 3"));
+    }
+
+    @Test
+    public void testPassiveLeavesBatchPending() throws Exception {
+        insert(1, 3);
+        cx.isClosed();
+        cx.getWarnings();
+        assertEquals(0, batches().size());
+    }
+
+    @Test
+    public void testBatchSize() throws Exception {
+        insert(1, 9);
+        assertEquals(0, batches().size());
+        insert(10, 1);
+        assertEquals(Arrays.asList("executeBatch 10"), batches());
+        insert(11, 1);
+        assertEquals(1, batches().size());
+        cx.commit();
+        assertEquals(Arrays.asList("executeBatch 10", "executeBatch 1"), batches());
+    }
+
+    @Test
+    public void testFailureStopsAtFirstError() throws Exception {
+        insert(1, 5);
+        // the first two rows were executed, the third one failed
+        failedCounts = new int[] { 1, 1 };
+        assertFailure("Batched insert failed on row 3 of 5, values (3, road 3)");
+    }
+
+    @Test
+    public void testFailureExecuteFailed() throws Exception {
+        insert(1, 5);
+        failedCounts = new int[] { 1, Statement.EXECUTE_FAILED, 1, 1, 1 };
+        assertFailure("Batched insert failed on row 2 of 5, values (2, road 2)");
+    }
+
+    @Test
+    public void testStatementClosedAfterSqlChange() throws Exception {
+        PreparedStatement ps = cx.prepareStatement(INSERT);
+        ps.setInt(1, 1);
+        cx.prepareStatement("INSERT INTO RIVERS (FID) VALUES (?)");
+        try {
+            ps.setInt(1, 2);
+            fail("the statement of the previous SQL should be closed");
+        } catch (SQLException e) {
+            assertEquals("Statement is closed", e.getMessage());
+        }
+    }
+
+    @Test
+    public void testStatementClosed() throws Exception {
+        PreparedStatement ps = cx.prepareStatement(INSERT);
+        ps.close();
+        assertTrue(ps.isClosed());
+        try {
+            ps.executeUpdate();
+            fail("the closed statement should not execute");
+        } catch (SQLException e) {
+            assertEquals("Statement is closed", e.getMessage());
+        }
+    }
+
+    /**
+     * Inserts count rows as the datastore does, one statement per feature
+     */
+    void insert(int first, int count) throws SQLException {
+        for (int i = first; i < first + count; i++) {
+            PreparedStatement ps = cx.prepareStatement(INSERT);
+            ps.setInt(1, i);
+            ps.setString(2, "road " + i);
+            assertEquals(1, ps.executeUpdate());
+            ps.close();
+        }
+    }
+
+    void assertFailure(String message) {
+        try {
+            cx.commit();
+            fail("the batch failure should be thrown");
+        } catch (SQLException e) {
+            assertTrue(e.getMessage(), e.getMessage().startsWith(message));
+            assertEquals("23000", e.getSQLState());
+            assertTrue(e.getCause() instanceof BatchUpdateException);
+        }
+        assertFalse(log.contains("commit"));
+    }
+
+    List<String> batches() {
+        List<String> batches = new ArrayList<String>();
+        for (String call : log) {
+            if (call.startsWith("executeBatch")) {
+                batches.add(call);
+            }
+        }
+        return batches;
+    }
+
+    List<String> since(String call) {
+        return log.subList(log.indexOf(call), log.size());
+    }
+
+    /**
+     * A connection logging the batch executions, the statements and the transaction calls
+     */
+    Connection connection() {
+        final InvocationHandler prepared = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws SQLException {
+                String name = method.getName();
+                if (name.equals("addBatch")) {
+                    added++;
+                } else if (name.equals("executeBatch")) {
+                    log.add("executeBatch " + added);
+                    int[] counts = new int[added];
+                    added = 0;
+                    if (failedCounts != null) {
+                        throw new BatchUpdateException("Duplicate key", "23000", 1, failedCounts);
+                    }
+                    return counts;
+                } else if (name.equals("close")) {
+                    log.add("ps.close");
+                }
+                return null;
+            }
+        };
+        final InvocationHandler statement = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                log.add(method.getName());
+                return method.getName().equals("execute") ? Boolean.FALSE : null;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("prepareStatement")) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[] { PreparedStatement.class }, prepared);
+                        } else if (name.equals("createStatement")) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[] { Statement.class }, statement);
+                        } else if (name.equals("isClosed")) {
+                            return Boolean.FALSE;
+                        }
+                        log.add(name);
+                        return null;
+                    }
+                });
+    }
+}
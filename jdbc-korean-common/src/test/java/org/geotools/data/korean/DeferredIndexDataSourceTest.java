@@ -0,0 +1,123 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.geotools.jdbc.JDBCDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+public class DeferredIndexDataSourceTest {
+
+    JDBCDataStore store;
+
+    DeferredIndexBuilder indexes;
+
+    /** the statements run against the mock database */
+    List<String> executed = new ArrayList<String>();
+
+    /** statements the mock database rejects */
+    List<String> failing = new ArrayList<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        store = new JDBCDataStore();
+        indexes = new DeferredIndexBuilder();
+        indexes.defer("GIS", "ROADS", "CREATE INDEX ROADS_GEOM ON ROADS (GEOM)");
+        indexes.defer("GIS", "RIVERS", "CREATE INDEX RIVERS_GEOM ON RIVERS (GEOM)");
+    }
+
+    @Test
+    public void testCommitBuildsLoadedTable() throws Exception {
+        Connection cx = connection();
+        indexes.inserted(cx, "GIS", "ROADS");
+        indexes.onCommit(store, cx);
+        assertEquals(Arrays.asList("CREATE INDEX ROADS_GEOM ON ROADS (GEOM)"), executed);
+        assertTrue(indexes.hasPending());
+    }
+
+    @Test
+    public void testCloseBuildsPending() throws Exception {
+        new DeferredIndexDataSource(dataSource(), store, indexes).close();
+        assertEquals(Arrays.asList("CREATE INDEX ROADS_GEOM ON ROADS (GEOM)",
+                "CREATE INDEX RIVERS_GEOM ON RIVERS (GEOM)"), executed);
+        assertFalse(indexes.hasPending());
+    }
+
+    @Test
+    public void testCloseKeepsFailedIndex() throws Exception {
+        failing.add("CREATE INDEX RIVERS_GEOM ON RIVERS (GEOM)");
+        new DeferredIndexDataSource(dataSource(), store, indexes).close();
+        assertEquals(Arrays.asList("CREATE INDEX ROADS_GEOM ON ROADS (GEOM)"), executed);
+        assertTrue(indexes.hasPending());
+    }
+
+    DataSource dataSource() {
+        return (DataSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { DataSource.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return method.getName().equals("getConnection") ? connection() : null;
+                    }
+                });
+    }
+
+    /**
+     * An auto commit connection recording the statements in {@link #executed}
+     */
+    Connection connection() {
+        final InvocationHandler statement = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws SQLException {
+                if (method.getName().equals("execute")) {
+                    if (failing.contains(args[0])) {
+                        throw new SQLException("Failed: " + args[0]);
+                    }
+                    executed.add((String) args[0]);
+                    return false;
+                }
+                return null;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("createStatement")) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[] { Statement.class }, statement);
+                        } else if (method.getName().equals("getAutoCommit")) {
+                            return true;
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.jdbc.JDBCDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+public class GeometryColumnsCacheTest {
+
+    GeometryColumnsCache cache;
+
+    /** the rows of the mock GEOMETRY_COLUMNS table */
+    List<Object[]> rows = new ArrayList<Object[]>();
+
+    /** number of queries run against the mock table */
+    int queries;
+
+    @Before
+    public void setUp() throws Exception {
+        cache = new GeometryColumnsCache(new JDBCDataStore(),
+                GeometryColumnsCache.GEOMETRY_COLUMNS);
+        rows.add(new Object[] { "GIS", "ROADS", "GEOM", 4326, 2, "LINESTRING" });
+    }
+
+    @Test
+    public void testHit() throws Exception {
+        Connection cx = connection();
+        assertEquals(4326, cache.get("GIS", "ROADS", "GEOM", cx).getSrid().intValue());
+        assertEquals("LINESTRING", cache.get(null, "ROADS", "GEOM", cx).getGeometryType());
+        assertTrue(cache.containsTable("GIS", "ROADS", cx));
+        assertEquals(1, queries);
+    }
+
+    @Test
+    public void testMissReloads() throws Exception {
+        Connection cx = connection();
+        cache.setMissReloadInterval(0);
+        assertNotNull(cache.get("GIS", "ROADS", "GEOM", cx));
+
+        // registered by another client after the first load
+        rows.add(new Object[] { "GIS", "RIVERS", "GEOM", 4326, 2, "LINESTRING" });
+        assertTrue(cache.containsTable("GIS", "RIVERS", cx));
+        assertNotNull(cache.get("GIS", "RIVERS", "GEOM", cx));
+        assertEquals(2, queries);
+    }
+
+    @Test
+    public void testMissReloadRateLimited() throws Exception {
+        Connection cx = connection();
+        cache.setMissReloadInterval(60 * 1000L);
+        assertNull(cache.get("GIS", "RIVERS", "GEOM", cx));
+        assertFalse(cache.containsTable("GIS", "RIVERS", cx));
+        assertEquals(1, queries);
+    }
+
+    @Test
+    public void testNoTimeToLive() throws Exception {
+        Connection cx = connection();
+        cache.setTimeToLive(0);
+        cache.get("GIS", "ROADS", "GEOM", cx);
+        cache.get("GIS", "ROADS", "GEOM", cx);
+        assertEquals(2, queries);
+    }
+
+    /**
+     * A connection whose queries return {@link #rows}
+     */
+    Connection connection() {
+        final InvocationHandler statement = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("executeQuery")) {
+                    queries++;
+                    return resultSet(new ArrayList<Object[]>(rows));
+                }
+                return null;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("createStatement")) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[] { Statement.class }, statement);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    ResultSet resultSet(final List<Object[]> result) {
+        final ResultSetMetaData metaData = (ResultSetMetaData) Proxy.newProxyInstance(
+                getClass().getClassLoader(), new Class[] { ResultSetMetaData.class },
+                new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        return method.getName().equals("getColumnCount") ? 6 : null;
+                    }
+                });
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    int row = -1;
+
+                    Object last;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        String name = method.getName();
+                        if (name.equals("next")) {
+                            return ++row < result.size();
+                        } else if (name.equals("getMetaData")) {
+                            return metaData;
+                        } else if (name.equals("wasNull")) {
+                            return last == null;
+                        } else if (name.equals("getString")) {
+                            last = result.get(row)[(Integer) args[0] - 1];
+                            return last;
+                        } else if (name.equals("getInt")) {
+                            last = result.get(row)[(Integer) args[0] - 1];
+                            return last == null ? 0 : last;
+                        }
+                        return null;
+                    }
+                });
+    }
+}
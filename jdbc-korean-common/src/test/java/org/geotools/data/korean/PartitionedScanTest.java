@@ -0,0 +1,254 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.Query;
+import org.geotools.data.korean.PartitionedScan.Grid;
+import org.geotools.data.korean.PartitionedScan.Partition;
+import org.geotools.data.korean.PartitionedScan.Tile;
+import org.geotools.data.simple.SimpleFeatureCollection;
+import org.geotools.data.simple.SimpleFeatureIterator;
+import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class PartitionedScanTest {
+
+    SimpleFeatureType type;
+
+    /** the features of the table */
+    List<SimpleFeature> features = new ArrayList<SimpleFeature>();
+
+    /** query of a partition -> the features the fake store returns for it */
+    Map<Query, List<SimpleFeature>> results = new IdentityHashMap<Query, List<SimpleFeature>>();
+
+    /** partition query failing after its first feature */
+    Query failing;
+
+    SimpleFeatureSource source;
+
+    @Before
+    public void setUp() throws Exception {
+        type = DataUtilities.createType("ROADS", "name:String,geom:Geometry");
+        source = source();
+
+        WKTReader reader = new WKTReader();
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 10; y++) {
+                add("p" + x + "_" + y, reader.read("POINT(" + (x + 0.5) + " " + (y + 0.5) + ")"));
+            }
+        }
+        // on the edges and the center of a 2x2 grid over 0..10
+        add("edge", reader.read("POINT(5 5)"));
+        add("vertical", reader.read("LINESTRING(5 1, 5 4)"));
+        add("diagonal", reader.read("LINESTRING(1 1, 9 9)"));
+        // does not cross the tile holding the lower left corner of its envelope
+        add("corner", reader.read("LINESTRING(1 9, 9 9, 9 1)"));
+        add("nogeometry", null);
+    }
+
+    @Test
+    public void testSplit() {
+        assertArrayEquals(new Number[] { 26L, 51L, 76L }, PartitionedScan.split(1L, 100L, 4));
+        assertArrayEquals(new Number[] { 2L, 3L }, PartitionedScan.split(1, 3, 8));
+        assertEquals(0, PartitionedScan.split(5L, 5L, 4).length);
+        assertArrayEquals(new Number[] { 0.25, 0.5, 0.75 }, PartitionedScan.split(0.0, 1.0, 4));
+    }
+
+    @Test
+    public void testTilesExactBBox() throws Exception {
+        List<Partition> tiles = tiles(null, true);
+        assertEach(read(tiles, false));
+        assertEach(read(tiles(null, true), true));
+    }
+
+    @Test
+    public void testTilesLooseBBox() throws Exception {
+        assertEach(read(tiles(null, false), false));
+        assertEach(read(tiles(null, false), true));
+    }
+
+    @Test
+    public void testTilesGeometryNotRequested() throws Exception {
+        SimpleFeatureType target = DataUtilities.createType("ROADS", "name:String");
+        List<SimpleFeature> read = read(tiles(target, true), false);
+        assertEach(read);
+        for (SimpleFeature feature : read) {
+            assertSame(target, feature.getFeatureType());
+            assertNull(feature.getAttribute("geom"));
+        }
+    }
+
+    @Test
+    public void testFailure() throws Exception {
+        List<Partition> tiles = tiles(null, false);
+        failing = tiles.get(2).query;
+        PartitionedFeatureReader reader = new PartitionedFeatureReader(source, tiles, false, 8);
+        try {
+            while (reader.hasNext()) {
+                reader.next();
+            }
+            fail("the failure of a tile should end the read");
+        } catch (IOException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * Asserts the features of the table were all read once
+     */
+    void assertEach(List<SimpleFeature> read) {
+        List<String> ids = new ArrayList<String>();
+        for (SimpleFeature feature : read) {
+            ids.add(feature.getID());
+        }
+        Set<String> expected = new HashSet<String>();
+        for (SimpleFeature feature : features) {
+            expected.add(feature.getID());
+        }
+        assertEquals(expected, new HashSet<String>(ids));
+        assertEquals(features.size(), ids.size());
+    }
+
+    List<SimpleFeature> read(List<Partition> tiles, boolean ordered) throws IOException {
+        PartitionedFeatureReader reader = new PartitionedFeatureReader(source, tiles, ordered, 8);
+        try {
+            List<SimpleFeature> read = new ArrayList<SimpleFeature>();
+            while (reader.hasNext()) {
+                read.add(reader.next());
+            }
+            return read;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * A 2x2 grid over 0..10, each tile returning the features whose geometry, or envelope for a
+     * loose BBOX, intersects it, and the features without geometry for the first one
+     */
+    List<Partition> tiles(SimpleFeatureType target, boolean exact) {
+        double[] edges = PartitionedScan.edges(0, 10, 2);
+        Grid grid = new Grid("geom", edges, edges, target);
+        GeometryFactory factory = new GeometryFactory();
+        List<Partition> tiles = new ArrayList<Partition>();
+        for (int row = 0; row < 2; row++) {
+            for (int column = 0; column < 2; column++) {
+                Envelope bounds = new Envelope(edges[column], edges[column + 1], edges[row],
+                        edges[row + 1]);
+                Geometry tile = factory.toGeometry(bounds);
+                List<SimpleFeature> result = new ArrayList<SimpleFeature>();
+                for (SimpleFeature feature : features) {
+                    Geometry geometry = (Geometry) feature.getAttribute("geom");
+                    if (geometry == null ? row == 0 && column == 0 : exact ? geometry
+                            .intersects(tile) : bounds.intersects(geometry.getEnvelopeInternal())) {
+                        result.add(feature);
+                    }
+                }
+                Query query = new Query("ROADS");
+                results.put(query, result);
+                tiles.add(new Tile(query, grid, column, row));
+            }
+        }
+        return tiles;
+    }
+
+    void add(String id, Geometry geometry) {
+        features.add(SimpleFeatureBuilder.build(type, new Object[] { id, geometry }, id));
+    }
+
+    /**
+     * A feature source returning the results of the partition queries
+     */
+    SimpleFeatureSource source() {
+        return (SimpleFeatureSource) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { SimpleFeatureSource.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("getSchema")) {
+                            return type;
+                        } else if (method.getName().equals("getFeatures")) {
+                            return collection((Query) args[0]);
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    SimpleFeatureCollection collection(final Query query) {
+        final List<SimpleFeature> result = results.containsKey(query) ? results.get(query)
+                : Collections.<SimpleFeature> emptyList();
+        final InvocationHandler iterator = new InvocationHandler() {
+            final Iterator<SimpleFeature> it = result.iterator();
+
+            int read;
+
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if (method.getName().equals("hasNext")) {
+                    if (query == failing && read > 0) {
+                        throw new IllegalStateException("Connection lost");
+                    }
+                    return it.hasNext();
+                } else if (method.getName().equals("next")) {
+                    read++;
+                    return it.next();
+                }
+                return null;
+            }
+        };
+        return (SimpleFeatureCollection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { SimpleFeatureCollection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("features")) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[] { SimpleFeatureIterator.class }, iterator);
+                        }
+                        return null;
+                    }
+                });
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.junit.Before;
+import org.junit.Test;
+
+public class QueryMetricsTest {
+
+    MBeanServer server;
+
+    @Before
+    public void setUp() {
+        server = ManagementFactory.getPlatformMBeanServer();
+    }
+
+    @Test
+    public void testRegister() throws Exception {
+        QueryMetrics metrics = new QueryMetrics();
+        metrics.register("test-register");
+        metrics.queryExecuted("ROADS", "SELECT * FROM ROADS", 1000, null);
+        assertEquals(2, server.queryNames(metrics.namePattern(), null).size());
+
+        metrics.unregister();
+        assertTrue(server.queryNames(new ObjectName(QueryMetrics.DOMAIN
+                + ":name=\"test-register\",*"), null).isEmpty());
+    }
+
+    @Test
+    public void testReplacedNotUnregistered() throws Exception {
+        QueryMetrics previous = new QueryMetrics();
+        previous.register("test-replaced");
+        previous.queryExecuted("ROADS", "SELECT * FROM ROADS", 1000, null);
+
+        QueryMetrics current = new QueryMetrics();
+        current.register("test-replaced");
+        current.queryExecuted("RIVERS", "SELECT * FROM RIVERS", 1000, null);
+
+        // the previous datastore no longer publishes its tables
+        previous.queryExecuted("LAKES", "SELECT * FROM LAKES", 1000, null);
+        assertFalse(server.isRegistered(current.objectName("LAKES")));
+        assertFalse(server.isRegistered(current.objectName("ROADS")));
+
+        // disposing it leaves the MBeans of the new one
+        ObjectName name = current.objectName(null);
+        previous.unregister();
+        assertTrue(server.isRegistered(name));
+        assertTrue(server.isRegistered(current.objectName("RIVERS")));
+        assertEquals(Long.valueOf(1), server.getAttribute(name, "Queries"));
+
+        current.unregister();
+        assertFalse(server.isRegistered(name));
+    }
+}
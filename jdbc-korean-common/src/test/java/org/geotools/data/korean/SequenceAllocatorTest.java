@@ -0,0 +1,163 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.geotools.jdbc.JDBCDataStore;
+import org.junit.Before;
+import org.junit.Test;
+
+public class SequenceAllocatorTest {
+
+    SequenceAllocator sequences;
+
+    /** sequence -> next value of the mock database */
+    Map<String, Long> values = new HashMap<String, Long>();
+
+    /** sequence -> SQL state of the error thrown by its block query, none if it works */
+    Map<String, String> blockErrors = new HashMap<String, String>();
+
+    int blockQueries;
+
+    int singleQueries;
+
+    @Before
+    public void setUp() throws Exception {
+        sequences = new SequenceAllocator(new JDBCDataStore());
+        sequences.setBlockSize(10);
+        values.put("ROADS_FID", 1L);
+        values.put("RIVERS_FID", 1L);
+    }
+
+    @Test
+    public void testBlock() throws Exception {
+        Connection cx = connection();
+        for (long i = 1; i <= 15; i++) {
+            assertEquals(Long.valueOf(i), sequences.next("GIS", "ROADS_FID", cx));
+        }
+        assertEquals(2, blockQueries);
+        assertEquals(0, singleQueries);
+    }
+
+    @Test
+    public void testRejectedSyntaxPerSequence() throws Exception {
+        Connection cx = connection();
+        blockErrors.put("ROADS_FID", "42000");
+        assertEquals(Long.valueOf(1), sequences.next("GIS", "ROADS_FID", cx));
+        assertEquals(Long.valueOf(2), sequences.next("GIS", "ROADS_FID", cx));
+        assertEquals(1, blockQueries);
+        assertEquals(2, singleQueries);
+
+        // the other sequences keep reserving blocks
+        assertEquals(Long.valueOf(1), sequences.next("GIS", "RIVERS_FID", cx));
+        assertEquals(Long.valueOf(2), sequences.next("GIS", "RIVERS_FID", cx));
+        assertEquals(2, blockQueries);
+        assertEquals(2, singleQueries);
+    }
+
+    @Test
+    public void testOtherErrorThrown() throws Exception {
+        Connection cx = connection();
+        blockErrors.put("ROADS_FID", "08006");
+        try {
+            sequences.next("GIS", "ROADS_FID", cx);
+            fail("the connection failure should be thrown");
+        } catch (SQLException e) {
+            assertEquals("08006", e.getSQLState());
+        }
+        assertEquals(0, singleQueries);
+
+        // blocks are still used once the connection is back
+        blockErrors.clear();
+        assertEquals(Long.valueOf(1), sequences.next("GIS", "ROADS_FID", cx));
+        assertEquals(2, blockQueries);
+        assertEquals(0, singleQueries);
+    }
+
+    /**
+     * A connection running the NEXTVAL queries against {@link #values}
+     */
+    Connection connection() {
+        final InvocationHandler statement = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args)
+                    throws SQLException {
+                if (!method.getName().equals("executeQuery")) {
+                    return null;
+                }
+                String sql = (String) args[0];
+                String sequence = sql.substring(sql.indexOf('"') + 1, sql.lastIndexOf('"'));
+                int count = 1;
+                if (sql.contains("CONNECT BY")) {
+                    blockQueries++;
+                    if (blockErrors.containsKey(sequence)) {
+                        throw new SQLException("Failed: " + sql, blockErrors.get(sequence));
+                    }
+                    count = Integer.parseInt(sql.substring(sql.lastIndexOf(' ') + 1));
+                } else {
+                    singleQueries++;
+                }
+                long first = values.get(sequence);
+                values.put(sequence, first + count);
+                return resultSet(first, count);
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("createStatement")) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class[] { Statement.class }, statement);
+                        } else if (method.getName().equals("getAutoCommit")) {
+                            return true;
+                        }
+                        return null;
+                    }
+                });
+    }
+
+    /**
+     * The values first to first + count - 1, in reverse order as the rows of a CONNECT BY query
+     * are not guaranteed to be sorted
+     */
+    ResultSet resultSet(final long first, final int count) {
+        return (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class[] { ResultSet.class }, new InvocationHandler() {
+                    int row = -1;
+
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if (method.getName().equals("next")) {
+                            return ++row < count;
+                        } else if (method.getName().equals("getLong")) {
+                            return first + count - 1 - row;
+                        }
+                        return null;
+                    }
+                });
+    }
+}
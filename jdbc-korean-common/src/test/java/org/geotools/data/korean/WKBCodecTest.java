@@ -0,0 +1,234 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.korean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.junit.Test;
+
+import com.vividsolutions.jts.geom.Coordinate;
+import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.geom.GeometryFactory;
+import com.vividsolutions.jts.geom.LineString;
+import com.vividsolutions.jts.geom.MultiLineString;
+import com.vividsolutions.jts.geom.MultiPoint;
+import com.vividsolutions.jts.geom.MultiPolygon;
+import com.vividsolutions.jts.geom.Point;
+import com.vividsolutions.jts.geom.Polygon;
+import com.vividsolutions.jts.io.ByteOrderValues;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class WKBCodecTest {
+
+    static final double EPS = 1e-9;
+
+    final GeometryFactory factory = new GeometryFactory();
+
+    final WKBDecoder decoder = new WKBDecoder(factory);
+
+    final WKBDecoder kairos = new WKBDecoder(factory, WKBQuirks.KAIROS);
+
+    @Test
+    public void testPoint2D() throws Exception {
+        Point point = (Point) decoder.read(wkb(ByteOrder.BIG_ENDIAN, 1).xy(1, 2).bytes());
+        assertEquals(2, point.getCoordinateSequence().getDimension());
+        assertCoordinate(point.getCoordinateSequence(), 0, 1, 2, Double.NaN, Double.NaN);
+    }
+
+    @Test
+    public void testLineStringZ() throws Exception {
+        byte[] bytes = wkb(ByteOrder.LITTLE_ENDIAN, 1002).count(2).xy(1, 2).d(3).xy(4, 5).d(6)
+                .bytes();
+        LineString line = (LineString) decoder.read(bytes);
+        assertEquals(2, line.getNumPoints());
+        assertCoordinate(line.getCoordinateSequence(), 0, 1, 2, 3, Double.NaN);
+        assertCoordinate(line.getCoordinateSequence(), 1, 4, 5, 6, Double.NaN);
+    }
+
+    @Test
+    public void testPointM() throws Exception {
+        Point point = (Point) decoder.read(wkb(ByteOrder.BIG_ENDIAN, 2001).xy(1, 2).d(7).bytes());
+        assertCoordinate(point.getCoordinateSequence(), 0, 1, 2, Double.NaN, 7);
+    }
+
+    @Test
+    public void testPointZM() throws Exception {
+        byte[] bytes = wkb(ByteOrder.BIG_ENDIAN, 3001).xy(1, 2).d(3).d(7).bytes();
+        Point point = (Point) decoder.read(bytes);
+        assertCoordinate(point.getCoordinateSequence(), 0, 1, 2, 3, 7);
+    }
+
+    @Test
+    public void testEWKBSrid() throws Exception {
+        byte[] bytes = wkb(ByteOrder.LITTLE_ENDIAN,
+                WKBDecoder.EWKB_SRID | WKBDecoder.EWKB_Z | 1).i(4326).xy(1, 2).d(3).bytes();
+        Point point = (Point) decoder.read(bytes);
+        assertEquals(4326, point.getSRID());
+        assertCoordinate(point.getCoordinateSequence(), 0, 1, 2, 3, Double.NaN);
+    }
+
+    @Test
+    public void testKairosTypeCodes() throws Exception {
+        Point point = (Point) kairos.read(wkb(ByteOrder.BIG_ENDIAN, 1001).xy(1, 2).bytes());
+        assertEquals(new Coordinate(1, 2), point.getCoordinate());
+
+        // 1002 is a Z line string in ISO WKB, a two dimensional one on Kairos
+        LineString line = (LineString) kairos.read(wkb(ByteOrder.BIG_ENDIAN, 1002).count(2)
+                .xy(0, 0).xy(1, 1).bytes());
+        assertEquals(2, line.getNumPoints());
+        assertEquals(new Coordinate(1, 1), line.getCoordinateN(1));
+
+        Polygon polygon = (Polygon) kairos.read(square(1003).bytes());
+        assertEquals(1, polygon.getArea(), EPS);
+        polygon = (Polygon) kairos.read(square(235).bytes());
+        assertEquals(1, polygon.getArea(), EPS);
+
+        MultiPoint points = (MultiPoint) kairos.read(wkb(ByteOrder.BIG_ENDIAN, 1004).count(2)
+                .header(1001).xy(1, 2).header(1001).xy(3, 4).bytes());
+        assertEquals(2, points.getNumGeometries());
+        assertEquals(new Coordinate(3, 4), points.getGeometryN(1).getCoordinate());
+
+        MultiLineString lines = (MultiLineString) kairos.read(wkb(ByteOrder.BIG_ENDIAN, 1005)
+                .count(1).header(1002).count(2).xy(0, 0).xy(2, 0).bytes());
+        assertEquals(2, lines.getLength(), EPS);
+
+        WKB polygons = wkb(ByteOrder.BIG_ENDIAN, 1006).count(2);
+        squareBody(polygons.header(1003));
+        squareBody(polygons.header(235));
+        MultiPolygon multiPolygon = (MultiPolygon) kairos.read(polygons.bytes());
+        assertEquals(2, multiPolygon.getNumGeometries());
+        assertEquals(2, multiPolygon.getArea(), EPS);
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        WKTReader reader = new WKTReader(factory);
+        Geometry polygon = reader.read("POLYGON((0 0, 10 0, 10 10, 0 10, 0 0), "
+                + "(2 2, 2 4, 4 4, 4 2, 2 2))");
+        Geometry line = reader.read("LINESTRING(0 0 1, 5 5 2, 10 0 3)");
+
+        for (int byteOrder : new int[] { ByteOrderValues.BIG_ENDIAN,
+                ByteOrderValues.LITTLE_ENDIAN }) {
+            byte[] bytes = new WKBEncoder(2, byteOrder).encode(polygon);
+            assertTrue(polygon.equalsExact(decoder.read(bytes)));
+
+            bytes = new WKBEncoder(3, byteOrder).encode(line);
+            LineString decoded = (LineString) decoder.read(bytes);
+            assertTrue(line.equalsExact(decoded));
+            assertCoordinate(decoded.getCoordinateSequence(), 2, 10, 0, 3, Double.NaN);
+        }
+    }
+
+    @Test
+    public void testRoundTripZM() throws Exception {
+        byte[] bytes = wkb(ByteOrder.BIG_ENDIAN, 3002).count(2).xy(1, 2).d(3).d(4).xy(5, 6).d(7)
+                .d(8).bytes();
+        Geometry line = decoder.read(bytes);
+        byte[] encoded = new WKBEncoder(4, ByteOrderValues.BIG_ENDIAN).encode(line);
+        LineString decoded = (LineString) decoder.read(encoded);
+        assertCoordinate(decoded.getCoordinateSequence(), 0, 1, 2, 3, 4);
+        assertCoordinate(decoded.getCoordinateSequence(), 1, 5, 6, 7, 8);
+    }
+
+    @Test
+    public void testReadEnvelope() throws Exception {
+        byte[] bytes = wkb(ByteOrder.BIG_ENDIAN, 1002).count(3).xy(1, 5).d(0).xy(4, 2).d(0)
+                .xy(3, 9).d(0).bytes();
+        assertEquals(new Envelope(1, 4, 2, 9), decoder.readEnvelope(bytes));
+        assertEquals(new Envelope(0, 1, 0, 1), kairos.readEnvelope(square(235).bytes()));
+
+        Envelope empty = decoder.readEnvelope(wkb(ByteOrder.BIG_ENDIAN, 2).count(0).bytes());
+        assertTrue(empty.isNull());
+    }
+
+    void assertCoordinate(CoordinateSequence cs, int index, double x, double y, double z,
+            double m) {
+        assertEquals(x, cs.getOrdinate(index, CoordinateSequence.X), EPS);
+        assertEquals(y, cs.getOrdinate(index, CoordinateSequence.Y), EPS);
+        if (cs.getDimension() > 2) {
+            assertEquals(z, cs.getOrdinate(index, CoordinateSequence.Z), EPS);
+        } else {
+            assertTrue(Double.isNaN(z));
+        }
+        if (!Double.isNaN(m)) {
+            assertEquals(4, cs.getDimension());
+            assertEquals(m, cs.getOrdinate(index, CoordinateSequence.M), EPS);
+        }
+    }
+
+    /**
+     * A unit square polygon with the given type code
+     */
+    WKB square(int type) {
+        return squareBody(wkb(ByteOrder.BIG_ENDIAN, type));
+    }
+
+    WKB squareBody(WKB wkb) {
+        return wkb.count(1).count(5).xy(0, 0).xy(1, 0).xy(1, 1).xy(0, 1).xy(0, 0);
+    }
+
+    WKB wkb(ByteOrder order, int type) {
+        return new WKB(order).header(type);
+    }
+
+    /**
+     * Builds WKB by hand, for the type codes the encoder does not write
+     */
+    static class WKB {
+        final ByteBuffer buffer = ByteBuffer.allocate(1024);
+
+        WKB(ByteOrder order) {
+            buffer.order(order);
+        }
+
+        WKB header(int type) {
+            buffer.put((byte) (buffer.order() == ByteOrder.BIG_ENDIAN ? 0 : 1));
+            return i(type);
+        }
+
+        WKB count(int count) {
+            return i(count);
+        }
+
+        WKB i(int value) {
+            buffer.putInt(value);
+            return this;
+        }
+
+        WKB d(double value) {
+            buffer.putDouble(value);
+            return this;
+        }
+
+        WKB xy(double x, double y) {
+            return d(x).d(y);
+        }
+
+        byte[] bytes() {
+            byte[] bytes = new byte[buffer.position()];
+            buffer.flip();
+            buffer.get(bytes);
+            return bytes;
+        }
+    }
+}
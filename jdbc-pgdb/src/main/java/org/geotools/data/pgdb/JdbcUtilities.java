@@ -16,8 +16,12 @@
  */
 package org.geotools.data.pgdb;
 
-import java.io.UnsupportedEncodingException;
-import java.lang.Character.UnicodeBlock;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.sql.Connection;
 import java.sql.DatabaseMetaData;
 import java.sql.ResultSet;
@@ -49,6 +53,25 @@ import com.vividsolutions.jts.geom.Polygon;
 final class JdbcUtilities {
     protected static final Logger LOGGER = Logging.getLogger(JdbcUtilities.class);
 
+    /** Korean code page of the Access ODBC driver, null if the JRE does not provide it */
+    static final Charset CP949 = lookupCharset("x-windows-949");
+
+    static final ThreadLocal<Codec> CODEC = new ThreadLocal<Codec>() {
+        @Override
+        protected Codec initialValue() {
+            return new Codec(CP949);
+        }
+    };
+
+    private static Charset lookupCharset(String charsetName) {
+        try {
+            return Charset.forName(charsetName);
+        } catch (IllegalArgumentException e) {
+            LOGGER.log(Level.WARNING, charsetName + " is not supported: " + e.getMessage());
+        }
+        return null;
+    }
+
     public static void closeSafe(Object... jdbcObjects) {
         for (Object dbObject : jdbcObjects) {
             try {
@@ -91,39 +114,42 @@ final class JdbcUtilities {
     public static boolean containsHangul(String val) {
         for (int i = 0; i < val.length(); i++) {
             char ch = val.charAt(i);
-            Character.UnicodeBlock unicodeBlock = Character.UnicodeBlock.of(ch);
-            if (UnicodeBlock.HANGUL_SYLLABLES.equals(unicodeBlock)
-                    || UnicodeBlock.HANGUL_COMPATIBILITY_JAMO.equals(unicodeBlock)
-                    || UnicodeBlock.HANGUL_JAMO.equals(unicodeBlock))
+            // Hangul Jamo, Hangul Compatibility Jamo, Hangul Syllables
+            if ((ch >= '\u1100' && ch <= '\u11FF') || (ch >= '\u3130' && ch <= '\u318F')
+                    || (ch >= '\uAC00' && ch <= '\uD7AF')) {
                 return true;
+            }
         }
         return false;
     }
 
+    /**
+     * Decodes a string read through the 8859_1 ODBC connection as CP949
+     */
     public static String fromAccess(String val) {
-        if (val == null || val.isEmpty()) {
+        if (val == null || isAscii(val) || CP949 == null) {
             return val;
-        } else {
-            try {
-                return new String(val.getBytes("8859_1"), "x-windows-949");
-            } catch (UnsupportedEncodingException e) {
-                LOGGER.log(Level.FINER, e.getMessage(), e);
-            }
         }
-        return val;
+        return CODEC.get().decode(val);
     }
 
+    /**
+     * Encodes a string as CP949 bytes for the 8859_1 ODBC connection
+     */
     public static String toAccess(String val) {
-        if (val == null || val.isEmpty()) {
+        if (val == null || isAscii(val) || CP949 == null) {
             return val;
-        } else {
-            try {
-                return new String(val.getBytes("x-windows-949"), "8859_1");
-            } catch (UnsupportedEncodingException e) {
-                LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+        return CODEC.get().encode(val);
+    }
+
+    private static boolean isAscii(String val) {
+        for (int i = 0, length = val.length(); i < length; i++) {
+            if (val.charAt(i) >= 0x80) {
+                return false;
             }
         }
-        return val;
+        return true;
     }
 
     public static Class<?> findBestBinding(String typeName) {
@@ -199,4 +225,81 @@ final class JdbcUtilities {
 
         return binding;
     }
+
+    /**
+     * Per thread coders and buffers, only the result string is allocated once the buffers have
+     * grown to the largest value.
+     */
+    static final class Codec {
+        final CharsetDecoder decoder;
+
+        final CharsetEncoder encoder;
+
+        ByteBuffer bytes = ByteBuffer.allocate(256);
+
+        CharBuffer chars = CharBuffer.allocate(256);
+
+        Codec(Charset charset) {
+            decoder = charset.newDecoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                    .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        }
+
+        private void ensureCapacity(int byteCount, int charCount) {
+            if (bytes.capacity() < byteCount) {
+                bytes = ByteBuffer.allocate(byteCount);
+            }
+            if (chars.capacity() < charCount) {
+                chars = CharBuffer.allocate(charCount);
+            }
+        }
+
+        /**
+         * Each char of the value holds one byte of the CP949 text
+         */
+        String decode(String val) {
+            final int length = val.length();
+            ensureCapacity(length, length);
+
+            byte[] input = bytes.array();
+            for (int i = 0; i < length; i++) {
+                input[i] = (byte) val.charAt(i);
+            }
+            bytes.clear();
+            bytes.limit(length);
+            chars.clear();
+
+            decoder.reset();
+            decoder.decode(bytes, chars, true);
+            decoder.flush(chars);
+            return new String(chars.array(), 0, chars.position());
+        }
+
+        /**
+         * Returns the CP949 bytes of the value, one char per byte
+         */
+        String encode(String val) {
+            final int length = val.length();
+            // at most 2 bytes per char in CP949, the chars are reused for the result
+            ensureCapacity(length * 2, length * 2);
+
+            val.getChars(0, length, chars.array(), 0);
+            chars.clear();
+            chars.limit(length);
+            bytes.clear();
+
+            encoder.reset();
+            encoder.encode(chars, bytes, true);
+            encoder.flush(bytes);
+
+            final int count = bytes.position();
+            byte[] output = bytes.array();
+            char[] result = chars.array();
+            for (int i = 0; i < count; i++) {
+                result[i] = (char) (output[i] & 0xFF);
+            }
+            return new String(result, 0, count);
+        }
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.math.BigDecimal;
+import java.util.Date;
+
+/**
+ * Column definition of a Jet table
+ */
+final class JetColumn implements Comparable<JetColumn> {
+
+    static final int TYPE_BOOLEAN = 0x01;
+
+    static final int TYPE_BYTE = 0x02;
+
+    static final int TYPE_INT = 0x03;
+
+    static final int TYPE_LONG = 0x04;
+
+    static final int TYPE_MONEY = 0x05;
+
+    static final int TYPE_FLOAT = 0x06;
+
+    static final int TYPE_DOUBLE = 0x07;
+
+    static final int TYPE_DATETIME = 0x08;
+
+    static final int TYPE_BINARY = 0x09;
+
+    static final int TYPE_TEXT = 0x0A;
+
+    static final int TYPE_OLE = 0x0B;
+
+    static final int TYPE_MEMO = 0x0C;
+
+    static final int TYPE_GUID = 0x0F;
+
+    static final int TYPE_NUMERIC = 0x10;
+
+    static final int FLAG_FIXED_LENGTH = 0x01;
+
+    final String name;
+
+    final int type;
+
+    final int number;
+
+    final int varIndex;
+
+    final int fixedOffset;
+
+    final int length;
+
+    final int flags;
+
+    final int precision;
+
+    final int scale;
+
+    JetColumn(String name, int type, int number, int varIndex, int fixedOffset, int length,
+            int flags, int precision, int scale) {
+        this.name = name;
+        this.type = type;
+        this.number = number;
+        this.varIndex = varIndex;
+        this.fixedOffset = fixedOffset;
+        this.length = length;
+        this.flags = flags;
+        this.precision = precision;
+        this.scale = scale;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getType() {
+        return type;
+    }
+
+    public boolean isFixedLength() {
+        return (flags & FLAG_FIXED_LENGTH) != 0;
+    }
+
+    public boolean isLongValue() {
+        return type == TYPE_OLE || type == TYPE_MEMO;
+    }
+
+    /**
+     * Returns the maximum number of characters of a text column, 0 for other columns
+     */
+    public int getTextLength() {
+        return type == TYPE_TEXT ? length / 2 : 0;
+    }
+
+    public Class<?> getBinding() {
+        switch (type) {
+        case TYPE_BOOLEAN:
+            return Boolean.class;
+        case TYPE_BYTE:
+        case TYPE_INT:
+            return Short.class;
+        case TYPE_LONG:
+            return Integer.class;
+        case TYPE_MONEY:
+        case TYPE_NUMERIC:
+            return BigDecimal.class;
+        case TYPE_FLOAT:
+            return Float.class;
+        case TYPE_DOUBLE:
+            return Double.class;
+        case TYPE_DATETIME:
+            return Date.class;
+        case TYPE_TEXT:
+        case TYPE_MEMO:
+        case TYPE_GUID:
+            return String.class;
+        default:
+            return byte[].class;
+        }
+    }
+
+    @Override
+    public int compareTo(JetColumn other) {
+        return number < other.number ? -1 : (number == other.number ? 0 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return name + "[type=" + type + ", number=" + number + "]";
+    }
+}
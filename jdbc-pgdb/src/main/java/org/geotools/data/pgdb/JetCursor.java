@@ -0,0 +1,395 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Date;
+import java.util.TimeZone;
+
+/**
+ * Full scan cursor over the data pages of a Jet table.
+ * <p>
+ * Not thread safe, but cursors of the same database can be used concurrently.
+ */
+final class JetCursor implements PGDBCursor {
+
+    static final int LVAL_TYPE_MASK = 0xC0000000;
+
+    static final int LVAL_THIS_PAGE = 0x80;
+
+    static final int LVAL_OTHER_PAGE = 0x40;
+
+    static final int LVAL_OTHER_PAGES = 0x00;
+
+    static final int SIZE_LVAL_DEF = 12;
+
+    /** days between 1899-12-30 (Jet epoch) and 1970-01-01 */
+    static final long EPOCH_DAYS = 25569L;
+
+    static final long MILLIS_PER_DAY = 24L * 60 * 60 * 1000;
+
+    final JetTable table;
+
+    final JetDatabase db;
+
+    final ByteBuffer buffer;
+
+    final int[] pages;
+
+    int pageIndex = -1;
+
+    int rowNumber;
+
+    int rowsOnPage;
+
+    // current row
+    int rowStart;
+
+    int columnCount;
+
+    int nullMask;
+
+    int varCount;
+
+    int[] varOffsets = new int[16];
+
+    JetCursor(JetTable table) {
+        this.table = table;
+        this.db = table.db;
+        this.buffer = db.newBuffer();
+        this.pages = table.getDataPages();
+    }
+
+    @Override
+    public boolean next() throws IOException {
+        while (true) {
+            if (pageIndex >= pages.length) {
+                return false;
+            }
+
+            if (pageIndex < 0 || ++rowNumber >= rowsOnPage) {
+                if (++pageIndex >= pages.length) {
+                    return false;
+                }
+                rowNumber = 0;
+                int page = JetDatabase.pageOffset(pages[pageIndex]);
+                rowsOnPage = JetDatabase.getUInt16(buffer, page + JetDatabase.OFFSET_DATA_NUM_ROWS);
+                if (rowsOnPage == 0) {
+                    continue;
+                }
+            }
+
+            int[] row = db.findRow(buffer, pages[pageIndex], rowNumber, true);
+            if (row != null) {
+                readRowHeader(row[0], row[1]);
+                return true;
+            }
+        }
+    }
+
+    private void readRowHeader(int start, int end) throws IOException {
+        rowStart = start;
+        columnCount = JetDatabase.getUInt16(buffer, start);
+
+        int nullMaskSize = (columnCount + 7) / 8;
+        nullMask = end - nullMaskSize;
+        varCount = JetDatabase.getUInt16(buffer, nullMask - 2);
+        if (nullMask - 2 - (varCount + 1) * 2 < start) {
+            throw new IOException("Corrupted row in " + table.getName() + " at " + start);
+        }
+
+        // var column offsets are stored backwards, the last entry is the end of the var data
+        if (varOffsets.length < varCount + 1) {
+            varOffsets = new int[varCount + 1];
+        }
+        int offset = nullMask - 4;
+        for (int index = 0; index <= varCount; index++, offset -= 2) {
+            varOffsets[index] = JetDatabase.getUInt16(buffer, offset);
+        }
+    }
+
+    private JetColumn findColumn(String column) throws IOException {
+        JetColumn jetColumn = table.getColumn(column);
+        if (jetColumn == null) {
+            throw new IOException(column + " does not exist in " + table.getName());
+        }
+        return jetColumn;
+    }
+
+    private boolean isPresent(JetColumn column) {
+        if (column.number >= columnCount) {
+            return false;
+        }
+        int bits = buffer.get(nullMask + column.number / 8) & 0xFF;
+        return (bits & (1 << (column.number % 8))) != 0;
+    }
+
+    /**
+     * Returns the absolute [start, end) offsets of the column data, or null if missing
+     */
+    private int[] locate(JetColumn column) {
+        if (column.isFixedLength()) {
+            int start = rowStart + 2 + column.fixedOffset;
+            return new int[] { start, start + column.length };
+        }
+
+        if (column.varIndex >= varCount) {
+            return null;
+        }
+        int start = rowStart + varOffsets[column.varIndex];
+        int end = rowStart + varOffsets[column.varIndex + 1];
+        return start <= end ? new int[] { start, end } : null;
+    }
+
+    @Override
+    public Object getObject(String column) throws IOException {
+        return getValue(findColumn(column));
+    }
+
+    @Override
+    public ByteBuffer getByteBuffer(String column) throws IOException {
+        JetColumn jetColumn = findColumn(column);
+        if (!isPresent(jetColumn)) {
+            return null;
+        }
+
+        int[] range = locate(jetColumn);
+        if (range == null) {
+            return null;
+        } else if (jetColumn.isLongValue()) {
+            return readLongValue(range[0], range[1]);
+        }
+        return slice(range[0], range[1] - range[0]);
+    }
+
+    public Object getValue(JetColumn column) throws IOException {
+        if (column.type == JetColumn.TYPE_BOOLEAN) {
+            // boolean values are stored in the null mask
+            return Boolean.valueOf(isPresent(column));
+        }
+
+        if (!isPresent(column)) {
+            return null;
+        }
+
+        int[] range = locate(column);
+        if (range == null) {
+            return null;
+        }
+
+        int offset = range[0];
+        switch (column.type) {
+        case JetColumn.TYPE_BYTE:
+            return Short.valueOf((short) (buffer.get(offset) & 0xFF));
+        case JetColumn.TYPE_INT:
+            return Short.valueOf(buffer.getShort(offset));
+        case JetColumn.TYPE_LONG:
+            return Integer.valueOf(buffer.getInt(offset));
+        case JetColumn.TYPE_MONEY:
+            return BigDecimal.valueOf(buffer.getLong(offset), 4);
+        case JetColumn.TYPE_FLOAT:
+            return Float.valueOf(buffer.getFloat(offset));
+        case JetColumn.TYPE_DOUBLE:
+            return Double.valueOf(buffer.getDouble(offset));
+        case JetColumn.TYPE_DATETIME:
+            return toDate(buffer.getDouble(offset));
+        case JetColumn.TYPE_GUID:
+            return toGuid(offset);
+        case JetColumn.TYPE_NUMERIC:
+            return toNumeric(offset, column.scale);
+        case JetColumn.TYPE_TEXT:
+            return decodeText(slice(offset, range[1] - offset));
+        case JetColumn.TYPE_MEMO:
+            return decodeText(readLongValue(offset, range[1]));
+        case JetColumn.TYPE_OLE:
+            return toBytes(readLongValue(offset, range[1]));
+        default:
+            return toBytes(slice(offset, range[1] - offset));
+        }
+    }
+
+    private ByteBuffer slice(int offset, int length) {
+        ByteBuffer view = buffer.duplicate();
+        view.limit(offset + length);
+        view.position(offset);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] toBytes(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+        byte[] bytes = new byte[value.remaining()];
+        value.duplicate().get(bytes);
+        return bytes;
+    }
+
+    /**
+     * Reads a memo or OLE value. Inline and single page values are returned as views of the
+     * mapped file, values spanning several pages are copied.
+     */
+    private ByteBuffer readLongValue(int start, int end) throws IOException {
+        if (end - start < SIZE_LVAL_DEF) {
+            return null;
+        }
+
+        int lengthWithFlags = buffer.getInt(start);
+        int length = lengthWithFlags & ~LVAL_TYPE_MASK;
+        int type = (lengthWithFlags & LVAL_TYPE_MASK) >>> 24;
+        int rowNum = buffer.get(start + 4) & 0xFF;
+        int pageNum = JetDatabase.getUInt24(buffer, start + 5);
+
+        if (type == LVAL_THIS_PAGE) {
+            return slice(start + SIZE_LVAL_DEF, Math.min(length, end - start - SIZE_LVAL_DEF));
+        } else if (type == LVAL_OTHER_PAGE) {
+            int[] row = db.findRow(buffer, pageNum, rowNum, false);
+            if (row == null) {
+                throw new IOException("Long value not found at page " + pageNum);
+            }
+            return slice(row[0], Math.min(length, row[1] - row[0]));
+        } else if (type == LVAL_OTHER_PAGES) {
+            // each row starts with a pointer to the next one
+            ByteBuffer value = ByteBuffer.allocate(length);
+            while (value.hasRemaining() && pageNum != 0) {
+                int[] row = db.findRow(buffer, pageNum, rowNum, false);
+                if (row == null || row[1] - row[0] < 4) {
+                    throw new IOException("Long value not found at page " + pageNum);
+                }
+                rowNum = buffer.get(row[0]) & 0xFF;
+                pageNum = JetDatabase.getUInt24(buffer, row[0] + 1);
+
+                ByteBuffer chunk = slice(row[0] + 4, row[1] - row[0] - 4);
+                if (chunk.remaining() > value.remaining()) {
+                    chunk.limit(value.remaining());
+                }
+                value.put(chunk);
+            }
+            value.flip();
+            return value.order(ByteOrder.LITTLE_ENDIAN);
+        }
+        throw new IOException("Unknown long value type: " + type);
+    }
+
+    /**
+     * Decodes a UCS-2 text value, with the Jet 4 "compressed unicode" format: after the FF FE
+     * marker, segments of one byte characters and two byte characters alternate, separated by
+     * a 00 byte.
+     */
+    static String decodeText(ByteBuffer value) {
+        if (value == null) {
+            return null;
+        }
+
+        int length = value.remaining();
+        int start = value.position();
+        if (length < 2 || value.get(start) != (byte) 0xFF || value.get(start + 1) != (byte) 0xFE) {
+            char[] chars = new char[length / 2];
+            for (int index = 0; index < chars.length; index++) {
+                chars[index] = value.getChar(start + index * 2);
+            }
+            return new String(chars);
+        }
+
+        StringBuilder sb = new StringBuilder(length);
+        boolean compressed = true;
+        int end = start + length;
+        int offset = start + 2;
+        while (offset < end) {
+            if (value.get(offset) == 0) {
+                compressed = !compressed;
+                offset++;
+            } else if (compressed) {
+                sb.append((char) (value.get(offset) & 0xFF));
+                offset++;
+            } else {
+                if (offset + 1 < end) {
+                    sb.append(value.getChar(offset));
+                }
+                offset += 2;
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Jet stores local date and time as days since 1899-12-30, the fraction being the time of
+     * day. Negative dates keep a positive fraction.
+     */
+    static Date toDate(double value) {
+        long datePart = ((long) value) * MILLIS_PER_DAY;
+        long timePart = Math.round((Math.abs(value) % 1.0d) * MILLIS_PER_DAY);
+        long localTime = datePart + timePart - EPOCH_DAYS * MILLIS_PER_DAY;
+
+        TimeZone tz = TimeZone.getDefault();
+        long time = localTime - tz.getOffset(localTime);
+        return new Date(localTime - tz.getOffset(time));
+    }
+
+    private String toGuid(int offset) {
+        StringBuilder sb = new StringBuilder(38);
+        sb.append('{');
+        appendHex(sb, buffer.getInt(offset), 8).append('-');
+        appendHex(sb, buffer.getShort(offset + 4) & 0xFFFF, 4).append('-');
+        appendHex(sb, buffer.getShort(offset + 6) & 0xFFFF, 4).append('-');
+        for (int index = 8; index < 16; index++) {
+            if (index == 10) {
+                sb.append('-');
+            }
+            appendHex(sb, buffer.get(offset + index) & 0xFF, 2);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static StringBuilder appendHex(StringBuilder sb, int value, int digits) {
+        String hex = Integer.toHexString(value).toUpperCase();
+        if (hex.length() > digits) {
+            hex = hex.substring(hex.length() - digits);
+        }
+        for (int index = hex.length(); index < digits; index++) {
+            sb.append('0');
+        }
+        return sb.append(hex);
+    }
+
+    /**
+     * Numeric values are a sign byte followed by a 16 byte unsigned integer, stored as four
+     * little endian ints from the most significant one.
+     */
+    private BigDecimal toNumeric(int offset, int scale) {
+        byte[] magnitude = new byte[16];
+        for (int word = 0; word < 4; word++) {
+            for (int index = 0; index < 4; index++) {
+                magnitude[word * 4 + index] = buffer.get(offset + 1 + word * 4 + 3 - index);
+            }
+        }
+
+        BigInteger unscaled = new BigInteger(1, magnitude);
+        if ((buffer.get(offset) & 0x80) != 0) {
+            unscaled = unscaled.negate();
+        }
+        return new BigDecimal(unscaled, scale);
+    }
+
+    @Override
+    public void close() {
+        pageIndex = pages.length;
+    }
+}
@@ -0,0 +1,291 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+/**
+ * Read-only Jet 4 / ACE (.mdb) database reader.
+ * <p>
+ * The file is memory-mapped and the table definition, usage map and data pages are decoded
+ * directly, so no ODBC driver is needed. The mapped buffer is never modified and every cursor
+ * works on its own duplicate, so several threads can scan the same file concurrently.
+ * <p>
+ * Jet 3 (Access 97) files and encrypted databases are not supported.
+ *
+ * @see <a href="https://github.com/mdbtools/mdbtools/blob/master/HACKING.md">mdbtools HACKING</a>
+ */
+final class JetDatabase implements PGDBEngine {
+    protected static final Logger LOGGER = Logging.getLogger(JetDatabase.class);
+
+    static final int PAGE_SIZE = 4096;
+
+    static final int PAGE_TYPE_DATA = 0x01;
+
+    static final int PAGE_TYPE_TDEF = 0x02;
+
+    static final int PAGE_TYPE_USAGE_MAP = 0x05;
+
+    static final int OFFSET_FORMAT_VERSION = 0x14;
+
+    static final int OFFSET_DATA_TDEF_PAGE = 4;
+
+    static final int OFFSET_DATA_NUM_ROWS = 12;
+
+    static final int OFFSET_DATA_ROW_START = 14;
+
+    static final int ROW_OFFSET_MASK = 0x1FFF;
+
+    static final int ROW_DELETED_MASK = 0x8000;
+
+    static final int ROW_OVERFLOW_MASK = 0x4000;
+
+    static final int CATALOG_PAGE = 2;
+
+    static final int CATALOG_TYPE_TABLE = 1;
+
+    static final Charset UTF_16LE = Charset.forName("UTF-16LE");
+
+    final File file;
+
+    final ByteBuffer buffer;
+
+    final int pageCount;
+
+    final Map<String, Integer> catalog = new TreeMap<String, Integer>(
+            String.CASE_INSENSITIVE_ORDER);
+
+    final Map<String, JetTable> tables = new ConcurrentHashMap<String, JetTable>();
+
+    private JetDatabase(File file, ByteBuffer buffer) throws IOException {
+        this.file = file;
+        this.buffer = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        this.pageCount = buffer.capacity() / PAGE_SIZE;
+
+        checkHeader();
+        loadCatalog();
+    }
+
+    /**
+     * Maps the file and reads its catalog.
+     *
+     * @throws IOException if the file cannot be read or is not a Jet 4 / ACE database
+     */
+    public static JetDatabase open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            long size = channel.size();
+            if (size < PAGE_SIZE * (CATALOG_PAGE + 1) || size > Integer.MAX_VALUE) {
+                throw new IOException("Unsupported file size: " + size);
+            }
+            // the mapping stays valid after the channel is closed
+            return new JetDatabase(file, channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        } finally {
+            raf.close();
+        }
+    }
+
+    private void checkHeader() throws IOException {
+        byte[] signature = new byte[15];
+        ByteBuffer header = newBuffer();
+        header.position(4);
+        header.get(signature);
+
+        String format = new String(signature, "ISO-8859-1");
+        if (!format.equals("Standard Jet DB") && !format.equals("Standard ACE DB")) {
+            throw new IOException(file.getName() + " is not an Access database");
+        }
+
+        // 0 = Jet 3 (Access 97, 2K pages), 1 = Jet 4, 2+ = ACE
+        int version = buffer.get(OFFSET_FORMAT_VERSION) & 0xFF;
+        if (version == 0) {
+            throw new IOException("Jet 3 (Access 97) databases are not supported");
+        }
+    }
+
+    private void loadCatalog() throws IOException {
+        JetTable msysObjects = new JetTable(this, "MSysObjects", CATALOG_PAGE);
+        JetColumn id = msysObjects.getColumn("Id");
+        JetColumn name = msysObjects.getColumn("Name");
+        JetColumn type = msysObjects.getColumn("Type");
+        if (id == null || name == null || type == null) {
+            throw new IOException("MSysObjects table not found, encrypted database?");
+        }
+
+        JetCursor cursor = new JetCursor(msysObjects);
+        try {
+            while (cursor.next()) {
+                Object objectType = cursor.getValue(type);
+                if (objectType instanceof Number
+                        && ((Number) objectType).intValue() == CATALOG_TYPE_TABLE) {
+                    int tdefPage = ((Number) cursor.getValue(id)).intValue() & 0x00FFFFFF;
+                    catalog.put((String) cursor.getValue(name), Integer.valueOf(tdefPage));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * Returns a new little endian view of the whole file
+     */
+    ByteBuffer newBuffer() {
+        return buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    static int pageOffset(int pageNumber) {
+        return pageNumber * PAGE_SIZE;
+    }
+
+    static int getUInt24(ByteBuffer buffer, int offset) {
+        return (buffer.get(offset) & 0xFF) | ((buffer.get(offset + 1) & 0xFF) << 8)
+                | ((buffer.get(offset + 2) & 0xFF) << 16);
+    }
+
+    static int getUInt16(ByteBuffer buffer, int offset) {
+        return buffer.getShort(offset) & 0xFFFF;
+    }
+
+    /**
+     * Returns the absolute [start, end) offsets of a row, following overflow pointers, or null
+     * if the row does not exist or has been deleted.
+     */
+    int[] findRow(ByteBuffer buffer, int pageNumber, int rowNumber, boolean skipDeleted) {
+        for (int hop = 0; hop < 8; hop++) {
+            if (pageNumber <= 0 || pageNumber >= pageCount) {
+                return null;
+            }
+
+            int page = pageOffset(pageNumber);
+            if (buffer.get(page) != PAGE_TYPE_DATA
+                    || rowNumber >= getUInt16(buffer, page + OFFSET_DATA_NUM_ROWS)) {
+                return null;
+            }
+
+            int rowStart = getUInt16(buffer, page + OFFSET_DATA_ROW_START + rowNumber * 2);
+            if (skipDeleted && (rowStart & ROW_DELETED_MASK) != 0) {
+                return null;
+            }
+
+            int rowEnd = rowNumber == 0 ? PAGE_SIZE : getUInt16(buffer, page
+                    + OFFSET_DATA_ROW_START + (rowNumber - 1) * 2)
+                    & ROW_OFFSET_MASK;
+            int start = page + (rowStart & ROW_OFFSET_MASK);
+            int end = page + rowEnd;
+            if (start >= end) {
+                return null;
+            }
+
+            if ((rowStart & ROW_OVERFLOW_MASK) == 0) {
+                return new int[] { start, end };
+            }
+
+            // overflow row: 1 byte row number + 3 bytes page number, target is flagged deleted
+            rowNumber = buffer.get(start) & 0xFF;
+            pageNumber = getUInt24(buffer, start + 1);
+            skipDeleted = false;
+        }
+        return null;
+    }
+
+    /**
+     * Returns the table definition, or null if the table does not exist
+     */
+    public JetTable getTable(String tableName) throws IOException {
+        JetTable table = tables.get(tableName);
+        if (table == null) {
+            Integer tdefPage = catalog.get(tableName);
+            if (tdefPage == null) {
+                return null;
+            }
+            table = new JetTable(this, tableName, tdefPage.intValue());
+            tables.put(tableName, table);
+        }
+        return table;
+    }
+
+    public Set<String> getTableNames() {
+        return Collections.unmodifiableSet(catalog.keySet());
+    }
+
+    private JetTable findTable(String tableName) throws IOException {
+        JetTable table = getTable(tableName);
+        if (table == null) {
+            throw new IOException(tableName + " does not exist!");
+        }
+        return table;
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String tableName) throws IOException {
+        List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+        for (JetColumn column : findTable(tableName).getColumns()) {
+            columns.add(new ColumnInfo(column.getName(), column.getBinding(), column
+                    .getTextLength()));
+        }
+        return columns;
+    }
+
+    @Override
+    public PGDBCursor openCursor(String tableName) throws IOException {
+        return new JetCursor(findTable(tableName));
+    }
+
+    @Override
+    public int getRowCount(String tableName) throws IOException {
+        return findTable(tableName).getRowCount();
+    }
+
+    @Override
+    public int getRowCount(SimpleFeatureType schema, Filter filter) throws IOException {
+        // filters are evaluated on the decoded rows by the DataStore
+        return -1;
+    }
+
+    @Override
+    public void dispose() {
+        // the mapped buffer is released by the garbage collector
+        tables.clear();
+        LOGGER.log(Level.FINEST, "disposed " + file.getName());
+    }
+
+    @Override
+    public String toString() {
+        return "JetDatabase[" + file + "]";
+    }
+}
@@ -0,0 +1,259 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Table definition (TDEF) of a Jet table with the list of its data pages
+ */
+final class JetTable {
+
+    static final int OFFSET_NEXT_TDEF_PAGE = 4;
+
+    static final int OFFSET_NUM_ROWS = 16;
+
+    static final int OFFSET_NUM_COLS = 45;
+
+    static final int OFFSET_NUM_REAL_INDEXES = 51;
+
+    static final int OFFSET_OWNED_PAGES = 55;
+
+    static final int OFFSET_INDEX_DEFS = 63;
+
+    static final int SIZE_INDEX_DEF = 12;
+
+    static final int SIZE_COLUMN_DEF = 25;
+
+    static final int USAGE_MAP_INLINE = 0x00;
+
+    static final int USAGE_MAP_REFERENCE = 0x01;
+
+    final JetDatabase db;
+
+    final String name;
+
+    final int tdefPage;
+
+    final List<JetColumn> columns;
+
+    final Map<String, JetColumn> columnMap = new TreeMap<String, JetColumn>(
+            String.CASE_INSENSITIVE_ORDER);
+
+    final int[] dataPages;
+
+    JetTable(JetDatabase db, String name, int tdefPage) throws IOException {
+        this.db = db;
+        this.name = name;
+        this.tdefPage = tdefPage;
+
+        ByteBuffer tdef = readDefinition();
+        this.columns = readColumns(tdef);
+        for (JetColumn column : columns) {
+            columnMap.put(column.getName(), column);
+        }
+        this.dataPages = readDataPages(tdef.getInt(OFFSET_OWNED_PAGES));
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the row count maintained in the table definition
+     */
+    public int getRowCount() {
+        return db.buffer.getInt(JetDatabase.pageOffset(tdefPage) + OFFSET_NUM_ROWS);
+    }
+
+    public List<JetColumn> getColumns() {
+        return Collections.unmodifiableList(columns);
+    }
+
+    public JetColumn getColumn(String columnName) {
+        return columnMap.get(columnName);
+    }
+
+    /**
+     * Returns the data pages of this table, in file order
+     */
+    int[] getDataPages() {
+        return dataPages;
+    }
+
+    /**
+     * A table definition can span several pages, the following pages are appended without
+     * their 8 byte header.
+     */
+    private ByteBuffer readDefinition() throws IOException {
+        ByteBuffer buffer = db.newBuffer();
+        int page = JetDatabase.pageOffset(tdefPage);
+        if (tdefPage >= db.pageCount || buffer.get(page) != JetDatabase.PAGE_TYPE_TDEF) {
+            throw new IOException("Invalid table definition page for " + name + ": " + tdefPage);
+        }
+
+        int nextPage = buffer.getInt(page + OFFSET_NEXT_TDEF_PAGE);
+        if (nextPage == 0) {
+            buffer.limit(page + JetDatabase.PAGE_SIZE).position(page);
+            return buffer.slice().order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        ByteBuffer tdef = ByteBuffer.allocate(JetDatabase.PAGE_SIZE * 4);
+        tdef.put(copyOf(buffer, page, JetDatabase.PAGE_SIZE));
+        for (int count = 0; nextPage != 0; count++) {
+            page = JetDatabase.pageOffset(nextPage);
+            if (nextPage >= db.pageCount || buffer.get(page) != JetDatabase.PAGE_TYPE_TDEF
+                    || count > db.pageCount) {
+                throw new IOException("Invalid table definition page for " + name + ": "
+                        + nextPage);
+            }
+
+            if (tdef.remaining() < JetDatabase.PAGE_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(tdef.capacity() * 2);
+                tdef.flip();
+                grown.put(tdef);
+                tdef = grown;
+            }
+            tdef.put(copyOf(buffer, page + 8, JetDatabase.PAGE_SIZE - 8));
+            nextPage = buffer.getInt(page + OFFSET_NEXT_TDEF_PAGE);
+        }
+        tdef.flip();
+        return tdef.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    private static byte[] copyOf(ByteBuffer buffer, int offset, int length) {
+        byte[] bytes = new byte[length];
+        ByteBuffer view = buffer.duplicate();
+        view.position(offset);
+        view.get(bytes);
+        return bytes;
+    }
+
+    private List<JetColumn> readColumns(ByteBuffer tdef) {
+        int numColumns = JetDatabase.getUInt16(tdef, OFFSET_NUM_COLS);
+        int numIndexes = tdef.getInt(OFFSET_NUM_REAL_INDEXES);
+
+        int offset = OFFSET_INDEX_DEFS + numIndexes * SIZE_INDEX_DEF;
+        int nameOffset = offset + numColumns * SIZE_COLUMN_DEF;
+
+        List<JetColumn> list = new ArrayList<JetColumn>(numColumns);
+        for (int index = 0; index < numColumns; index++, offset += SIZE_COLUMN_DEF) {
+            int nameLength = JetDatabase.getUInt16(tdef, nameOffset);
+            byte[] nameBytes = copyOf(tdef, nameOffset + 2, nameLength);
+            nameOffset += 2 + nameLength;
+
+            int type = tdef.get(offset) & 0xFF;
+            int number = JetDatabase.getUInt16(tdef, offset + 5);
+            int varIndex = JetDatabase.getUInt16(tdef, offset + 7);
+            int precision = tdef.get(offset + 11) & 0xFF;
+            int scale = tdef.get(offset + 12) & 0xFF;
+            int flags = tdef.get(offset + 15) & 0xFF;
+            int fixedOffset = JetDatabase.getUInt16(tdef, offset + 21);
+            int length = JetDatabase.getUInt16(tdef, offset + 23);
+
+            String columnName = new String(nameBytes, JetDatabase.UTF_16LE);
+            list.add(new JetColumn(columnName, type, number, varIndex, fixedOffset, length, flags,
+                    precision, scale));
+        }
+
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Reads the usage map of the pages owned by this table and keeps the data pages.
+     */
+    private int[] readDataPages(int usageMapPointer) throws IOException {
+        ByteBuffer buffer = db.newBuffer();
+        int[] row = db.findRow(buffer, usageMapPointer >>> 8, usageMapPointer & 0xFF, false);
+        if (row == null) {
+            throw new IOException("Usage map not found for " + name);
+        }
+
+        List<Integer> owned = new ArrayList<Integer>();
+        int start = row[0];
+        int end = row[1];
+        int mapType = buffer.get(start);
+        if (mapType == USAGE_MAP_INLINE) {
+            int firstPage = buffer.getInt(start + 1);
+            readBitmap(buffer, start + 5, end, firstPage, owned);
+        } else if (mapType == USAGE_MAP_REFERENCE) {
+            int pagesPerMap = (JetDatabase.PAGE_SIZE - 4) * 8;
+            for (int offset = start + 1, index = 0; offset + 4 <= end; offset += 4, index++) {
+                int mapPage = buffer.getInt(offset);
+                if (mapPage <= 0 || mapPage >= db.pageCount) {
+                    continue;
+                }
+
+                int page = JetDatabase.pageOffset(mapPage);
+                if (buffer.get(page) != JetDatabase.PAGE_TYPE_USAGE_MAP) {
+                    throw new IOException("Invalid usage map page for " + name + ": " + mapPage);
+                }
+                readBitmap(buffer, page + 4, page + JetDatabase.PAGE_SIZE, index * pagesPerMap,
+                        owned);
+            }
+        } else {
+            throw new IOException("Unknown usage map type for " + name + ": " + mapType);
+        }
+
+        // keep the data pages of this table, index and long value pages are skipped
+        int[] pages = new int[owned.size()];
+        int count = 0;
+        for (Integer pageNumber : owned) {
+            int page = JetDatabase.pageOffset(pageNumber.intValue());
+            if (buffer.get(page) == JetDatabase.PAGE_TYPE_DATA
+                    && buffer.getInt(page + JetDatabase.OFFSET_DATA_TDEF_PAGE) == tdefPage) {
+                pages[count++] = pageNumber.intValue();
+            }
+        }
+
+        int[] dataPages = new int[count];
+        System.arraycopy(pages, 0, dataPages, 0, count);
+        return dataPages;
+    }
+
+    private void readBitmap(ByteBuffer buffer, int start, int end, int firstPage,
+            List<Integer> pages) {
+        for (int offset = start; offset < end; offset++) {
+            int bits = buffer.get(offset) & 0xFF;
+            if (bits == 0) {
+                continue;
+            }
+
+            for (int bit = 0; bit < 8; bit++) {
+                if ((bits & (1 << bit)) != 0) {
+                    int pageNumber = firstPage + (offset - start) * 8 + bit;
+                    if (pageNumber > 0 && pageNumber < db.pageCount) {
+                        pages.add(Integer.valueOf(pageNumber));
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "JetTable[" + name + ", rows=" + getRowCount() + ", columns=" + columns + "]";
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.DatabaseMetaData;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.jdbc.FilterToSQLException;
+import org.geotools.filter.FilterCapabilities;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.AttributeDescriptor;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.ExcludeFilter;
+import org.opengis.filter.Filter;
+import org.opengis.filter.IncludeFilter;
+import org.opengis.filter.PropertyIsBetween;
+import org.opengis.filter.PropertyIsNull;
+
+/**
+ * JDBC-ODBC bridge access to a Personal Geodatabase, used when the file cannot be read by
+ * {@link JetDatabase} (Jet 3 or encrypted files). Requires the Microsoft Access ODBC driver
+ * and a JRE that still ships sun.jdbc.odbc (Java 7 or older).
+ */
+final class OdbcEngine implements PGDBEngine {
+    protected static final Logger LOGGER = Logging.getLogger(OdbcEngine.class);
+
+    final File pgdbFile;
+
+    final String user;
+
+    final String password;
+
+    Connection cx;
+
+    public OdbcEngine(File pgdbFile, String user, String password) {
+        this.pgdbFile = pgdbFile;
+        this.user = user;
+        this.password = password;
+    }
+
+    @Override
+    public List<ColumnInfo> getColumns(String tableName) throws IOException {
+        List<ColumnInfo> columns = new ArrayList<ColumnInfo>();
+        ResultSet rs = null;
+        try {
+            DatabaseMetaData dbm = getConnection().getMetaData();
+            rs = dbm.getColumns(null, null, JdbcUtilities.toAccess(tableName), null);
+            while (rs.next()) {
+                String columnName = JdbcUtilities.fromAccess(rs.getString("COLUMN_NAME"));
+                Class<?> binding = JdbcUtilities.findBestBinding(rs.getString("TYPE_NAME"));
+                columns.add(new ColumnInfo(columnName, binding, rs.getInt("COLUMN_SIZE")));
+            }
+        } catch (SQLException e) {
+            throw new IOException(e);
+        } finally {
+            JdbcUtilities.closeSafe(rs);
+        }
+        return columns;
+    }
+
+    @Override
+    public PGDBCursor openCursor(String tableName) throws IOException {
+        Statement stmt = null;
+        try {
+            String sql = "SELECT * FROM \"" + JdbcUtilities.toAccess(tableName) + "\"";
+            stmt = getConnection().createStatement();
+            return new OdbcCursor(stmt, stmt.executeQuery(sql));
+        } catch (SQLException e) {
+            JdbcUtilities.closeSafe(stmt);
+            throw new IOException(e);
+        }
+    }
+
+    @Override
+    public int getRowCount(String tableName) throws IOException {
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            String sql = "SELECT COUNT(*) FROM \"" + JdbcUtilities.toAccess(tableName) + "\"";
+            stmt = getConnection().createStatement();
+            rs = stmt.executeQuery(sql);
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        } finally {
+            JdbcUtilities.closeSafe(rs, stmt);
+        }
+        return -1;
+    }
+
+    /**
+     * Runs the count in the database when the filter only compares non spatial attributes.
+     */
+    @Override
+    public int getRowCount(SimpleFeatureType schema, Filter filter) throws IOException {
+        for (String name : DataUtilities.attributeNames(filter, schema)) {
+            AttributeDescriptor desc = schema.getDescriptor(name);
+            // Access date literals use #...# and are not encoded by FilterToSQL
+            if (desc == null || desc instanceof GeometryDescriptor
+                    || Date.class.isAssignableFrom(desc.getType().getBinding())) {
+                return -1;
+            }
+        }
+
+        AccessFilterToSQL encoder = new AccessFilterToSQL();
+        if (!encoder.getCapabilities().fullySupports(filter)) {
+            return -1;
+        }
+
+        Statement stmt = null;
+        ResultSet rs = null;
+        try {
+            encoder.setFeatureType(schema);
+            StringBuffer sql = new StringBuffer("SELECT COUNT(*) FROM \"");
+            sql.append(schema.getTypeName()).append("\" ");
+            sql.append(encoder.encodeToString(filter));
+
+            stmt = getConnection().createStatement();
+            rs = stmt.executeQuery(JdbcUtilities.toAccess(sql.toString()));
+            if (rs.next()) {
+                return rs.getInt(1);
+            }
+        } catch (FilterToSQLException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        } catch (SQLException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        } finally {
+            JdbcUtilities.closeSafe(rs, stmt);
+        }
+        return -1;
+    }
+
+    @Override
+    public void dispose() {
+        JdbcUtilities.closeSafe(cx);
+        cx = null;
+    }
+
+    private synchronized Connection getConnection() throws IOException {
+        if (cx != null) {
+            return cx;
+        }
+
+        try {
+            String path = JdbcUtilities.toAccess(pgdbFile.getPath());
+            Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
+
+            StringBuffer sb = new StringBuffer();
+            sb.append("jdbc:odbc:Driver={Microsoft Access Driver (*.mdb)}");
+            sb.append(";DBQ=").append(path);
+            sb.append(";DriverID=22;READONLY=true");
+
+            java.util.Properties properties = new java.util.Properties();
+            properties.put("charSet", "8859_1");
+
+            if (user != null && !user.isEmpty()) {
+                properties.put("user", JdbcUtilities.toAccess(user));
+            }
+
+            if (password != null && !password.isEmpty()) {
+                properties.put("password", JdbcUtilities.toAccess(password));
+            }
+            cx = DriverManager.getConnection(sb.toString(), properties);
+        } catch (ClassNotFoundException e) {
+            throw new IOException("JDBC-ODBC bridge is not available", e);
+        } catch (SQLException e) {
+            throw new IOException(e);
+        }
+        return cx;
+    }
+
+    /**
+     * Encodes logical and attribute comparison filters, spatial filters are evaluated in memory.
+     */
+    static final class AccessFilterToSQL extends FilterToSQL {
+        AccessFilterToSQL() {
+            setSqlNameEscape("\"");
+        }
+
+        @Override
+        protected FilterCapabilities createFilterCapabilities() {
+            FilterCapabilities caps = new FilterCapabilities();
+            caps.addAll(FilterCapabilities.LOGICAL_OPENGIS);
+            caps.addAll(FilterCapabilities.SIMPLE_COMPARISONS_OPENGIS);
+            caps.addType(PropertyIsNull.class);
+            caps.addType(PropertyIsBetween.class);
+            caps.addType(IncludeFilter.class);
+            caps.addType(ExcludeFilter.class);
+            return caps;
+        }
+    }
+
+    static final class OdbcCursor implements PGDBCursor {
+        final Statement stmt;
+
+        final ResultSet rs;
+
+        final Map<String, String> accessNames = new HashMap<String, String>();
+
+        OdbcCursor(Statement stmt, ResultSet rs) {
+            this.stmt = stmt;
+            this.rs = rs;
+        }
+
+        private String toAccess(String column) {
+            String accessName = accessNames.get(column);
+            if (accessName == null) {
+                accessName = JdbcUtilities.toAccess(column);
+                accessNames.put(column, accessName);
+            }
+            return accessName;
+        }
+
+        @Override
+        public boolean next() throws IOException {
+            try {
+                return rs.next();
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public Object getObject(String column) throws IOException {
+            try {
+                Object value = rs.getObject(toAccess(column));
+                if (value instanceof String) {
+                    return JdbcUtilities.fromAccess((String) value);
+                }
+                return value;
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public ByteBuffer getByteBuffer(String column) throws IOException {
+            try {
+                byte[] bytes = rs.getBytes(toAccess(column));
+                return bytes == null ? null : ByteBuffer.wrap(bytes);
+            } catch (SQLException e) {
+                throw new IOException(e);
+            }
+        }
+
+        @Override
+        public void close() {
+            JdbcUtilities.closeSafe(rs, stmt);
+        }
+    }
+}
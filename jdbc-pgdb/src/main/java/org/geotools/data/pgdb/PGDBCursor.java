@@ -0,0 +1,41 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Forward only cursor over the rows of a Personal Geodatabase table
+ */
+interface PGDBCursor {
+
+    boolean next() throws IOException;
+
+    /**
+     * Returns the value of the column in the current row. Strings are already decoded.
+     */
+    Object getObject(String column) throws IOException;
+
+    /**
+     * Returns the binary value of the column in the current row, or null. The returned buffer
+     * stays valid after the cursor moves on.
+     */
+    ByteBuffer getByteBuffer(String column) throws IOException;
+
+    void close();
+}
@@ -18,26 +18,37 @@ package org.geotools.data.pgdb;
 
 import java.io.File;
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.DriverManager;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.nio.ByteBuffer;
 import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.AbstractDataStore;
+import org.geotools.data.DataUtilities;
 import org.geotools.data.FeatureReader;
 import org.geotools.data.Query;
 import org.geotools.data.simple.SimpleFeatureSource;
+import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
 import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.feature.type.GeometryDescriptor;
+import org.opengis.filter.Filter;
+
+import com.vividsolutions.jts.geom.Envelope;
 
 /**
  * ESRI Personal Geodatabase DataStore
+ * <p>
+ * Jet 4 / ACE files are read directly by {@link JetDatabase}, other files through the JDBC-ODBC
+ * bridge.
  * 
  * @author MapPlus, mapplus@gmail.com, http://onspatial.com
  * @since 2012-10-30
@@ -47,23 +58,49 @@ import org.opengis.feature.simple.SimpleFeatureType;
 public class PGDBDataStore extends AbstractDataStore {
     protected static final Logger LOGGER = Logging.getLogger(PGDBDataStore.class);
 
-    Connection cx;
-
     final File pgdbFile;
 
     final String user;
 
     final String password;
 
+    final PGDBEngine engine;
+
+    final int decodeThreads;
+
+    final Map<String, RowCount> rowCounts = new ConcurrentHashMap<String, RowCount>();
+
+    ExecutorService decoderPool;
+
     PGDBSchemaReader sr;
 
     public PGDBDataStore(File pgdbFile, String user, String password) {
+        this(pgdbFile, user, password, 0);
+    }
+
+    /**
+     * @param decodeThreads number of threads decoding shapes while rows are fetched, 0 or 1 to
+     *        read and decode on the calling thread
+     */
+    public PGDBDataStore(File pgdbFile, String user, String password, int decodeThreads) {
         super(false);
 
         this.pgdbFile = pgdbFile;
         this.user = user;
         this.password = password;
-        this.sr = new PGDBSchemaReader(getConnection());
+        this.decodeThreads = decodeThreads;
+        this.engine = createEngine();
+        this.sr = new PGDBSchemaReader(engine);
+    }
+
+    private PGDBEngine createEngine() {
+        try {
+            return JetDatabase.open(pgdbFile);
+        } catch (IOException e) {
+            LOGGER.log(Level.WARNING, "Cannot read " + pgdbFile.getName()
+                    + " directly, using the JDBC-ODBC bridge: " + e.getMessage());
+        }
+        return new OdbcEngine(pgdbFile, user, password);
     }
 
     @Override
@@ -78,10 +115,7 @@ public class PGDBDataStore extends AbstractDataStore {
             throw new IOException(typeName + " does not exist!");
         }
 
-        if (gdbSchema.getSchema() == null) {
-            sr.buildFeatureType(gdbSchema);
-        }
-        return gdbSchema.getSchema();
+        return sr.getFeatureType(gdbSchema);
     }
 
     @Override
@@ -90,7 +124,17 @@ public class PGDBDataStore extends AbstractDataStore {
         if (gdbSchema == null) {
             throw new IOException(query.getTypeName() + " does not exist!");
         }
-        return gdbSchema.getExtent();
+
+        Filter filter = query.getFilter();
+        if (filter == null || filter == Filter.INCLUDE) {
+            return gdbSchema.getExtent();
+        }
+
+        ReferencedEnvelope bounds = new ReferencedEnvelope(gdbSchema.getCrs());
+        if (filter != Filter.EXCLUDE) {
+            scan(query.getTypeName(), filter, bounds);
+        }
+        return bounds;
     }
 
     @Override
@@ -100,28 +144,113 @@ public class PGDBDataStore extends AbstractDataStore {
             throw new IOException(query.getTypeName() + " does not exist!");
         }
 
-        Statement stmt = null;
-        ResultSet rs = null;
+        int count;
+        Filter filter = query.getFilter();
+        if (filter == null || filter == Filter.INCLUDE) {
+            count = getRowCount(query.getTypeName());
+        } else if (filter == Filter.EXCLUDE) {
+            count = 0;
+        } else {
+            count = engine.getRowCount(getSchema(query.getTypeName()), filter);
+            if (count < 0) {
+                count = scan(query.getTypeName(), filter, null);
+            }
+        }
+
+        if (count > query.getMaxFeatures()) {
+            count = query.getMaxFeatures();
+        }
+        return count;
+    }
+
+    /**
+     * Returns the cached row count of the table, refreshed when the file is modified
+     */
+    private int getRowCount(String typeName) throws IOException {
+        long lastModified = pgdbFile.lastModified();
+        long length = pgdbFile.length();
+
+        RowCount cached = rowCounts.get(typeName);
+        if (cached != null && cached.lastModified == lastModified && cached.length == length) {
+            return cached.count;
+        }
+
+        int count = engine.getRowCount(typeName);
+        if (count >= 0) {
+            rowCounts.put(typeName, new RowCount(count, lastModified, length));
+        }
+        return count;
+    }
+
+    /**
+     * Counts the rows matching the filter and expands the bounds with their shapes. Only the
+     * attributes used by the filter are read, and the shape envelopes are taken from the shape
+     * headers without decoding the coordinates.
+     */
+    private int scan(String typeName, Filter filter, ReferencedEnvelope bounds)
+            throws IOException {
+        SimpleFeatureType schema = getSchema(typeName);
+        SimpleFeatureType filterType = SimpleFeatureTypeBuilder.retype(schema,
+                DataUtilities.attributeNames(filter, schema));
+
+        GeometryDescriptor geomDesc = schema.getGeometryDescriptor();
+        if (bounds != null && geomDesc == null) {
+            return 0;
+        }
+
+        PGDBDecoder geomDecoder = PGDBDecoder.newInstance();
+        PGDBCursor cursor = engine.openCursor(typeName);
         try {
-            String sql = "SELECT COUNT(*) FROM \"" + JdbcUtilities.toAccess(query.getTypeName())
-                    + "\"";
-            stmt = getConnection().createStatement();
-            rs = stmt.executeQuery(sql);
-            if (rs.next()) {
-                return rs.getInt(1);
+            int count = 0;
+            int featureID = 0;
+            while (cursor.next()) {
+                Object[] values = PGDBFeatureReader.readValues(cursor, filterType);
+                String fid = typeName + "." + ++featureID;
+                SimpleFeature feature = PGDBFeatureReader.buildFeature(filterType, values, fid,
+                        geomDecoder);
+                if (!filter.evaluate(feature)) {
+                    continue;
+                }
+
+                count++;
+                if (bounds != null) {
+                    ByteBuffer shape = cursor.getByteBuffer(geomDesc.getLocalName());
+                    Envelope envelope = shape == null ? null : geomDecoder.decodeEnvelope(shape);
+                    if (envelope != null) {
+                        bounds.expandToInclude(envelope);
+                    }
+                }
             }
-        } catch (SQLException e) {
-            LOGGER.log(Level.FINER, e.getMessage(), e);
+            return count;
         } finally {
-            JdbcUtilities.closeSafe(rs, stmt);
+            cursor.close();
         }
-        return -1;
     }
 
     @Override
     protected FeatureReader<SimpleFeatureType, SimpleFeature> getFeatureReader(String typeName)
             throws IOException {
-        return new PGDBFeatureReader(getConnection(), getSchema(typeName));
+        if (decodeThreads > 1) {
+            return new PGDBPipelinedFeatureReader(engine, getSchema(typeName),
+                    getDecoderPool(), decodeThreads);
+        }
+        return new PGDBFeatureReader(engine, getSchema(typeName));
+    }
+
+    private synchronized ExecutorService getDecoderPool() {
+        if (decoderPool == null) {
+            final String prefix = "PGDB decoder " + pgdbFile.getName() + " ";
+            decoderPool = Executors.newFixedThreadPool(decodeThreads, new ThreadFactory() {
+                final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, prefix + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return decoderPool;
     }
 
     @Override
@@ -136,39 +265,26 @@ public class PGDBDataStore extends AbstractDataStore {
 
     @Override
     public void dispose() {
-        JdbcUtilities.closeSafe(cx);
-    }
-
-    private Connection getConnection() {
-        if (cx != null) {
-            return cx;
+        synchronized (this) {
+            if (decoderPool != null) {
+                decoderPool.shutdownNow();
+                decoderPool = null;
+            }
         }
+        engine.dispose();
+    }
 
-        try {
-            String path = JdbcUtilities.toAccess(pgdbFile.getPath());
-            Class.forName("sun.jdbc.odbc.JdbcOdbcDriver");
-
-            StringBuffer sb = new StringBuffer();
-            sb.append("jdbc:odbc:Driver={Microsoft Access Driver (*.mdb)}");
-            sb.append(";DBQ=").append(path);
-            sb.append(";DriverID=22;READONLY=true");
+    static final class RowCount {
+        final int count;
 
-            java.util.Properties properties = new java.util.Properties();
-            properties.put("charSet", "8859_1");
+        final long lastModified;
 
-            if (user != null && !user.isEmpty()) {
-                properties.put("user", JdbcUtilities.toAccess(user));
-            }
+        final long length;
 
-            if (password != null && !password.isEmpty()) {
-                properties.put("password", JdbcUtilities.toAccess(password));
-            }
-            cx = DriverManager.getConnection(sb.toString(), properties);
-        } catch (ClassNotFoundException e) {
-            LOGGER.log(Level.FINE, e.getMessage(), e);
-        } catch (SQLException e) {
-            LOGGER.log(Level.FINE, e.getMessage(), e);
+        RowCount(int count, long lastModified, long length) {
+            this.count = count;
+            this.lastModified = lastModified;
+            this.length = length;
         }
-        return cx;
     }
 }
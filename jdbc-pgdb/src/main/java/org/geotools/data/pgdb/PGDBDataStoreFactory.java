@@ -58,6 +58,11 @@ public class PGDBDataStoreFactory extends AbstractDataStoreFactory implements Da
             new SimpleInternationalString("password used to login"), false, null,
             Collections.singletonMap(Parameter.IS_PASSWORD, Boolean.TRUE));
 
+    /** parameter for the number of shape decoding threads */
+    public static final Param PARAM_DECODE_THREADS = new Param("decode threads", Integer.class,
+            "Number of threads decoding shapes while rows are fetched, 0 or 1 to disable",
+            false, Integer.valueOf(0));
+
     public String getDisplayName() {
         return "ESRI Personal Geodatabase (PGDB)";
     }
@@ -67,7 +72,7 @@ public class PGDBDataStoreFactory extends AbstractDataStoreFactory implements Da
     }
 
     public Param[] getParametersInfo() {
-        return new Param[] { PARAM_FILE, PARAM_USER, PARAM_PASSWD };
+        return new Param[] { PARAM_FILE, PARAM_USER, PARAM_PASSWD, PARAM_DECODE_THREADS };
     }
 
     public boolean isAvailable() {
@@ -97,9 +102,11 @@ public class PGDBDataStoreFactory extends AbstractDataStoreFactory implements Da
         URL url = (URL) PARAM_FILE.lookUp(params);
         String user = (String) PARAM_USER.lookUp(params);
         String password = (String) PARAM_PASSWD.lookUp(params);
+        Integer decodeThreads = (Integer) PARAM_DECODE_THREADS.lookUp(params);
 
         // it is immutable and cannot be modified
-        final DataStore dataStore = new PGDBDataStore(DataUtilities.urlToFile(url), user, password);
+        final DataStore dataStore = new PGDBDataStore(DataUtilities.urlToFile(url), user,
+                password, decodeThreads == null ? 0 : decodeThreads.intValue());
         return dataStore;
     }
 
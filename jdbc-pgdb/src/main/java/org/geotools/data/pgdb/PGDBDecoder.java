@@ -30,6 +30,7 @@ import org.geotools.geometry.jts.JTSFactoryFinder;
 import org.geotools.util.logging.Logging;
 
 import com.vividsolutions.jts.geom.CoordinateSequence;
+import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 
@@ -150,9 +151,18 @@ public class PGDBDecoder {
     }
 
     public Geometry decodeGeometry(byte[] bytes) {
-        int size = bytes.length;
+        return decodeGeometry(ByteBuffer.wrap(bytes));
+    }
+
+    /**
+     * Decodes the shape record starting at the buffer position. The position of the buffer is
+     * moved.
+     */
+    public Geometry decodeGeometry(ByteBuffer buffer) {
+        final int offset = buffer.position();
+        final int size = buffer.remaining();
         if (size < 4) {
-            LOGGER.log(Level.WARNING, "Shape buffer size (%d) too small");
+            LOGGER.log(Level.WARNING, "Shape buffer size (" + size + ") too small");
             return null;
         }
 
@@ -161,13 +171,14 @@ public class PGDBDecoder {
         /* NOTE: this seems to be an undocumented feature, even in the */
         /* extended_shapefile_format.pdf found in the FileGDB API documentation */
         /* -------------------------------------------------------------------- */
-        if (size >= 14 && bytes[12] == 0x78 && bytes[13] == 0xDA /* zlib marker */) {
+        if (size >= 14 && buffer.get(offset + 12) == 0x78
+                && (buffer.get(offset + 13) & 0xFF) == 0xDA /* zlib marker */) {
             LOGGER.log(Level.WARNING, "zlib compressed shapes");
             // TODO: ============================================
             return null;
         }
 
-        int shape = bytes[0];
+        int shape = buffer.get(offset);
         if (0 == shape) {
             LOGGER.log(Level.WARNING, "null shape");
             return null;
@@ -175,10 +186,9 @@ public class PGDBDecoder {
 
         /* -------------------------------------------------------------------- */
         /* shape record is all little endian */
-        ByteBuffer buffer = ByteBuffer.wrap(bytes);
         buffer.order(ByteOrder.LITTLE_ENDIAN);
         /* read shape type (not needed) */
-        buffer.position(buffer.position() + 4);
+        buffer.position(offset + 4);
         /* -------------------------------------------------------------------- */
 
         shape = getGeneralShapeType(shape);
@@ -222,6 +232,37 @@ public class PGDBDecoder {
         return null;
     }
 
+    /**
+     * Reads the bounding box stored in the shape record header, without decoding the
+     * coordinates. Returns null for null shapes.
+     */
+    public Envelope decodeEnvelope(ByteBuffer buffer) {
+        final int offset = buffer.position();
+        final int size = buffer.remaining();
+        if (size < 4 || buffer.get(offset) == 0) {
+            return null;
+        }
+
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        int shape = getGeneralShapeType(buffer.get(offset));
+        if (isPoint(shape)) {
+            if (size < 20) {
+                return null;
+            }
+            double x = buffer.getDouble(offset + 4);
+            double y = buffer.getDouble(offset + 12);
+            return new Envelope(x, x, y, y);
+        } else if (size < 36) {
+            return null;
+        }
+
+        double minX = buffer.getDouble(offset + 4);
+        double minY = buffer.getDouble(offset + 12);
+        double maxX = buffer.getDouble(offset + 20);
+        double maxY = buffer.getDouble(offset + 28);
+        return new Envelope(minX, maxX, minY, maxY);
+    }
+
     private Geometry readPolygon(ByteBuffer buffer, boolean hasZ, boolean isMultiPatch) {
         boolean flatFeature = false;
         ShapeType shapeType = hasZ ? ShapeType.POLYGONZ : ShapeType.POLYGON;
@@ -0,0 +1,84 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.opengis.feature.simple.SimpleFeatureType;
+import org.opengis.filter.Filter;
+
+/**
+ * Read-only table access to an ESRI Personal Geodatabase (.mdb) file.
+ * <p>
+ * Implemented by {@link JetDatabase}, which reads the Jet/ACE pages directly, and by
+ * {@link OdbcEngine}, the JDBC-ODBC bridge fallback.
+ */
+interface PGDBEngine {
+
+    /**
+     * Returns the columns of the table, in table order
+     */
+    List<ColumnInfo> getColumns(String tableName) throws IOException;
+
+    /**
+     * Opens a full scan of the table. The caller must close the cursor.
+     */
+    PGDBCursor openCursor(String tableName) throws IOException;
+
+    /**
+     * Returns the number of rows of the table, or -1 if unknown
+     */
+    int getRowCount(String tableName) throws IOException;
+
+    /**
+     * Returns the number of rows matching the filter, or -1 if the engine cannot evaluate the
+     * filter itself
+     */
+    int getRowCount(SimpleFeatureType schema, Filter filter) throws IOException;
+
+    void dispose();
+
+    /**
+     * Column description used to build the feature type
+     */
+    static final class ColumnInfo {
+        final String name;
+
+        final Class<?> binding;
+
+        final int length;
+
+        ColumnInfo(String name, Class<?> binding, int length) {
+            this.name = name;
+            this.binding = binding;
+            this.length = length;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public Class<?> getBinding() {
+            return binding;
+        }
+
+        public int getLength() {
+            return length;
+        }
+    }
+}
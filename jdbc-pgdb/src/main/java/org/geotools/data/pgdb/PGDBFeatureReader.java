@@ -17,18 +17,12 @@
 package org.geotools.data.pgdb;
 
 import java.io.IOException;
-import java.sql.Connection;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.nio.ByteBuffer;
 import java.util.NoSuchElementException;
-import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import org.geotools.data.FeatureReader;
-import org.geotools.factory.GeoTools;
 import org.geotools.feature.simple.SimpleFeatureBuilder;
-import org.geotools.geometry.jts.JTSFactoryFinder;
 import org.geotools.util.Converters;
 import org.geotools.util.logging.Logging;
 import org.opengis.feature.simple.SimpleFeature;
@@ -37,7 +31,6 @@ import org.opengis.feature.type.AttributeDescriptor;
 import org.opengis.feature.type.GeometryDescriptor;
 
 import com.vividsolutions.jts.geom.Geometry;
-import com.vividsolutions.jts.geom.GeometryFactory;
 
 /**
  * ESRI Personal Geodatabase FeatureReader
@@ -50,43 +43,20 @@ import com.vividsolutions.jts.geom.GeometryFactory;
 public class PGDBFeatureReader implements FeatureReader<SimpleFeatureType, SimpleFeature> {
     protected static final Logger LOGGER = Logging.getLogger(PGDBFeatureReader.class);
 
-    Connection cx;
-
-    ResultSet rs = null;
-
-    Statement stmt = null;
+    PGDBCursor cursor;
 
     PGDBDecoder geomDecoder = PGDBDecoder.newInstance();
 
-    Class<?> geomBinding;
-
     SimpleFeatureType schema;
 
-    SimpleFeatureBuilder fb;
-
     int featureID = 0;
 
-    GeometryFactory gf = JTSFactoryFinder.getGeometryFactory(GeoTools.getDefaultHints());
+    Boolean hasNext;
 
-    public PGDBFeatureReader(Connection cx, SimpleFeatureType schema) {
-        this.cx = cx;
+    PGDBFeatureReader(PGDBEngine engine, SimpleFeatureType schema) throws IOException {
         this.schema = schema;
-        this.geomBinding = schema.getGeometryDescriptor().getType().getBinding();
-        this.fb = new SimpleFeatureBuilder(schema);
         this.featureID = 0;
-
-        this.queryLayer();
-    }
-
-    private void queryLayer() {
-        try {
-            String sql = "SELECT * FROM \"";
-            sql += JdbcUtilities.toAccess(schema.getTypeName()) + "\"";
-            stmt = cx.createStatement();
-            rs = stmt.executeQuery(sql);
-        } catch (SQLException e) {
-            LOGGER.log(Level.FINER, e.getMessage(), e);
-        }
+        this.cursor = engine.openCursor(schema.getTypeName());
     }
 
     public SimpleFeatureType getFeatureType() {
@@ -95,43 +65,57 @@ public class PGDBFeatureReader implements FeatureReader<SimpleFeatureType, Simpl
 
     public SimpleFeature next() throws IOException, IllegalArgumentException,
             NoSuchElementException {
-        SimpleFeature feature = fb.buildFeature(schema.getTypeName() + "." + ++featureID);
-
-        try {
-            for (int index = 0; index < schema.getAttributeCount(); index++) {
-                AttributeDescriptor desc = schema.getDescriptor(index);
-                String accessFieldName = JdbcUtilities.toAccess(desc.getLocalName());
-
-                if (desc instanceof GeometryDescriptor) {
-                    byte[] bytes = rs.getBytes(accessFieldName);
-                    Geometry geometry = geomDecoder.decodeGeometry(bytes);
-                    feature.setDefaultGeometry(geometry);
-                } else if (desc.getType().getBinding().isAssignableFrom(String.class)) {
-                    String strVal = JdbcUtilities.fromAccess(rs.getString(accessFieldName));
-                    feature.setAttribute(desc.getLocalName(), strVal);
-                } else {
-                    Object objValue = rs.getObject(accessFieldName);
-                    Object value = Converters.convert(objValue, desc.getType().getBinding());
-                    feature.setAttribute(desc.getLocalName(), value);
-                }
-            }
-        } catch (SQLException e) {
-            LOGGER.log(Level.WARNING, e.getMessage(), e);
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features in " + schema.getTypeName());
         }
+        hasNext = null;
 
-        return feature;
+        Object[] values = readValues(cursor, schema);
+        return buildFeature(schema, values, schema.getTypeName() + "." + ++featureID, geomDecoder);
     }
 
     public boolean hasNext() throws IOException {
-        try {
-            return rs.next();
-        } catch (SQLException e) {
-            LOGGER.log(Level.FINER, e.getMessage(), e);
+        if (hasNext == null) {
+            hasNext = Boolean.valueOf(cursor.next());
         }
-        return false;
+        return hasNext.booleanValue();
     }
 
     public void close() throws IOException {
-        JdbcUtilities.closeSafe(rs, stmt);
+        cursor.close();
+    }
+
+    /**
+     * Reads the attribute values of the current row. The shape is left as a raw ByteBuffer,
+     * still valid after the cursor moves on.
+     */
+    static Object[] readValues(PGDBCursor cursor, SimpleFeatureType schema) throws IOException {
+        Object[] values = new Object[schema.getAttributeCount()];
+        for (int index = 0; index < values.length; index++) {
+            AttributeDescriptor desc = schema.getDescriptor(index);
+            String fieldName = desc.getLocalName();
+
+            if (desc instanceof GeometryDescriptor) {
+                values[index] = cursor.getByteBuffer(fieldName);
+            } else {
+                Object objValue = cursor.getObject(fieldName);
+                values[index] = Converters.convert(objValue, desc.getType().getBinding());
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Decodes the shape read by {@link #readValues} and builds the feature. Thread safe.
+     */
+    static SimpleFeature buildFeature(SimpleFeatureType schema, Object[] values, String fid,
+            PGDBDecoder geomDecoder) {
+        for (int index = 0; index < values.length; index++) {
+            if (values[index] instanceof ByteBuffer) {
+                Geometry geometry = geomDecoder.decodeGeometry((ByteBuffer) values[index]);
+                values[index] = geometry;
+            }
+        }
+        return SimpleFeatureBuilder.build(schema, values, fid);
     }
 }
@@ -0,0 +1,195 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.geotools.data.FeatureReader;
+import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeature;
+import org.opengis.feature.simple.SimpleFeatureType;
+
+/**
+ * ESRI Personal Geodatabase FeatureReader that overlaps row fetching and shape decoding.
+ * <p>
+ * A fetch thread reads the raw rows and hands them to the decoder pool of the DataStore. The
+ * pending results are kept, in row order, in a bounded queue so features are returned in the
+ * same order as {@link PGDBFeatureReader} and memory use stays bounded.
+ */
+public class PGDBPipelinedFeatureReader implements
+        FeatureReader<SimpleFeatureType, SimpleFeature> {
+    protected static final Logger LOGGER = Logging.getLogger(PGDBPipelinedFeatureReader.class);
+
+    static final int QUEUE_SIZE_PER_THREAD = 64;
+
+    /** end of data marker */
+    static final Future<SimpleFeature> END = completed(null);
+
+    final PGDBDecoder geomDecoder = PGDBDecoder.newInstance();
+
+    final SimpleFeatureType schema;
+
+    final PGDBCursor cursor;
+
+    final ExecutorService decoderPool;
+
+    final BlockingQueue<Future<SimpleFeature>> queue;
+
+    final Thread fetcher;
+
+    volatile boolean closed = false;
+
+    boolean finished = false;
+
+    SimpleFeature next;
+
+    PGDBPipelinedFeatureReader(PGDBEngine engine, SimpleFeatureType schema,
+            ExecutorService decoderPool, int threads) throws IOException {
+        this.schema = schema;
+        this.decoderPool = decoderPool;
+        this.queue = new ArrayBlockingQueue<Future<SimpleFeature>>(Math.max(1, threads)
+                * QUEUE_SIZE_PER_THREAD);
+        this.cursor = engine.openCursor(schema.getTypeName());
+
+        this.fetcher = new Thread(new Fetcher(), "PGDB fetch " + schema.getTypeName());
+        this.fetcher.setDaemon(true);
+        this.fetcher.start();
+    }
+
+    public SimpleFeatureType getFeatureType() {
+        return schema;
+    }
+
+    public SimpleFeature next() throws IOException, IllegalArgumentException,
+            NoSuchElementException {
+        if (!hasNext()) {
+            throw new NoSuchElementException("No more features in " + schema.getTypeName());
+        }
+        SimpleFeature feature = next;
+        next = null;
+        return feature;
+    }
+
+    public boolean hasNext() throws IOException {
+        if (next != null) {
+            return true;
+        } else if (finished || closed) {
+            return false;
+        }
+
+        try {
+            Future<SimpleFeature> future = queue.take();
+            if (future == END) {
+                finished = true;
+                return false;
+            }
+            next = future.get();
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while reading " + schema.getTypeName());
+        } catch (ExecutionException e) {
+            finished = true;
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        fetcher.interrupt();
+
+        // pending decodes are no longer needed
+        Future<SimpleFeature> future;
+        while ((future = queue.poll()) != null) {
+            future.cancel(false);
+        }
+    }
+
+    static Future<SimpleFeature> completed(final Object result) {
+        FutureTask<SimpleFeature> future = new FutureTask<SimpleFeature>(
+                new Callable<SimpleFeature>() {
+                    public SimpleFeature call() throws Exception {
+                        if (result instanceof Exception) {
+                            throw (Exception) result;
+                        } else if (result instanceof Error) {
+                            throw (Error) result;
+                        }
+                        return (SimpleFeature) result;
+                    }
+                });
+        future.run();
+        return future;
+    }
+
+    /**
+     * Reads the rows on its own thread, the cursor is only used and closed here.
+     */
+    class Fetcher implements Runnable {
+        int featureID = 0;
+
+        public void run() {
+            try {
+                while (!closed && cursor.next()) {
+                    final Object[] values = PGDBFeatureReader.readValues(cursor, schema);
+                    final String fid = schema.getTypeName() + "." + ++featureID;
+                    queue.put(decoderPool.submit(new Callable<SimpleFeature>() {
+                        public SimpleFeature call() throws Exception {
+                            return PGDBFeatureReader.buildFeature(schema, values, fid,
+                                    geomDecoder);
+                        }
+                    }));
+                }
+                if (!closed) {
+                    queue.put(END);
+                }
+            } catch (InterruptedException e) {
+                LOGGER.log(Level.FINEST, "fetch of " + schema.getTypeName() + " interrupted");
+            } catch (Throwable e) {
+                // errors of the ODBC bridge included, the consumer would otherwise wait forever
+                try {
+                    // reported to the consumer in row order, after the features already read
+                    queue.put(completed(e));
+                    queue.put(END);
+                } catch (InterruptedException ie) {
+                    LOGGER.log(Level.FINEST, e.getMessage(), e);
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+    }
+}
@@ -16,12 +16,9 @@
  */
 package org.geotools.data.pgdb;
 
-import java.sql.Connection;
-import java.sql.DatabaseMetaData;
-import java.sql.ResultSet;
-import java.sql.SQLException;
-import java.sql.Statement;
+import java.io.IOException;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.TreeMap;
 import java.util.logging.Level;
@@ -30,7 +27,9 @@ import java.util.logging.Logger;
 import org.geotools.feature.simple.SimpleFeatureTypeBuilder;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.referencing.CRS;
+import org.geotools.util.SoftValueHashMap;
 import org.geotools.util.logging.Logging;
+import org.opengis.feature.simple.SimpleFeatureType;
 import org.opengis.referencing.FactoryException;
 import org.opengis.referencing.crs.CoordinateReferenceSystem;
 
@@ -45,7 +44,11 @@ import org.opengis.referencing.crs.CoordinateReferenceSystem;
 public class PGDBSchemaReader {
     protected static final Logger LOGGER = Logging.getLogger(PGDBSchemaReader.class);
 
-    final Connection cx;
+    /** parsed SRTEXT shared by all geodatabases, most files use a handful of them */
+    static final Map<String, CoordinateReferenceSystem> CRS_CACHE =
+            new SoftValueHashMap<String, CoordinateReferenceSystem>();
+
+    final PGDBEngine engine;
 
     final Map<Integer, String> spatialRefs = new TreeMap<Integer, String>();
 
@@ -55,8 +58,8 @@ public class PGDBSchemaReader {
         return Collections.unmodifiableMap(schemas);
     }
 
-    public PGDBSchemaReader(Connection conn) {
-        this.cx = conn;
+    PGDBSchemaReader(PGDBEngine engine) {
+        this.engine = engine;
 
         // 1. load spatial reference
         loadSpatialReference();
@@ -65,25 +68,33 @@ public class PGDBSchemaReader {
         loadLayerSchema();
     }
 
+    /**
+     * Builds the feature type of the layer on first use
+     */
+    public SimpleFeatureType getFeatureType(GDBSchema schema) {
+        synchronized (schema) {
+            if (schema.getSchema() == null) {
+                buildFeatureType(schema);
+            }
+            return schema.getSchema();
+        }
+    }
+
     public void buildFeatureType(GDBSchema schema) {
         SimpleFeatureTypeBuilder builder = new SimpleFeatureTypeBuilder();
         builder.setName(schema.getTypeName());
         builder.setCRS(schema.getCrs());
 
-        ResultSet rs = null;
         try {
-            DatabaseMetaData dbm = cx.getMetaData();
-            rs = dbm.getColumns(null, null, JdbcUtilities.toAccess(schema.getTypeName()), null);
-            while (rs.next()) {
-                String propertyName = JdbcUtilities.fromAccess(rs.getString("COLUMN_NAME"));
+            for (PGDBEngine.ColumnInfo column : engine.getColumns(schema.getTypeName())) {
+                String propertyName = column.getName();
                 if (schema.getShapeField().equalsIgnoreCase(propertyName)) {
                     builder.add(schema.getShapeField(), schema.getGeometryBinding(),
                             schema.getCrs());
                 } else {
-                    String dataTypeName = rs.getString("TYPE_NAME");
-                    Class<?> binding = JdbcUtilities.findBestBinding(dataTypeName);
+                    Class<?> binding = column.getBinding();
 
-                    int precision = rs.getInt("COLUMN_SIZE");
+                    int precision = column.getLength();
                     if (binding.isAssignableFrom(String.class) && precision > 0) {
                         builder.length(precision).add(propertyName, binding);
                     } else if (binding.isAssignableFrom(String.class) && precision == 0) {
@@ -93,75 +104,107 @@ public class PGDBSchemaReader {
                     }
                 }
             }
-        } catch (SQLException e) {
+        } catch (IOException e) {
             LOGGER.log(Level.FINER, e.getMessage(), e);
-        } finally {
-            JdbcUtilities.closeSafe(rs);
         }
 
         schema.setSchema(builder.buildFeatureType());
     }
 
     private void loadSpatialReference() {
-        Statement stmt = null;
-        ResultSet rs = null;
+        PGDBCursor cursor = null;
         try {
-            String sql = "SELECT SRID, SRTEXT FROM GDB_SpatialRefs";
-            stmt = cx.createStatement();
-            rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                spatialRefs.put(rs.getInt(1), rs.getString(2));
+            cursor = engine.openCursor("GDB_SpatialRefs");
+            while (cursor.next()) {
+                Object srid = cursor.getObject("SRID");
+                if (srid instanceof Number) {
+                    String srText = (String) cursor.getObject("SRTEXT");
+                    spatialRefs.put(((Number) srid).intValue(), srText);
+                }
             }
-        } catch (SQLException e) {
+        } catch (IOException e) {
             LOGGER.log(Level.FINER, e.getMessage(), e);
         } finally {
-            JdbcUtilities.closeSafe(rs, stmt);
+            if (cursor != null) {
+                cursor.close();
+            }
         }
     }
 
     private void loadLayerSchema() {
-        Statement stmt = null;
-        ResultSet rs = null;
+        Map<Integer, CoordinateReferenceSystem> crsMap =
+                new HashMap<Integer, CoordinateReferenceSystem>();
+        PGDBCursor cursor = null;
         try {
-            String sql = "SELECT TableName, ShapeType, FieldName, SRID, ";
-            sql += "ExtentLeft, ExtentBottom, ExtentRight, ExtentTop, IdxGridSize";
-            sql += " FROM GDB_GeomColumns WHERE TableName <> 'GDB_Items'";
-
-            stmt = cx.createStatement();
-            rs = stmt.executeQuery(sql);
-            while (rs.next()) {
-                final String typeName = JdbcUtilities.fromAccess(rs.getString(1));
+            cursor = engine.openCursor("GDB_GeomColumns");
+            while (cursor.next()) {
+                final String typeName = (String) cursor.getObject("TableName");
+                if (typeName == null || typeName.equalsIgnoreCase("GDB_Items")) {
+                    continue;
+                }
+
                 GDBSchema gdbSchema = new GDBSchema(typeName);
-                gdbSchema.setShapeType(rs.getInt(2));
-                gdbSchema.setShapeField(JdbcUtilities.fromAccess(rs.getString(3)));
-                gdbSchema.setSrid(rs.getInt(4));
-                gdbSchema.setGridSize(rs.getDouble(9));
-
-                // srs & extent
-                CoordinateReferenceSystem crs = null;
-                if (spatialRefs.get(gdbSchema.getSrid()) != null) {
-                    String srText = spatialRefs.get(gdbSchema.getSrid());
-                    try {
-                        crs = CRS.parseWKT(srText);
-                    } catch (FactoryException e) {
-                        LOGGER.log(Level.FINER, e.getMessage(), e);
-                    }
+                gdbSchema.setShapeType(toInt(cursor.getObject("ShapeType"), 0));
+                gdbSchema.setShapeField((String) cursor.getObject("FieldName"));
+                gdbSchema.setSrid(toInt(cursor.getObject("SRID"), -1));
+                gdbSchema.setGridSize(toDouble(cursor.getObject("IdxGridSize")));
+
+                // srs & extent, layers sharing a SRID share the CRS
+                Integer srid = Integer.valueOf(gdbSchema.getSrid());
+                CoordinateReferenceSystem crs = crsMap.get(srid);
+                if (crs == null && !crsMap.containsKey(srid)) {
+                    crs = parseCRS(spatialRefs.get(srid));
+                    crsMap.put(srid, crs);
                 }
                 gdbSchema.setCrs(crs);
 
-                double xMin = rs.getDouble(5);
-                double yMin = rs.getDouble(6);
-                double xMax = rs.getDouble(7);
-                double yMax = rs.getDouble(8);
+                double xMin = toDouble(cursor.getObject("ExtentLeft"));
+                double yMin = toDouble(cursor.getObject("ExtentBottom"));
+                double xMax = toDouble(cursor.getObject("ExtentRight"));
+                double yMax = toDouble(cursor.getObject("ExtentTop"));
                 gdbSchema.setExtent(new ReferencedEnvelope(xMin, xMax, yMin, yMax, crs));
 
                 schemas.put(gdbSchema.getTypeName(), gdbSchema);
             }
-        } catch (SQLException e) {
+        } catch (IOException e) {
             LOGGER.log(Level.FINER, e.getMessage(), e);
         } finally {
-            JdbcUtilities.closeSafe(rs, stmt);
+            if (cursor != null) {
+                cursor.close();
+            }
         }
     }
 
+    static CoordinateReferenceSystem parseCRS(String srText) {
+        if (srText == null || srText.isEmpty()) {
+            return null;
+        }
+
+        synchronized (CRS_CACHE) {
+            CoordinateReferenceSystem crs = CRS_CACHE.get(srText);
+            if (crs != null) {
+                return crs;
+            }
+        }
+
+        try {
+            CoordinateReferenceSystem crs = CRS.parseWKT(srText);
+            synchronized (CRS_CACHE) {
+                CRS_CACHE.put(srText, crs);
+            }
+            return crs;
+        } catch (FactoryException e) {
+            LOGGER.log(Level.FINER, e.getMessage(), e);
+        }
+        return null;
+    }
+
+    private static int toInt(Object value, int defaultValue) {
+        return value instanceof Number ? ((Number) value).intValue() : defaultValue;
+    }
+
+    private static double toDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0d;
+    }
+
 }
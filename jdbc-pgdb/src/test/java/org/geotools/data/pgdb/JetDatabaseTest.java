@@ -0,0 +1,166 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2012, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.pgdb;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.geotools.data.pgdb.PGDBEngine.ColumnInfo;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Reads roads.mdb, a Jet 4 file holding the GDB_GeomColumns and GDB_SpatialRefs catalog tables and
+ * a ROADS table of three rows:
+ * <ol>
+ * <li>a 40 bytes inline shape (LVAL type 0x80) and compressed text</li>
+ * <li>a 3000 bytes shape on another page (LVAL type 0x40) and null values</li>
+ * <li>a 20000 bytes shape over several pages (LVAL type 0x00), uncompressed Korean text and a
+ * memo over several pages</li>
+ * </ol>
+ * Compressed text switching between one and two byte segments is decoded from a buffer.
+ */
+public class JetDatabaseTest {
+
+    JetDatabase db;
+
+    @Before
+    public void setUp() throws Exception {
+        db = JetDatabase.open(new File(getClass().getResource("roads.mdb").toURI()));
+    }
+
+    @After
+    public void tearDown() {
+        db.dispose();
+    }
+
+    @Test
+    public void testCatalog() throws Exception {
+        assertTrue(db.getTableNames().contains("GDB_GeomColumns"));
+        assertTrue(db.getTableNames().contains("GDB_SpatialRefs"));
+        assertTrue(db.getTableNames().contains("ROADS"));
+        assertNull(db.getTable("RIVERS"));
+        assertEquals(3, db.getRowCount("ROADS"));
+
+        List<String> names = new ArrayList<String>();
+        for (ColumnInfo column : db.getColumns("ROADS")) {
+            names.add(column.getName());
+        }
+        assertEquals("[OBJECTID, Shape, NAME, NOTE, CNT, AREA]", names.toString());
+        assertEquals(Short.class, db.getTable("ROADS").getColumn("CNT").getBinding());
+
+        PGDBCursor cursor = db.openCursor("GDB_GeomColumns");
+        try {
+            assertTrue(cursor.next());
+            assertEquals("ROADS", cursor.getObject("TableName"));
+            assertEquals("Shape", cursor.getObject("FieldName"));
+            assertEquals(Integer.valueOf(3), cursor.getObject("ShapeType"));
+            assertEquals(Double.valueOf(10), cursor.getObject("ExtentRight"));
+            assertFalse(cursor.next());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void testRows() throws Exception {
+        PGDBCursor cursor = db.openCursor("ROADS");
+        try {
+            assertTrue(cursor.next());
+            assertEquals(Integer.valueOf(1), cursor.getObject("OBJECTID"));
+            assertEquals("road 1", cursor.getObject("NAME"));
+            assertEquals("inline memo", cursor.getObject("NOTE"));
+            assertEquals(Short.valueOf((short) 1), cursor.getObject("CNT"));
+            assertEquals(Double.valueOf(1.5), cursor.getObject("AREA"));
+
+            // null mask
+            assertTrue(cursor.next());
+            assertEquals(Integer.valueOf(2), cursor.getObject("OBJECTID"));
+            assertNull(cursor.getObject("NAME"));
+            assertNull(cursor.getObject("NOTE"));
+            assertNull(cursor.getObject("CNT"));
+            assertNull(cursor.getObject("AREA"));
+            assertNull(cursor.getByteBuffer("NAME"));
+
+            assertTrue(cursor.next());
+            assertEquals(Integer.valueOf(3), cursor.getObject("OBJECTID"));
+            assertEquals("도로 road 3", cursor.getObject("NAME"));
+            assertEquals(Short.valueOf((short) -3), cursor.getObject("CNT"));
+            String note = (String) cursor.getObject("NOTE");
+            assertEquals(1000 * 15, note.length());
+            assertTrue(note.startsWith("긴 메모 long memo 긴"));
+
+            assertFalse(cursor.next());
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void testLongValues() throws Exception {
+        PGDBCursor cursor = db.openCursor("ROADS");
+        try {
+            int[] sizes = { 40, 3000, 20000 };
+            for (int i = 0; i < sizes.length; i++) {
+                assertTrue(cursor.next());
+                byte[] expected = bytes(sizes[i], i + 1);
+                assertArrayEquals(expected, (byte[]) cursor.getObject("Shape"));
+
+                ByteBuffer buffer = cursor.getByteBuffer("Shape");
+                byte[] read = new byte[buffer.remaining()];
+                buffer.get(read);
+                assertArrayEquals(expected, read);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Test
+    public void testDecodeText() {
+        // "ab" compressed, then a two byte segment, then "c" compressed again
+        ByteBuffer compressed = ByteBuffer.wrap(new byte[] { (byte) 0xFF, (byte) 0xFE, 'a', 'b',
+                0, 0x04, (byte) 0xB3, 0, 'c' }).order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("ab댄c", JetCursor.decodeText(compressed));
+
+        ByteBuffer plain = ByteBuffer.wrap(new byte[] { 'a', 0, 0x04, (byte) 0xB3 }).order(
+                ByteOrder.LITTLE_ENDIAN);
+        assertEquals("a댄", JetCursor.decodeText(plain));
+        assertNull(JetCursor.decodeText(null));
+    }
+
+    /**
+     * The shape values of the fixture
+     */
+    static byte[] bytes(int length, int seed) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + seed);
+        }
+        return bytes;
+    }
+}
@@ -28,10 +28,21 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.logging.Level;
 
 import org.geotools.data.jdbc.FilterToSQL;
+import org.geotools.data.korean.DeferredIndexBuilder;
+import org.geotools.data.korean.ExtentCache;
+import org.geotools.data.korean.FeatureCache;
+import org.geotools.data.korean.GeometryColumnsCache;
+import org.geotools.data.korean.GeometryColumnsCache.GeometryColumn;
+import org.geotools.data.korean.QueryMetrics;
+import org.geotools.data.korean.SequenceAllocator;
+import org.geotools.data.korean.WKBAttributeIO;
+import org.geotools.data.korean.WKBEncoder;
+import org.geotools.data.korean.WKBQuirks;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.BasicSQLDialect;
@@ -55,8 +66,7 @@ import com.vividsolutions.jts.geom.MultiPoint;
 import com.vividsolutions.jts.geom.MultiPolygon;
 import com.vividsolutions.jts.geom.Point;
 import com.vividsolutions.jts.geom.Polygon;
-import com.vividsolutions.jts.io.ParseException;
-import com.vividsolutions.jts.io.WKTReader;
+import com.vividsolutions.jts.simplify.DouglasPeuckerSimplifier;
 
 public class TiberoDialect extends BasicSQLDialect {
 
@@ -64,8 +74,36 @@ public class TiberoDialect extends BasicSQLDialect {
 
     boolean estimatedExtentsEnabled = false;
 
+    static final Version V_6 = new Version("6.0");
+
+    static final String GEOMETRY_COLUMNS_BASE = "SELECT F_TABLE_SCHEMA, F_TABLE_NAME, "
+            + "F_GEOMETRY_COLUMN, SRID, COORD_DIMENSION FROM GEOMETRY_COLUMNS_BASE";
+
     Version version;
 
+    /** the GEOMETRY_COLUMNS view, source of the SRID, dimension and geometry type */
+    final GeometryColumnsCache geometryColumns;
+
+    /** the GEOMETRY_COLUMNS_BASE table, source of the published tables */
+    final GeometryColumnsCache registeredTables;
+
+    final ExtentCache extents = new ExtentCache();
+
+    final SequenceAllocator sequences;
+
+    final DeferredIndexBuilder deferredIndexes = new DeferredIndexBuilder();
+
+    boolean bulkLoadEnabled = false;
+
+    FeatureCache featureCache;
+
+    QueryMetrics queryMetrics;
+
+    boolean simplifyEnabled = true;
+
+    /** the simplification function of the server, "" if it has none, null until checked */
+    volatile String simplifyFunction;
+
     @SuppressWarnings({ "rawtypes", "serial" })
     final static Map<String, Class> TYPE_TO_CLASS_MAP = new HashMap<String, Class>() {
         {
@@ -105,6 +143,11 @@ public class TiberoDialect extends BasicSQLDialect {
 
     public TiberoDialect(JDBCDataStore dataStore) {
         super(dataStore);
+        this.geometryColumns = new GeometryColumnsCache(dataStore,
+                GeometryColumnsCache.GEOMETRY_COLUMNS);
+        this.registeredTables = new GeometryColumnsCache(dataStore, GEOMETRY_COLUMNS_BASE);
+        this.sequences = new SequenceAllocator(dataStore);
+        dataStore.getConnectionLifecycleListeners().add(extents);
     }
 
     public boolean isLooseBBOXEnabled() {
@@ -115,6 +158,19 @@ public class TiberoDialect extends BasicSQLDialect {
         this.looseBBOXEnabled = looseBBOXEnabled;
     }
 
+    public boolean isSimplifyEnabled() {
+        return simplifyEnabled;
+    }
+
+    /**
+     * Enables simplifying the geometries when the query carries a simplification distance, as
+     * rendering queries do: on the server with ST_SIMPLIFY or ST_SNAPTOGRID, after reading when
+     * the server has neither
+     */
+    public void setSimplifyEnabled(boolean simplifyEnabled) {
+        this.simplifyEnabled = simplifyEnabled;
+    }
+
     public boolean isEstimatedExtentsEnabled() {
         return estimatedExtentsEnabled;
     }
@@ -123,6 +179,80 @@ public class TiberoDialect extends BasicSQLDialect {
         this.estimatedExtentsEnabled = estimatedExtentsEnabled;
     }
 
+    /**
+     * Sets how long, in milliseconds, the optimized bounds of a table are cached. Zero or less
+     * disables the cache.
+     */
+    public void setExtentsTimeToLive(long timeToLive) {
+        extents.setTimeToLive(timeToLive);
+    }
+
+    /**
+     * Sets how long, in milliseconds, the geometry metadata of the tables is cached. Zero or less
+     * reads it again on every lookup.
+     */
+    public void setGeometryColumnsTimeToLive(long timeToLive) {
+        geometryColumns.setTimeToLive(timeToLive);
+        registeredTables.setTimeToLive(timeToLive);
+    }
+
+    /**
+     * Sets the number of sequence values reserved per query, 1 or less reads one value per insert
+     */
+    public void setSequenceBlockSize(int blockSize) {
+        sequences.setBlockSize(blockSize);
+    }
+
+    public boolean isBulkLoadEnabled() {
+        return bulkLoadEnabled;
+    }
+
+    /**
+     * In bulk load mode the spatial index of a new table is built once its first load commits,
+     * instead of being maintained row by row during the load
+     */
+    public void setBulkLoadEnabled(boolean bulkLoadEnabled) {
+        this.bulkLoadEnabled = bulkLoadEnabled;
+        dataStore.getConnectionLifecycleListeners().remove(deferredIndexes);
+        if (bulkLoadEnabled) {
+            dataStore.getConnectionLifecycleListeners().add(deferredIndexes);
+        }
+    }
+
+    public DeferredIndexBuilder getDeferredIndexes() {
+        return deferredIndexes;
+    }
+
+    public FeatureCache getFeatureCache() {
+        return featureCache;
+    }
+
+    /**
+     * Sets the estimated size, in bytes, of the query results kept for
+     * {@link org.geotools.data.korean.TileCachedFeatureSource}. Zero or less disables the cache.
+     */
+    public void setFeatureCacheSize(long maxBytes) {
+        if (featureCache != null) {
+            dataStore.getConnectionLifecycleListeners().remove(featureCache);
+            featureCache = null;
+        }
+        if (maxBytes > 0) {
+            featureCache = new FeatureCache(maxBytes);
+            dataStore.getConnectionLifecycleListeners().add(featureCache);
+        }
+    }
+
+    public QueryMetrics getQueryMetrics() {
+        return queryMetrics;
+    }
+
+    /**
+     * Records the size and decode time of the geometries read, null disables the recording
+     */
+    public void setQueryMetrics(QueryMetrics queryMetrics) {
+        this.queryMetrics = queryMetrics;
+    }
+
     @Override
     public boolean isAggregatedSortSupported(String function) {
         return "distinct".equalsIgnoreCase(function);
@@ -131,6 +261,43 @@ public class TiberoDialect extends BasicSQLDialect {
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
         super.initializeConnection(cx);
+        if (simplifyEnabled && simplifyFunction == null) {
+            simplifyFunction = findSimplifyFunction(cx);
+        }
+    }
+
+    /**
+     * Returns the first of ST_SIMPLIFY and ST_SNAPTOGRID the server can run, or "" if neither
+     */
+    String findSimplifyFunction(Connection cx) throws SQLException {
+        for (String function : new String[] { "ST_SIMPLIFY", "ST_SNAPTOGRID" }) {
+            Statement st = null;
+            ResultSet rs = null;
+            Savepoint savePoint = null;
+            try {
+                if (!cx.getAutoCommit()) {
+                    savePoint = cx.setSavepoint();
+                }
+                st = cx.createStatement();
+                rs = st.executeQuery("SELECT " + function
+                        + "(ST_GEOMFROMTEXT('LINESTRING(0 0, 1 1)'), 1) FROM DUAL");
+                return function;
+            } catch (SQLException e) {
+                if (savePoint != null) {
+                    cx.rollback(savePoint);
+                }
+                LOGGER.log(Level.FINE, function + " is not available", e);
+            } finally {
+                if (savePoint != null) {
+                    cx.releaseSavepoint(savePoint);
+                }
+                dataStore.closeSafe(rs);
+                dataStore.closeSafe(st);
+            }
+        }
+        LOGGER.info("No simplification function on the server, geometries are simplified "
+                + "after reading");
+        return "";
     }
 
     @Override
@@ -155,22 +322,8 @@ public class TiberoDialect extends BasicSQLDialect {
             schemaName = "SYSGIS";
         }
 
-        StringBuffer sql = new StringBuffer();
-        sql.append("SELECT F_TABLE_NAME FROM GEOMETRY_COLUMNS_BASE WHERE ");
-        sql.append(" F_TABLE_SCHEMA = '").append(schemaName).append("' ");
-        sql.append(" AND F_TABLE_NAME = '").append(tableName).append("'");
-
-        Statement statement = null;
-        ResultSet result = null;
-        try {
-            statement = cx.createStatement();
-            result = statement.executeQuery(sql.toString());
-            if (result.next()) {
-                return true;
-            }
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        if (registeredTables.containsTable(schemaName, tableName, cx)) {
+            return true;
         }
 
         // others?
@@ -192,28 +345,110 @@ public class TiberoDialect extends BasicSQLDialect {
         return (Geometry) reader.read(rs, column);
     }
 
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return simplify(decodeGeometryValue(descriptor, rs, column, factory, cx), descriptor,
+                hints);
+    }
+
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return simplify(decodeGeometryValue(descriptor, rs, column, factory, cx), descriptor,
+                hints);
+    }
+
+    /**
+     * Simplifies the geometry read when the server could not do it
+     */
+    Geometry simplify(Geometry geometry, GeometryDescriptor descriptor, Hints hints) {
+        String function = simplifyFunction;
+        if (geometry == null || (function != null && function.length() > 0)) {
+            return geometry;
+        }
+        double distance = getSimplificationDistance(descriptor, hints);
+        return distance > 0 ? DouglasPeuckerSimplifier.simplify(geometry, distance) : geometry;
+    }
+
     WKBAttributeIO getWKBReader(GeometryFactory factory) {
         WKBAttributeIO reader = wkbReader.get();
         if (reader == null) {
-            reader = new WKBAttributeIO(factory);
+            reader = new WKBAttributeIO(factory, WKBQuirks.TIBERO);
             wkbReader.set(reader);
         } else {
             reader.setGeometryFactory(factory);
         }
+        reader.setMetrics(queryMetrics);
         return reader;
     }
 
     @Override
     public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid, Hints hints,
             StringBuffer sql) {
-        sql.append(" ST_ASBINARY(");
-        encodeColumnName(prefix, gatt.getLocalName(), sql);
-        sql.append(")");
+        encodeSimplifiedColumn(gatt, prefix, getSimplificationDistance(gatt, hints), sql);
+    }
+
+    /**
+     * Called by the datastore instead of
+     * {@link #encodeGeometryColumn(GeometryDescriptor, String, int, Hints, StringBuffer)} when
+     * the query carries {@link Hints#GEOMETRY_SIMPLIFICATION}, as rendering queries do
+     */
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        encodeSimplifiedColumn(gatt, prefix,
+                simplifyEnabled && distance != null ? distance.doubleValue() : 0, sql);
+    }
+
+    void encodeSimplifiedColumn(GeometryDescriptor gatt, String prefix, double distance,
+            StringBuffer sql) {
+        String function = simplifyFunction;
+        if (distance > 0 && function != null && function.length() > 0) {
+            // ST_ASBINARY(ST_SIMPLIFY(geom, 0.5)), or ST_SNAPTOGRID on servers without it
+            sql.append(" ST_ASBINARY(").append(function).append("(");
+            encodeColumnName(prefix, gatt.getLocalName(), sql);
+            sql.append(", ").append(distance).append("))");
+        } else {
+            // simplified after reading, if at all
+            sql.append(" ST_ASBINARY(");
+            encodeColumnName(prefix, gatt.getLocalName(), sql);
+            sql.append(")");
+        }
+    }
+
+    /**
+     * Returns the simplification distance requested by the hints, or 0 if the geometry has to be
+     * read at full resolution. Points have nothing to simplify.
+     */
+    double getSimplificationDistance(GeometryDescriptor gatt, Hints hints) {
+        if (!simplifyEnabled || hints == null) {
+            return 0;
+        }
+
+        Class<?> binding = gatt.getType().getBinding();
+        if (Point.class.isAssignableFrom(binding) || MultiPoint.class.isAssignableFrom(binding)) {
+            return 0;
+        }
+
+        Object distance = hints.get(Hints.GEOMETRY_SIMPLIFICATION);
+        if (distance == null) {
+            distance = hints.get(Hints.GEOMETRY_DISTANCE);
+        }
+        return distance instanceof Number ? ((Number) distance).doubleValue() : 0;
+    }
+
+    @Override
+    public void addSupportedHints(Set<Hints.Key> hints) {
+        if (simplifyEnabled) {
+            hints.add(Hints.GEOMETRY_SIMPLIFICATION);
+            hints.add(Hints.GEOMETRY_DISTANCE);
+        }
     }
 
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
-        sql.append(" ST_ASTEXT(ST_ENVELOPE(");
+        sql.append(" ST_ASBINARY(ST_ENVELOPE(");
         encodeColumnName(null, geometryColumn, sql);
         sql.append("))");
     }
@@ -238,6 +473,12 @@ public class TiberoDialect extends BasicSQLDialect {
             return null;
         }
 
+        List<ReferencedEnvelope> cached = extents.get(schema, tableName);
+        if (cached != null) {
+            return cached;
+        }
+        long generation = extents.getGeneration(schema, tableName);
+
         Statement st = null;
         ResultSet rs = null;
 
@@ -291,22 +532,46 @@ public class TiberoDialect extends BasicSQLDialect {
             dataStore.closeSafe(rs);
             dataStore.closeSafe(st);
         }
+        extents.put(schema, tableName, generation, result);
         return result;
     }
 
     @Override
     public Envelope decodeGeometryEnvelope(ResultSet rs, int column, Connection cx)
             throws SQLException, IOException {
-        try {
-            String envelope = rs.getString(column);
-            if (envelope != null) {
-                return new WKTReader().read(envelope).getEnvelopeInternal();
-            } else {
-                return new Envelope();
-            }
-        } catch (ParseException e) {
-            throw (IOException) new IOException("Error occurred parsing the bounds WKT")
-                    .initCause(e);
+        // the envelope is read straight from the WKB, without building the polygon
+        WKBAttributeIO reader = wkbReader.get();
+        if (reader == null) {
+            reader = getWKBReader(new GeometryFactory());
+        }
+        return reader.readEnvelope(rs, column);
+    }
+
+    @Override
+    public void onInsert(Statement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+        deferredIndexes.inserted(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+    }
+
+    @Override
+    public void onUpdate(Statement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+    }
+
+    @Override
+    public void onDelete(Statement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        extents.written(cx, dataStore.getDatabaseSchema(), featureType.getTypeName());
+        invalidateFeatures(cx, featureType);
+    }
+
+    void invalidateFeatures(Connection cx, SimpleFeatureType featureType) {
+        if (featureCache != null) {
+            featureCache.written(cx, featureType.getTypeName());
         }
     }
 
@@ -351,29 +616,8 @@ public class TiberoDialect extends BasicSQLDialect {
         String columnName = columnMetaData.getString("COLUMN_NAME");
         String schemaName = columnMetaData.getString("TABLE_SCHEM");
 
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-
-        try {
-            String sqlStatement = "SELECT F_GEOMETRY_TYPE FROM " + gTableName + " WHERE " //
-                    + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                    + "AND F_TABLE_NAME = '" + tableName + "' " //
-                    + "AND " + gColumnName + " = '" + columnName + "'";
-
-            LOGGER.log(Level.FINE, "Geometry type check; {0} ", sqlStatement);
-            statement = cx.createStatement();
-            result = statement.executeQuery(sqlStatement);
-
-            if (result.next()) {
-                return result.getString(1);
-            }
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
-        }
-
-        return null;
+        GeometryColumn column = geometryColumns.get(schemaName, tableName, columnName, cx);
+        return column == null ? null : column.getGeometryType();
     }
 
     @Override
@@ -406,79 +650,35 @@ public class TiberoDialect extends BasicSQLDialect {
     @Override
     public Integer getGeometrySRID(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-        Integer srid = null;
         try {
-            // try geometry_columns
-            try {
-                String sqlStatement = "SELECT SRID FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                LOGGER.log(Level.FINE, "Geometry srid check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    srid = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            GeometryColumn column = geometryColumns.get(schemaName, tableName, columnName,
+                    cx);
+            if (column != null) {
+                return column.getSrid();
             }
-
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         }
-
-        return srid;
+        return null;
     }
 
     @Override
     public int getGeometryDimension(String schemaName, String tableName, String columnName,
             Connection cx) throws SQLException {
-        // first attempt, try with the geometry metadata
-        Statement statement = null;
-        ResultSet result = null;
-        int dimension = 2; // default
         try {
-            // try geometry_columns
-            try {
-                String sqlStatement = "SELECT COORD_DIMENSION FROM GEOMETRY_COLUMNS WHERE " //
-                        + "F_TABLE_SCHEMA = '" + schemaName + "' " //
-                        + "AND F_TABLE_NAME = '" + tableName + "' " //
-                        + "AND F_GEOMETRY_COLUMN = '" + columnName + "'";
-
-                LOGGER.log(Level.FINE, "Geometry dimension check; {0} ", sqlStatement);
-                statement = cx.createStatement();
-                result = statement.executeQuery(sqlStatement);
-
-                if (result.next()) {
-                    dimension = result.getInt(1);
-                }
-            } catch (SQLException e) {
-                LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName
-                        + "." + tableName + "." + columnName
-                        + " from the geometry_columns table, checking the first geometry instead",
-                        e);
-            } finally {
-                dataStore.closeSafe(result);
+            GeometryColumn column = geometryColumns.get(schemaName, tableName, columnName,
+                    cx);
+            if (column != null) {
+                return column.getDimension();
             }
-
-        } finally {
-            dataStore.closeSafe(result);
-            dataStore.closeSafe(statement);
+        } catch (SQLException e) {
+            LOGGER.log(Level.WARNING, "Failed to retrieve information about " + schemaName + "."
+                    + tableName + "." + columnName
+                    + " from the geometry_columns table, checking the first geometry instead", e);
         }
-
-        return dimension;
+        return 2; // default
     }
 
     @Override
@@ -490,25 +690,8 @@ public class TiberoDialect extends BasicSQLDialect {
     @Override
     public Object getNextSequenceValue(String schemaName, String sequenceName, Connection cx)
             throws SQLException {
-        Statement st = cx.createStatement();
-        try {
-            // SELECT seq_building_fid.NEXTVAL FROM DUAL;
-            String sql = "SELECT \"" + sequenceName + "\".NEXTVAL FROM DUAL";
-
-            dataStore.getLogger().fine(sql);
-            ResultSet rs = st.executeQuery(sql);
-            try {
-                if (rs.next()) {
-                    return rs.getLong(1);
-                }
-            } finally {
-                dataStore.closeSafe(rs);
-            }
-        } finally {
-            dataStore.closeSafe(st);
-        }
-
-        return null;
+        // values are reserved in blocks, one query serves many inserts
+        return sequences.next(schemaName, sequenceName, cx);
     }
 
     @Override
@@ -655,6 +838,10 @@ public class TiberoDialect extends BasicSQLDialect {
                             + "'" + geomType + "', '')";
                     LOGGER.fine(sql);
                     st.execute(sql);
+                    GeometryColumn column = new GeometryColumn(schemaName, tableName,
+                            gd.getLocalName(), srid, dimensions, geomType);
+                    geometryColumns.put(column);
+                    registeredTables.put(column);
 
                     // add the spatial index
                     // CREATE INDEX IDX_STORES_GEOMETRY ON SYSGIS.STORES("the_geom") RTREE;
@@ -665,8 +852,12 @@ public class TiberoDialect extends BasicSQLDialect {
                             + " (" //
                             + "\"" + gd.getLocalName() + "\"" //
                             + ") RTREE";
-                    LOGGER.fine(sql);
-                    st.execute(sql);
+                    if (bulkLoadEnabled) {
+                        deferredIndexes.defer(schemaName, tableName, sql);
+                    } else {
+                        LOGGER.fine(sql);
+                        st.execute(sql);
+                    }
 
                     // create sequence
                     String sequenceName = getSequenceForColumn(schemaName, tableName, "fid", cx);
@@ -703,6 +894,13 @@ public class TiberoDialect extends BasicSQLDialect {
                     + schemaName + "'" + " AND F_TABLE_NAME = '" + tableName + "'";
             LOGGER.fine(sql);
             st.execute(sql);
+            geometryColumns.removeTable(schemaName, tableName);
+            registeredTables.removeTable(schemaName, tableName);
+            extents.invalidate(schemaName, tableName);
+            deferredIndexes.remove(schemaName, tableName);
+            if (featureCache != null) {
+                featureCache.invalidate(tableName);
+            }
         } finally {
             dataStore.closeSafe(st);
         }
@@ -720,7 +918,9 @@ public class TiberoDialect extends BasicSQLDialect {
                         ((LinearRing) value).getCoordinateSequence());
             }
 
-            sql.append("ST_GEOMFROMTEXT('" + value.toText() + "')");
+            sql.append("ST_GEOMFROMWKB(");
+            new WKBEncoder(dimension, WKBQuirks.TIBERO).encodeHex(value, sql);
+            sql.append(")");
         }
     }
 
@@ -738,6 +938,18 @@ public class TiberoDialect extends BasicSQLDialect {
 
     @Override
     public void applyLimitOffset(StringBuffer sql, int limit, int offset) {
+        if (isOffsetFetchSupported()) {
+            // Tibero 6: the row limiting clause, no nested queries
+            if (offset > 0) {
+                sql.append(" OFFSET " + offset + " ROWS");
+            }
+            if (limit != Integer.MAX_VALUE) {
+                sql.append(offset > 0 ? " FETCH NEXT " : " FETCH FIRST ");
+                sql.append(limit + " ROWS ONLY");
+            }
+            return;
+        }
+
         // see http://progcookbook.blogspot.com/2006/02/using-rownum-properly-for-pagination.html
         // and http://www.oracle.com/technology/oramag/oracle/07-jan/o17asktom.html
         // to understand why we are going thru such hoops in order to get it working
@@ -754,6 +966,13 @@ public class TiberoDialect extends BasicSQLDialect {
         }
     }
 
+    /**
+     * OFFSET / FETCH is available from Tibero 6, the version is read when the datastore is created
+     */
+    boolean isOffsetFetchSupported() {
+        return version != null && version.compareTo(V_6) >= 0;
+    }
+
     @SuppressWarnings("rawtypes")
     @Override
     public void encodeValue(Object value, Class type, StringBuffer sql) {
@@ -822,20 +1041,29 @@ public class TiberoDialect extends BasicSQLDialect {
      */
     public Version getVersion(Connection conn) throws SQLException {
         if (version == null) {
-            version = new Version("V_5_0_0"); // Minimum Version
+            Version found = new Version("5.0"); // Minimum Version
 
-            Statement st = null;
-            ResultSet rs = null;
             try {
-                st = conn.createStatement();
-                rs = st.executeQuery("SELECT * FROM v$version WHERE NAME = 'PRODUCT_MAJOR'");
-                if (rs.next()) {
-                    version = new Version(rs.getString(1));
+                DatabaseMetaData md = conn.getMetaData();
+                found = new Version(String.format("%d.%d", md.getDatabaseMajorVersion(),
+                        md.getDatabaseMinorVersion()));
+            } catch (SQLException e) {
+                // v$version holds NAME / VALUE pairs, the major version is a value
+                Statement st = null;
+                ResultSet rs = null;
+                try {
+                    st = conn.createStatement();
+                    rs = st.executeQuery(
+                            "SELECT VALUE FROM v$version WHERE NAME = 'PRODUCT_MAJOR'");
+                    if (rs.next()) {
+                        found = new Version(rs.getString(1).trim() + ".0");
+                    }
+                } finally {
+                    dataStore.closeSafe(rs);
+                    dataStore.closeSafe(st);
                 }
-            } finally {
-                dataStore.closeSafe(rs);
-                dataStore.closeSafe(st);
             }
+            version = found;
         }
         return version;
     }
@@ -33,8 +33,11 @@ public class TiberoNGJNDIDataStoreFactory extends JDBCJNDIDataStoreFactory {
         super.setupParameters(parameters);
 
         parameters.put(TiberoNGDataStoreFactory.LOOSEBBOX.key, TiberoNGDataStoreFactory.LOOSEBBOX);
+        parameters.put(TiberoNGDataStoreFactory.SIMPLIFY.key, TiberoNGDataStoreFactory.SIMPLIFY);
         parameters.put(TiberoNGDataStoreFactory.PREPARED_STATEMENTS.key,
                 TiberoNGDataStoreFactory.PREPARED_STATEMENTS);
+        parameters.put(TiberoNGDataStoreFactory.BATCH_INSERT_SIZE.key,
+                TiberoNGDataStoreFactory.BATCH_INSERT_SIZE);
         parameters.put(MAX_OPEN_PREPARED_STATEMENTS.key, MAX_OPEN_PREPARED_STATEMENTS);
     }
 }
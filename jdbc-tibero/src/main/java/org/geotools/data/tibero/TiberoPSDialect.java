@@ -25,7 +25,10 @@ import java.sql.SQLException;
 import java.sql.Types;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.geotools.data.korean.WKBEncoder;
+import org.geotools.data.korean.WKBQuirks;
 import org.geotools.factory.Hints;
 import org.geotools.geometry.jts.ReferencedEnvelope;
 import org.geotools.jdbc.ColumnMetadata;
@@ -40,8 +43,6 @@ import com.vividsolutions.jts.geom.Envelope;
 import com.vividsolutions.jts.geom.Geometry;
 import com.vividsolutions.jts.geom.GeometryFactory;
 import com.vividsolutions.jts.geom.LinearRing;
-import com.vividsolutions.jts.io.ByteOrderValues;
-import com.vividsolutions.jts.io.WKBWriter;
 
 public class TiberoPSDialect extends PreparedStatementSQLDialect {
 
@@ -75,7 +76,8 @@ public class TiberoPSDialect extends PreparedStatementSQLDialect {
 
     @Override
     public void initializeConnection(Connection cx) throws SQLException {
-        super.initializeConnection(cx);
+        // looks up the simplification function of the server on the first connection
+        delegate.initializeConnection(cx);
     }
 
     @Override
@@ -96,12 +98,35 @@ public class TiberoPSDialect extends PreparedStatementSQLDialect {
         return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx);
     }
 
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, int column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx, hints);
+    }
+
+    @Override
+    public Geometry decodeGeometryValue(GeometryDescriptor descriptor, ResultSet rs, String column,
+            GeometryFactory factory, Connection cx, Hints hints) throws IOException, SQLException {
+        return delegate.decodeGeometryValue(descriptor, rs, column, factory, cx, hints);
+    }
+
     @Override
     public void encodeGeometryColumn(GeometryDescriptor gatt, String prefix, int srid, Hints hints,
             StringBuffer sql) {
         delegate.encodeGeometryColumn(gatt, prefix, srid, hints, sql);
     }
 
+    @Override
+    public void encodeGeometryColumnSimplified(GeometryDescriptor gatt, String prefix, int srid,
+            StringBuffer sql, Double distance) {
+        delegate.encodeGeometryColumnSimplified(gatt, prefix, srid, sql, distance);
+    }
+
+    @Override
+    public void addSupportedHints(Set<Hints.Key> hints) {
+        delegate.addSupportedHints(hints);
+    }
+
     @Override
     public void encodeGeometryEnvelope(String tableName, String geometryColumn, StringBuffer sql) {
         delegate.encodeGeometryEnvelope(tableName, geometryColumn, sql);
@@ -124,6 +149,24 @@ public class TiberoPSDialect extends PreparedStatementSQLDialect {
         return delegate.decodeGeometryEnvelope(rs, column, cx);
     }
 
+    @Override
+    public void onInsert(PreparedStatement insert, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onInsert(insert, cx, featureType);
+    }
+
+    @Override
+    public void onUpdate(PreparedStatement update, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onUpdate(update, cx, featureType);
+    }
+
+    @Override
+    public void onDelete(PreparedStatement delete, Connection cx, SimpleFeatureType featureType)
+            throws SQLException {
+        delegate.onDelete(delete, cx, featureType);
+    }
+
     @Override
     public Class<?> getMapping(ResultSet columnMetaData, Connection cx) throws SQLException {
         return delegate.getMapping(columnMetaData, cx);
@@ -271,7 +314,7 @@ public class TiberoPSDialect extends PreparedStatementSQLDialect {
                 g = g.getFactory().createLineString(((LinearRing) g).getCoordinateSequence());
             }
 
-            byte[] bytes = new WKBWriter(dimension, ByteOrderValues.LITTLE_ENDIAN).write(g);
+            byte[] bytes = new WKBEncoder(dimension, WKBQuirks.TIBERO).encode(g);
             ps.setBytes(column, bytes);
         } else {
             ps.setNull(column, Types.OTHER, "Geometry");
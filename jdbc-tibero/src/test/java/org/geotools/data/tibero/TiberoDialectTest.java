@@ -0,0 +1,147 @@
+/*
+ *    GeoTools - The Open Source Java GIS Toolkit
+ *    http://geotools.org
+ *
+ *    (C) 2002-2008, Open Source Geospatial Foundation (OSGeo)
+ *
+ *    This library is free software; you can redistribute it and/or
+ *    modify it under the terms of the GNU Lesser General Public
+ *    License as published by the Free Software Foundation;
+ *    version 2.1 of the License.
+ *
+ *    This library is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the GNU
+ *    Lesser General Public License for more details.
+ */
+package org.geotools.data.tibero;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.geotools.data.DataUtilities;
+import org.geotools.factory.Hints;
+import org.geotools.jdbc.JDBCDataStore;
+import org.geotools.jdbc.SQLDialect;
+import org.junit.Before;
+import org.junit.Test;
+import org.opengis.feature.type.GeometryDescriptor;
+
+import com.vividsolutions.jts.geom.Geometry;
+import com.vividsolutions.jts.io.WKTReader;
+
+public class TiberoDialectTest {
+
+    TiberoDialect dialect;
+
+    JDBCDataStore store;
+
+    GeometryDescriptor geometry;
+
+    /** the functions the mock server knows */
+    Set<String> functions = new HashSet<String>();
+
+    @Before
+    public void setUp() throws Exception {
+        store = new JDBCDataStore();
+        dialect = new TiberoDialect(store);
+        store.setSQLDialect(dialect);
+        geometry = DataUtilities.createType("ROADS", "geom:LineString,name:String")
+                .getGeometryDescriptor();
+    }
+
+    @Test
+    public void testSimplificationHintSupported() {
+        Set<Hints.Key> hints = new HashSet<Hints.Key>();
+        dialect.addSupportedHints(hints);
+        assertTrue(hints.contains(Hints.GEOMETRY_SIMPLIFICATION));
+    }
+
+    @Test
+    public void testSimplifiedColumn() throws Exception {
+        functions.add("ST_SIMPLIFY");
+        functions.add("ST_SNAPTOGRID");
+        dialect.initializeConnection(connection());
+        assertEquals(" ST_ASBINARY(ST_SIMPLIFY(\"geom\", 2.0))", simplified(dialect));
+        assertEquals(" ST_ASBINARY(ST_SIMPLIFY(\"geom\", 2.0))",
+                simplified(new TiberoPSDialect(store, dialect)));
+    }
+
+    @Test
+    public void testSnapToGridColumn() throws Exception {
+        functions.add("ST_SNAPTOGRID");
+        dialect.initializeConnection(connection());
+        assertEquals(" ST_ASBINARY(ST_SNAPTOGRID(\"geom\", 2.0))", simplified(dialect));
+    }
+
+    @Test
+    public void testClientSideSimplification() throws Exception {
+        dialect.initializeConnection(connection());
+        assertEquals(" ST_ASBINARY(\"geom\")", simplified(dialect));
+
+        Geometry line = new WKTReader().read("LINESTRING(0 0, 1 0.1, 2 0, 3 0.1, 10 0)");
+        Hints hints = new Hints(Hints.GEOMETRY_SIMPLIFICATION, 2.0);
+        assertEquals(2, dialect.simplify(line, geometry, hints).getNumPoints());
+    }
+
+    @Test
+    public void testSimplifyDisabled() throws Exception {
+        functions.add("ST_SIMPLIFY");
+        dialect.setSimplifyEnabled(false);
+        dialect.initializeConnection(connection());
+        assertEquals(" ST_ASBINARY(\"geom\")", simplified(dialect));
+    }
+
+    /**
+     * The geometry column of a query carrying the simplification hint, encoded as JDBCDataStore
+     * does: through encodeGeometryColumnSimplified rather than encodeGeometryColumn
+     */
+    String simplified(SQLDialect dialect) {
+        Hints hints = new Hints(Hints.GEOMETRY_SIMPLIFICATION, 2.0);
+        StringBuffer sql = new StringBuffer();
+        dialect.encodeGeometryColumnSimplified(geometry, null, -1, sql,
+                (Double) hints.get(Hints.GEOMETRY_SIMPLIFICATION));
+        return sql.toString();
+    }
+
+    /**
+     * A connection whose statements only run the functions of {@link #functions}
+     */
+    Connection connection() {
+        final InvocationHandler statement = new InvocationHandler() {
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                if ("executeQuery".equals(method.getName())) {
+                    String sql = (String) args[0];
+                    for (String function : functions) {
+                        if (sql.startsWith("SELECT " + function + "(")) {
+                            return null;
+                        }
+                    }
+                    throw new SQLException("Unknown function: " + sql);
+                }
+                return null;
+            }
+        };
+        return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[] { Connection.class }, new InvocationHandler() {
+                    public Object invoke(Object proxy, Method method, Object[] args) {
+                        if ("getAutoCommit".equals(method.getName())) {
+                            return Boolean.TRUE;
+                        } else if ("createStatement".equals(method.getName())) {
+                            return Proxy.newProxyInstance(getClass().getClassLoader(),
+                                    new Class<?>[] { Statement.class }, statement);
+                        }
+                        return null;
+                    }
+                });
+    }
+}